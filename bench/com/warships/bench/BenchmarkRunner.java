@@ -0,0 +1,88 @@
+package com.warships.bench;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Minimal benchmark harness. Each benchmark is warmed up, then measured for a fixed
+ * wall-clock duration on the calling thread. Two figures are reported per benchmark:
+ * throughput (operations per second) and allocation (bytes allocated per operation,
+ * read from the JVM's per-thread allocation counter).
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * A single benchmarked operation. The returned value is consumed so that the JIT
+     * cannot eliminate the work.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        Object run(long iteration);
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final PrintStream out;
+    private final long warmupNanos;
+    private final long measureNanos;
+    private int sink;
+
+    /**
+     * @param out Stream results are reported to. Benchmarks may redirect {@link System#out}.
+     * @param warmupSeconds Duration of the warmup phase of each benchmark.
+     * @param measureSeconds Duration of the measured phase of each benchmark.
+     */
+    public BenchmarkRunner(PrintStream out, double warmupSeconds, double measureSeconds) {
+        this.out = out;
+        this.warmupNanos = (long) (warmupSeconds * 1_000_000_000L);
+        this.measureNanos = (long) (measureSeconds * 1_000_000_000L);
+    }
+
+    /**
+     * Runs a benchmark and prints its results.
+     *
+     * @param name Name of the benchmark.
+     * @param operation The operation to measure.
+     */
+    public void run(String name, Operation operation) {
+        long iteration = 0;
+
+        long warmupEnd = System.nanoTime() + this.warmupNanos;
+        while (System.nanoTime() < warmupEnd) {
+            consume(operation.run(iteration++));
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long operations = 0;
+        long startBytes = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long now = start;
+
+        while (now - start < this.measureNanos) {
+            consume(operation.run(iteration++));
+            operations++;
+            now = System.nanoTime();
+        }
+
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - startBytes;
+        double seconds = (now - start) / 1_000_000_000.0;
+
+        this.out.printf(Locale.ROOT, "%-36s %14.1f ops/s %12.1f ns/op %12.1f B/op%n", name,
+                operations / seconds, (now - start) / (double) operations, allocated / (double) operations);
+    }
+
+    /**
+     * Gets a value derived from every consumed result.
+     *
+     * @return the accumulated hash of all results.
+     */
+    public int getSink() {
+        return this.sink;
+    }
+
+    private void consume(Object value) {
+        this.sink ^= System.identityHashCode(value);
+    }
+}
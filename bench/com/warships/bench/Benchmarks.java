@@ -0,0 +1,207 @@
+package com.warships.bench;
+
+import java.awt.Point;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.warships.bulk.BulkGenerator;
+import com.warships.constants.WarshipConstants;
+import com.warships.loaders.PresetCatalog;
+import com.warships.loaders.PresetLoader;
+import com.warships.raffles.DefenseRaffle;
+import com.warships.raffles.TroopRaffle;
+import com.warships.session.Session;
+import com.warships.session.SessionManager;
+import com.warships.tree.CommandProcessor;
+import com.warships.tree.MazeBenchmarkSupport;
+import com.warships.tree.PathBenchmarkSupport;
+import com.warships.tree.TechTree;
+import com.warships.tree.TreeCodec;
+import com.warships.tree.TreeFingerprint;
+import com.warships.tree.TreeRenderer;
+import com.warships.utils.RandomEngine;
+
+/**
+ * Benchmark suite for the generation, maze, raffle, loading, rendering and command
+ * paths. Every benchmark draws its randomness from fixed seeds so runs are comparable.
+ * <pre>
+ * Benchmarks [--filter text] [--warmup seconds] [--seconds seconds]
+ * </pre>
+ */
+public final class Benchmarks {
+
+    private static final long SEED = 42L;
+
+    private static final int[] ROOM_WIDTHS = {
+            WarshipConstants.TOTAL_COLUMNS_TWO_ENGINES,
+            WarshipConstants.TOTAL_COLUMNS_FIVE_ENGINES,
+            WarshipConstants.TOTAL_COLUMNS_FOUR_ENGINES,
+            WarshipConstants.TOTAL_COLUMNS_THREE_ENGINES,
+            16,
+    };
+
+    private static final String[] COMMANDS = {
+            "get 1 2", "upgrade 1 2", "get 2 1", "unlock 2 2", "debug", "help get",
+    };
+
+    public static void main(String[] args) {
+        Map<String, String> options = parseOptions(args);
+        String filter = options.getOrDefault("filter", "");
+        PrintStream console = System.out;
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        BenchmarkRunner runner = new BenchmarkRunner(console,
+                Double.parseDouble(options.getOrDefault("warmup", "2")),
+                Double.parseDouble(options.getOrDefault("seconds", "5")));
+
+        if (matches("tree.generate", filter)) {
+            runner.run("tree.generate", i -> generateTree(i));
+            runner.run("tree.generateLazily", i -> {
+                TechTree tree = new TechTree(BulkGenerator.seedOf(SEED, (int) i));
+                tree.generateLazily();
+                return tree;
+            });
+        }
+
+        for (int width : ROOM_WIDTHS) {
+            String name = "maze.generateMaze[width=" + width + "]";
+            if (matches(name, filter)) {
+                RandomEngine random = new RandomEngine(SEED);
+                runner.run(name, i -> MazeBenchmarkSupport.generateRoom(width, random));
+            }
+        }
+
+        if (matches("raffle.removeRandom", filter)) {
+            RandomEngine random = new RandomEngine(SEED);
+            runner.run("raffle.removeRandom", i -> {
+                TroopRaffle raffle = new TroopRaffle(random);
+                while (!raffle.isEmpty()) {
+                    raffle.removeRandom();
+                }
+                return raffle;
+            });
+        }
+
+        if (matches("raffle.removeWithFilter", filter)) {
+            RandomEngine random = new RandomEngine(SEED);
+            runner.run("raffle.removeWithFilter", i -> {
+                DefenseRaffle raffle = new DefenseRaffle(random);
+                while (!raffle.isEmpty()) {
+                    raffle.removeNonOverpowered();
+                }
+                return raffle;
+            });
+        }
+
+        if (matches("preset.parse", filter)) {
+            runner.run("preset.parse", i -> PresetCatalog.load(WarshipConstants.PRESET_FILENAME));
+        }
+
+        if (matches("preset.drawState", filter)) {
+            PresetCatalog catalog = PresetCatalog.getDefault();
+            runner.run("preset.drawState", i -> new PresetLoader(catalog).unloadNode("Gunboat"));
+        }
+
+        if (matches("tree.displayNodes", filter)) {
+            TechTree tree = generateTree(0);
+            System.setOut(discard);
+            try {
+                runner.run("tree.displayNodes", i -> {
+                    tree.displayNodes();
+                    return tree;
+                });
+            } finally {
+                System.setOut(console);
+            }
+        }
+
+        if (matches("tree.render.byteBuffer", filter)) {
+            TechTree tree = generateTree(0);
+            ByteBuffer buffer = ByteBuffer.allocate(TreeRenderer.encodedSize(tree));
+            runner.run("tree.render.byteBuffer", i -> {
+                buffer.clear();
+                TreeRenderer.render(tree, buffer);
+                return buffer;
+            });
+        }
+
+        if (matches("tree.unlockPath", filter)) {
+            TechTree tree = generateTree(0);
+            Point engine = tree.getEnginePosition(tree.getRoomCount() - 1);
+            runner.run("tree.unlockPath.cached", i -> tree.getCheapestUnlockCost(engine.x, engine.y));
+            runner.run("tree.unlockPath.uncached",
+                    i -> PathBenchmarkSupport.uncachedUnlockCost(tree, engine.x, engine.y));
+        }
+
+        if (matches("tree.codec", filter)) {
+            TechTree tree = generateTree(0);
+            byte[] encoded = TreeCodec.encode(tree);
+            runner.run("tree.codec.encode", i -> TreeCodec.encode(tree));
+            runner.run("tree.codec.decode", i -> TreeCodec.decode(encoded));
+        }
+
+        if (matches("tree.fingerprint", filter)) {
+            TechTree tree = generateTree(0);
+            runner.run("tree.fingerprint", i -> TreeFingerprint.of(tree));
+        }
+
+        if (matches("session", filter)) {
+            SessionManager hot = new SessionManager(Long.MAX_VALUE);
+            Session resident = playSession(hot.open(SEED));
+            runner.run("session.hit", i -> resident.read(TechTree::getWidth));
+
+            // A budget of one byte only keeps the last session, so every access rebuilds
+            SessionManager cold = new SessionManager(1);
+            Session[] evicted = {playSession(cold.open(SEED)), playSession(cold.open(SEED + 1))};
+            runner.run("session.rehydrate", i -> evicted[(int) (i & 1)].read(TechTree::getWidth));
+        }
+
+        if (matches("command.process", filter)) {
+            TechTree tree = generateTree(0);
+            runner.run("command.process", i -> {
+                CommandProcessor.process(COMMANDS[(int) (i % COMMANDS.length)], tree, discard);
+                return tree;
+            });
+        }
+
+        System.out.println("sink: " + runner.getSink());
+    }
+
+    private static TechTree generateTree(long iteration) {
+        TechTree tree = new TechTree(BulkGenerator.seedOf(SEED, (int) iteration));
+        tree.generate();
+        return tree;
+    }
+
+    /**
+     * Unlocks the cheapest path to the first engine of a session, so rebuilding it
+     * replays a typical action log.
+     */
+    private static Session playSession(Session session) {
+        Point engine = session.read(tree -> tree.getEnginePosition(0));
+        for (Point point : session.read(tree -> tree.getCheapestUnlockPath(engine.x, engine.y))) {
+            session.unlockNode(point.x, point.y, 0);
+        }
+        return session;
+    }
+
+    private static boolean matches(String name, String filter) {
+        return filter.isEmpty() || name.contains(filter);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+
+        return options;
+    }
+
+    private Benchmarks() {
+        throw new IllegalStateException("Cannot instantiate static class.");
+    }
+}
@@ -0,0 +1,54 @@
+package com.warships.tree;
+
+import com.warships.nodes.AttachmentGroups;
+import com.warships.nodes.TechNode;
+import com.warships.utils.RandomEngine;
+
+/**
+ * Gives benchmarks access to the package-private maze generator.
+ */
+public final class MazeBenchmarkSupport {
+
+    private static final int START_COLUMN = 3;
+
+    /**
+     * Builds a grid holding an attached starting column followed by an empty room, then
+     * carves the room.
+     *
+     * @param roomWidth Number of columns in the room.
+     * @param random Random engine used for carving.
+     * @return The carved grid.
+     */
+    public static Object generateRoom(int roomWidth, RandomEngine random) {
+        TechGrid grid = new TechGrid(START_COLUMN + roomWidth);
+        AttachmentGroups groups = new AttachmentGroups();
+
+        // Attached column the room is connected to
+        for (int y = 0; y < TechGrid.ROWS; y++) {
+            insert(grid, groups, START_COLUMN - 1, y);
+        }
+        grid.get(START_COLUMN - 1, 0).attach();
+        grid.get(START_COLUMN - 1, 0).setNextUpperNode(grid.get(START_COLUMN - 1, 1));
+        grid.get(START_COLUMN - 1, 1).setNextUpperNode(grid.get(START_COLUMN - 1, 2));
+
+        for (int x = START_COLUMN; x < START_COLUMN + roomWidth; x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                insert(grid, groups, x, y);
+            }
+        }
+
+        new MazeGenerator(grid, START_COLUMN, START_COLUMN + roomWidth, random).generateMaze();
+
+        return grid;
+    }
+
+    private static void insert(TechGrid grid, AttachmentGroups groups, int x, int y) {
+        TechNode node = new TechNode();
+        node.joinAttachmentGroups(groups);
+        grid.set(x, y, node);
+    }
+
+    private MazeBenchmarkSupport() {
+        throw new IllegalStateException("Cannot instantiate static class.");
+    }
+}
@@ -0,0 +1,25 @@
+package com.warships.tree;
+
+/**
+ * Gives benchmarks access to the unlock path cache of a tree.
+ */
+public final class PathBenchmarkSupport {
+
+    /**
+     * Discards the cached unlock paths of a tree, then finds the cheapest unlock cost of
+     * a node from scratch.
+     *
+     * @param tree The tree to search.
+     * @param x The X position of the node.
+     * @param y The Y position of the node.
+     * @return The cheapest unlock cost.
+     */
+    public static int uncachedUnlockCost(TechTree tree, int x, int y) {
+        tree.invalidateUnlockPaths();
+        return tree.getCheapestUnlockCost(x, y);
+    }
+
+    private PathBenchmarkSupport() {
+        throw new IllegalStateException("Cannot instantiate static class.");
+    }
+}
@@ -1,13 +1,62 @@
+import com.warships.bulk.BulkGenerator;
+import com.warships.bulk.DedupFilter;
+import com.warships.bulk.TreeStatistics;
+import com.warships.server.TreeServer;
+import com.warships.tree.BatchRunner;
 import com.warships.tree.CommandProcessor;
 import com.warships.tree.TechTree;
+import com.warships.utils.RandomEngine;
 import com.warships.utils.StringUtility;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 public class Main {
 
+    /**
+     * Usage:
+     * <pre>
+     * Main [--seed N]                          Interactive mode
+     * Main --count N [--threads N] [--seed N]  Headless bulk generation
+     *      [--dedup N]                         Skip repeated layouts, confirming up to N exactly
+     * Main --stats N [--threads N] [--seed N]  Statistics over N generated trees
+     * Main --serve PORT [--host HOST]          HTTP server, GET /tree?seed=N&amp;format=text|json|binary
+     * Main --batch FILE|- [--seed N]           Run a script of commands from a file or stdin
+     * </pre>
+     */
     public static void main(String[] args) {
-        TechTree tree = new TechTree();
+        Map<String, String> options = parseOptions(args);
+        long seed = options.containsKey("seed") ? Long.parseLong(options.get("seed")) : RandomEngine.newSeed();
+
+        if (options.containsKey("batch")) {
+            runBatch(options, seed);
+        } else if (options.containsKey("serve")) {
+            runServer(options);
+        } else if (options.containsKey("stats")) {
+            runStatistics(options, seed);
+        } else if (options.containsKey("count")) {
+            runBulk(options, seed);
+        } else {
+            runInteractive(seed);
+        }
+    }
+
+    private static void runInteractive(long seed) {
+        TechTree tree = new TechTree(seed);
         tree.generate();
 
         tree.displayNodes();
@@ -30,4 +79,108 @@ public class Main {
         scanner.close();
     }
 
-}
\ No newline at end of file
+    private static void runBulk(Map<String, String> options, long seed) {
+        int count = Integer.parseInt(options.get("count"));
+        int threads = options.containsKey("threads")
+                ? Integer.parseInt(options.get("threads"))
+                : Runtime.getRuntime().availableProcessors();
+
+        try (BulkGenerator generator = new BulkGenerator(threads)) {
+            DedupFilter filter = options.containsKey("dedup") ? new DedupFilter(Integer.parseInt(options.get("dedup"))) : null;
+
+            long start = System.nanoTime();
+            List<Long> seeds = filter == null
+                    ? generator.generate(seed, count, TechTree::getSeed)
+                    : generator.generateUnique(seed, count, filter, TechTree::getSeed);
+            long elapsed = System.nanoTime() - start;
+
+            double seconds = elapsed / 1_000_000_000.0;
+            System.out.printf("Generated %d trees on %d threads in %.3fs (%.0f trees/min), base seed %d, %d rejected%n",
+                    count, threads, seconds, count / seconds * 60, seed, generator.getRejectedCount());
+
+            if (filter != null) {
+                System.out.printf("%d unique layouts, %d repeats, %d probable repeats, %d KiB filter%n",
+                        seeds.size(), filter.getRepeatCount(), filter.getProbableRepeatCount(),
+                        filter.getMemoryBytes() / 1024);
+            }
+        }
+    }
+
+    private static void runStatistics(Map<String, String> options, long seed) {
+        int count = Integer.parseInt(options.get("stats"));
+        int threads = options.containsKey("threads")
+                ? Integer.parseInt(options.get("threads"))
+                : Runtime.getRuntime().availableProcessors();
+
+        try (BulkGenerator generator = new BulkGenerator(threads)) {
+            TreeStatistics statistics = generator.collectStatistics(seed, count);
+
+            StringBuilder report = new StringBuilder();
+            statistics.writeReport(report);
+            System.out.print(report);
+            System.out.printf("Base seed %d, %d rejected%n", seed, generator.getRejectedCount());
+        } catch (IOException ex) {
+            // StringBuilder never throws
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void runBatch(Map<String, String> options, long seed) {
+        String source = options.get("batch");
+        BatchRunner runner;
+
+        long start = System.nanoTime();
+        // One buffered sink for every result instead of a console write per command. It is
+        // closed last, so whatever ran before a failure is still written out.
+        try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false,
+                StandardCharsets.UTF_8);
+             BufferedReader script = source.equals("-")
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                     : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8)) {
+            runner = new BatchRunner(out, seed);
+            runner.run(script);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.err.printf("Ran %d commands on %d trees in %.3fs, %d failed%n", runner.getCommandCount(),
+                runner.getTreeCount(), elapsed / 1_000_000_000.0, runner.getFailureCount());
+    }
+
+    private static void runServer(Map<String, String> options) {
+        int port = Integer.parseInt(options.get("serve"));
+        String host = options.getOrDefault("host", "localhost");
+
+        try {
+            // The server keeps running on its own threads until the process is stopped,
+            // which stops the server first
+            TreeServer server = new TreeServer(new InetSocketAddress(host, port));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close, "tree-server-shutdown"));
+            server.start();
+
+            InetSocketAddress address = server.getAddress();
+            System.out.printf("Serving on http://%s:%d/tree%n", address.getHostString(), address.getPort());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Parses <code>--name value</code> pairs from the command line.
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected '--option value' but got: " + args[i]);
+            }
+
+            options.put(args[i].substring(2).toLowerCase(), args[++i]);
+        }
+
+        return options;
+    }
+
+}
@@ -0,0 +1,292 @@
+package com.warships.bulk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.warships.tree.TechTree;
+import com.warships.tree.TreeFingerprint;
+import com.warships.tree.TreeValidator;
+
+/**
+ * Generates tech trees in bulk across a work-stealing pool. Each tree owns all of its
+ * generation state, so workers never share anything but the result array. Tree
+ * <code>i</code> is always generated from {@link #seedOf(long, int)}, which makes the
+ * results independent of the number of threads used.
+ * <br>
+ * Every tree is checked with {@link TreeValidator} before it is handed out. A tree that
+ * is invalid, or whose generation fails, is rejected and regenerated from a seed derived
+ * from the rejected one.
+ */
+public class BulkGenerator implements AutoCloseable {
+
+    /**
+     * Number of trees a worker generates before it stops splitting its range.
+     */
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * Number of times a single tree may be rejected before the run is aborted.
+     */
+    private static final int MAX_ATTEMPTS = 16;
+
+    /**
+     * Placeholder result of a tree skipped as a repeat.
+     */
+    private static final Object SKIPPED = new Object();
+
+    /**
+     * Derives the seed of a single tree from the seed of a bulk run.
+     *
+     * @param baseSeed Seed of the bulk run.
+     * @param index Index of the tree within the run.
+     * @return The seed of the tree.
+     */
+    public static long seedOf(long baseSeed, int index) {
+        // SplitMix64 finalizer over the golden-ratio sequence
+        long z = baseSeed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private final ForkJoinPool pool;
+    private final LongAdder rejected;
+
+    /**
+     * @param threads Number of worker threads to generate with.
+     */
+    public BulkGenerator(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+
+        this.pool = new ForkJoinPool(threads);
+        this.rejected = new LongAdder();
+    }
+
+    public BulkGenerator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getThreads() {
+        return this.pool.getParallelism();
+    }
+
+    /**
+     * Gets the number of trees rejected by validation since this generator was created.
+     *
+     * @return the number of rejected trees.
+     */
+    public long getRejectedCount() {
+        return this.rejected.sum();
+    }
+
+    /**
+     * Generates a single valid tree, regenerating it from derived seeds while it is
+     * rejected.
+     *
+     * @param seed Seed of the first attempt.
+     * @return The generated tree.
+     * @throws IllegalStateException if no valid tree was produced within the attempt limit.
+     */
+    TechTree generateValid(long seed) {
+        String violation = null;
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            long attemptSeed = attempt == 0 ? seed : seedOf(seed, attempt);
+
+            try {
+                TechTree tree = new TechTree(attemptSeed);
+                tree.generate();
+
+                violation = TreeValidator.validate(tree);
+                if (violation == null) {
+                    return tree;
+                }
+            } catch (RuntimeException ex) {
+                violation = ex.toString();
+            }
+
+            this.rejected.increment();
+        }
+
+        throw new IllegalStateException("No valid tree after " + MAX_ATTEMPTS + " attempts from seed "
+                + seed + ": " + violation);
+    }
+
+    /**
+     * Generates a number of trees.
+     *
+     * @param baseSeed Seed of the bulk run.
+     * @param count Number of trees to generate.
+     * @return The generated trees, ordered by index.
+     */
+    public List<TechTree> generate(long baseSeed, int count) {
+        return generate(baseSeed, count, Function.identity());
+    }
+
+    /**
+     * Generates a number of trees and maps each one to a result on the worker that
+     * generated it. Mapping to a small result avoids keeping every tree in memory.
+     *
+     * @param baseSeed Seed of the bulk run.
+     * @param count Number of trees to generate.
+     * @param mapper Function applied to each generated tree.
+     * @param <T> Type of the mapped results.
+     * @return The mapped results, ordered by index.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> generate(long baseSeed, int count, Function<? super TechTree, ? extends T> mapper) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Tree count cannot be negative: " + count);
+        }
+
+        Object[] results = new Object[count];
+        this.pool.invoke(new GenerateTask(this, baseSeed, 0, count, mapper, results));
+
+        return (List<T>) Arrays.asList(results);
+    }
+
+    /**
+     * Generates a number of trees and maps only the ones whose layout the filter has not
+     * seen before. Trees are fingerprinted on the worker that generated them, and repeats
+     * are dropped before they are mapped. When two trees of a run share a layout, which
+     * one is kept depends on the order the workers reach them.
+     *
+     * @param baseSeed Seed of the bulk run.
+     * @param count Number of trees to generate.
+     * @param filter Filter of the layouts seen so far, possibly shared between runs.
+     * @param mapper Function applied to each tree with a new layout.
+     * @param <T> Type of the mapped results.
+     * @return The mapped results of the new layouts, ordered by index.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> generateUnique(long baseSeed, int count, DedupFilter filter,
+                                      Function<? super TechTree, ? extends T> mapper) {
+        List<Object> results = generate(baseSeed, count,
+                tree -> filter.add(TreeFingerprint.of(tree)) ? mapper.apply(tree) : SKIPPED);
+
+        List<T> unique = new ArrayList<>(results.size());
+        for (Object result : results) {
+            if (result != SKIPPED) {
+                unique.add((T) result);
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Generates a number of trees and collects statistics over them. Every worker thread
+     * records into its own {@link TreeStatistics}, and the instances are merged once
+     * every tree is recorded, so the trees are never kept in memory.
+     *
+     * @param baseSeed Seed of the bulk run.
+     * @param count Number of trees to generate.
+     * @return The merged statistics.
+     */
+    public TreeStatistics collectStatistics(long baseSeed, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Tree count cannot be negative: " + count);
+        }
+
+        List<TreeStatistics> workers = new ArrayList<>();
+        ThreadLocal<TreeStatistics> perWorker = ThreadLocal.withInitial(() -> {
+            TreeStatistics statistics = new TreeStatistics();
+            synchronized (workers) {
+                workers.add(statistics);
+            }
+            return statistics;
+        });
+
+        this.pool.invoke(new StatisticsTask(this, baseSeed, 0, count, perWorker));
+
+        TreeStatistics merged = new TreeStatistics();
+        synchronized (workers) {
+            for (TreeStatistics statistics : workers) {
+                merged.merge(statistics);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void close() {
+        this.pool.shutdown();
+    }
+
+    private static final class GenerateTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BulkGenerator generator;
+        private final long baseSeed;
+        private final int from;
+        private final int to;
+        private final Function<? super TechTree, ?> mapper;
+        private final Object[] results;
+
+        private GenerateTask(BulkGenerator generator, long baseSeed, int from, int to,
+                             Function<? super TechTree, ?> mapper, Object[] results) {
+            this.generator = generator;
+            this.baseSeed = baseSeed;
+            this.from = from;
+            this.to = to;
+            this.mapper = mapper;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= BATCH_SIZE) {
+                for (int i = this.from; i < this.to; i++) {
+                    TechTree tree = this.generator.generateValid(seedOf(this.baseSeed, i));
+
+                    this.results[i] = this.mapper.apply(tree);
+                }
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new GenerateTask(this.generator, this.baseSeed, this.from, middle, this.mapper, this.results),
+                        new GenerateTask(this.generator, this.baseSeed, middle, this.to, this.mapper, this.results));
+            }
+        }
+    }
+
+    private static final class StatisticsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BulkGenerator generator;
+        private final long baseSeed;
+        private final int from;
+        private final int to;
+        private final ThreadLocal<TreeStatistics> perWorker;
+
+        private StatisticsTask(BulkGenerator generator, long baseSeed, int from, int to,
+                               ThreadLocal<TreeStatistics> perWorker) {
+            this.generator = generator;
+            this.baseSeed = baseSeed;
+            this.from = from;
+            this.to = to;
+            this.perWorker = perWorker;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= BATCH_SIZE) {
+                TreeStatistics statistics = this.perWorker.get();
+                for (int i = this.from; i < this.to; i++) {
+                    statistics.record(this.generator.generateValid(seedOf(this.baseSeed, i)));
+                }
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new StatisticsTask(this.generator, this.baseSeed, this.from, middle, this.perWorker),
+                        new StatisticsTask(this.generator, this.baseSeed, middle, this.to, this.perWorker));
+            }
+        }
+    }
+}
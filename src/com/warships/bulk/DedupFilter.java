@@ -0,0 +1,214 @@
+package com.warships.bulk;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.warships.tree.TreeFingerprint;
+
+/**
+ * Memory-bounded filter of tree fingerprints that tells apart new layouts from repeats.
+ * Every fingerprint is checked against a Bloom filter first. A Bloom miss proves the
+ * layout is new, so its fingerprint is stored in an exact table of the fingerprints seen
+ * so far without comparing it to any of them. A Bloom hit is confirmed against the exact
+ * table, so a false positive of the Bloom filter is never counted as a repeat.
+ * <br>
+ * The exact table holds at most the capacity given to the filter. Once it is full, a
+ * Bloom miss is answered without touching the table at all, and a Bloom hit that cannot
+ * be confirmed is counted as a probable repeat instead.
+ * <br>
+ * Both structures are split into shards chosen by the fingerprint, each guarded by its
+ * own lock, so workers of a bulk run rarely wait on each other.
+ */
+public final class DedupFilter {
+
+    private static final int SHARDS = 64;
+
+    /**
+     * Bloom filter bits per fingerprint of capacity, for a false positive rate of about
+     * 0.05% while the filter is within capacity.
+     */
+    private static final int BITS_PER_ENTRY = 16;
+
+    private static final int HASHES = 11;
+
+    private final Shard[] shards;
+    private final LongAdder unique;
+    private final LongAdder repeats;
+    private final LongAdder probableRepeats;
+
+    /**
+     * @param capacity Number of fingerprints that can be confirmed exactly.
+     */
+    public DedupFilter(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        int shardCapacity = (capacity + SHARDS - 1) / SHARDS;
+        this.shards = new Shard[SHARDS];
+        for (int i = 0; i < SHARDS; i++) {
+            this.shards[i] = new Shard(shardCapacity);
+        }
+
+        this.unique = new LongAdder();
+        this.repeats = new LongAdder();
+        this.probableRepeats = new LongAdder();
+    }
+
+    /**
+     * Adds a fingerprint to the filter.
+     *
+     * @param fingerprint Fingerprint of a generated tree.
+     * @return <code>true</code> if the layout was not seen before, or <code>false</code>
+     *         if it is a confirmed or probable repeat.
+     */
+    public boolean add(TreeFingerprint fingerprint) {
+        long high = fingerprint.getHigh();
+        long low = fingerprint.getLow();
+        Shard shard = this.shards[(int) (high >>> 58) & (SHARDS - 1)];
+
+        int result;
+        synchronized (shard) {
+            result = shard.add(high, low);
+        }
+
+        switch (result) {
+            case Shard.NEW:
+                this.unique.increment();
+                return true;
+            case Shard.REPEAT:
+                this.repeats.increment();
+                return false;
+            default:
+                this.probableRepeats.increment();
+                return false;
+        }
+    }
+
+    /**
+     * Gets the number of distinct layouts added.
+     *
+     * @return the number of new fingerprints.
+     */
+    public long getUniqueCount() {
+        return this.unique.sum();
+    }
+
+    /**
+     * Gets the number of repeats confirmed by the exact table.
+     *
+     * @return the number of confirmed repeats.
+     */
+    public long getRepeatCount() {
+        return this.repeats.sum();
+    }
+
+    /**
+     * Gets the number of Bloom hits that could not be confirmed because the exact table
+     * was full. Some of them may be new layouts.
+     *
+     * @return the number of probable repeats.
+     */
+    public long getProbableRepeatCount() {
+        return this.probableRepeats.sum();
+    }
+
+    /**
+     * Gets the number of bytes held by the filter.
+     *
+     * @return the memory used by the Bloom filter and the exact table.
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Shard shard : this.shards) {
+            bytes += (long) (shard.bloom.length + shard.table.length) * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    private static final class Shard {
+
+        private static final int NEW = 0;
+        private static final int REPEAT = 1;
+        private static final int PROBABLE_REPEAT = 2;
+
+        private final long[] bloom;
+        private final int bloomMask;
+
+        // Open addressing over pairs of longs, half full at capacity. The all-zero
+        // fingerprint marks an empty slot, so it is tracked on its own.
+        private final long[] table;
+        private final int slotMask;
+        private final int capacity;
+        private int size;
+        private boolean hasZero;
+
+        private Shard(int capacity) {
+            int bloomBits = Integer.highestOneBit(Math.max(Long.SIZE, capacity * BITS_PER_ENTRY - 1) << 1);
+            this.bloom = new long[bloomBits / Long.SIZE];
+            this.bloomMask = bloomBits - 1;
+
+            int slots = Integer.highestOneBit(Math.max(2, capacity * 2 - 1) << 1);
+            this.table = new long[slots * 2];
+            this.slotMask = slots - 1;
+            this.capacity = capacity;
+        }
+
+        private int add(long high, long low) {
+            boolean maybeSeen = testAndSetBloom(high, low);
+
+            if (high == 0L && low == 0L) {
+                boolean seen = this.hasZero;
+                this.hasZero = true;
+                return seen ? REPEAT : NEW;
+            }
+
+            // A fingerprint the Bloom filter has never seen cannot be in the table
+            if (!maybeSeen && this.size == this.capacity) {
+                return NEW;
+            }
+
+            int slot = (int) high & this.slotMask;
+            while (this.table[slot * 2] != 0L || this.table[slot * 2 + 1] != 0L) {
+                if (maybeSeen && this.table[slot * 2] == high && this.table[slot * 2 + 1] == low) {
+                    return REPEAT;
+                }
+                slot = (slot + 1) & this.slotMask;
+            }
+
+            if (this.size < this.capacity) {
+                this.table[slot * 2] = high;
+                this.table[slot * 2 + 1] = low;
+                this.size++;
+                return NEW;
+            }
+
+            return PROBABLE_REPEAT;
+        }
+
+        /**
+         * Sets the Bloom bits of a fingerprint, using the low half and the high half as
+         * the two hashes of double hashing.
+         *
+         * @return <code>true</code> if every bit was already set.
+         */
+        private boolean testAndSetBloom(long high, long low) {
+            boolean allSet = true;
+            long hash = low;
+            long step = high | 1L;
+
+            for (int i = 0; i < HASHES; i++) {
+                int bit = (int) hash & this.bloomMask;
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+
+                if ((this.bloom[word] & mask) == 0) {
+                    allSet = false;
+                    this.bloom[word] |= mask;
+                }
+                hash += step;
+            }
+
+            return allSet;
+        }
+    }
+}
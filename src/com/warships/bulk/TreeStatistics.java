@@ -0,0 +1,357 @@
+package com.warships.bulk;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+import com.warships.enums.NodeType;
+import com.warships.nodes.ChoiceNode;
+import com.warships.nodes.EngineNode;
+import com.warships.nodes.TechNode;
+import com.warships.raffles.DefenseRaffle;
+import com.warships.raffles.GunboatRaffle;
+import com.warships.raffles.TicketTable;
+import com.warships.raffles.TroopRaffle;
+import com.warships.tree.TechTree;
+
+/**
+ * Histograms describing a set of generated trees, kept per engine room. Each worker of a
+ * statistics run records trees into its own instance, and the instances are merged once
+ * the workers are done, so recording never contends on shared counters.
+ * <br>
+ * Per room, the histograms count how often each troop, defense and gunboat ability
+ * appears, how many choice and bonus nodes the room holds, and how many nodes must be
+ * unlocked to reach the engine node of the room.
+ * <br>
+ * Instances are not thread-safe.
+ */
+public final class TreeStatistics {
+
+    /**
+     * Number of buckets of each count histogram. The last bucket also holds every
+     * larger value.
+     */
+    private static final int BUCKETS = 64;
+
+    private static final int ROWS = 3;
+
+    private long trees;
+    private int rooms;
+
+    private long[][] troops;
+    private long[][] defenses;
+    private long[][] gunboatAbilities;
+    private long[][] choiceNodes;
+    private long[][] bonusNodes;
+    private long[][] unlockPaths;
+
+    // Scratch space for measuring unlock paths, never merged
+    private int[] distance;
+    private int[] queue;
+
+    public TreeStatistics() {
+        this.trees = 0;
+        this.rooms = 0;
+        this.troops = new long[0][];
+        this.defenses = new long[0][];
+        this.gunboatAbilities = new long[0][];
+        this.choiceNodes = new long[0][];
+        this.bonusNodes = new long[0][];
+        this.unlockPaths = new long[0][];
+        this.distance = new int[0];
+        this.queue = new int[0];
+    }
+
+    /**
+     * Records a generated tree.
+     *
+     * @param tree The tree to record.
+     */
+    public void record(TechTree tree) {
+        ensureRooms(tree.getRoomCount());
+        measureUnlockPaths(tree);
+
+        int x = 0;
+        for (int room = 0; room < tree.getRoomCount(); room++) {
+            int roomEnd = tree.getRoomEnd(room);
+            int choices = 0;
+            int bonuses = 0;
+
+            for (; x <= roomEnd; x++) {
+                for (int y = 0; y < ROWS; y++) {
+                    TechNode node = tree.getNode(x, y);
+                    if (node == null || node instanceof EngineNode) {
+                        continue;
+                    }
+
+                    if (node instanceof ChoiceNode) {
+                        choices++;
+                    } else if (isBonus(node.getName())) {
+                        bonuses++;
+                    } else {
+                        countTicket(room, node.getName());
+                    }
+                }
+            }
+
+            this.choiceNodes[room][bucket(choices)]++;
+            this.bonusNodes[room][bucket(bonuses)]++;
+        }
+
+        this.trees++;
+    }
+
+    /**
+     * Adds every tree recorded by another instance to this one.
+     *
+     * @param other The statistics to merge.
+     */
+    public void merge(TreeStatistics other) {
+        ensureRooms(other.rooms);
+
+        for (int room = 0; room < other.rooms; room++) {
+            add(this.troops[room], other.troops[room]);
+            add(this.defenses[room], other.defenses[room]);
+            add(this.gunboatAbilities[room], other.gunboatAbilities[room]);
+            add(this.choiceNodes[room], other.choiceNodes[room]);
+            add(this.bonusNodes[room], other.bonusNodes[room]);
+            add(this.unlockPaths[room], other.unlockPaths[room]);
+        }
+
+        this.trees += other.trees;
+    }
+
+    public long getTreeCount() {
+        return this.trees;
+    }
+
+    public int getRoomCount() {
+        return this.rooms;
+    }
+
+    /**
+     * Gets how many recorded trees hold a troop, defense or gunboat ability in a room.
+     *
+     * @param room Index of the room.
+     * @param name Name of the troop, defense or gunboat ability.
+     * @return the number of appearances.
+     */
+    public long getAppearances(int room, String name) {
+        int index = TroopRaffle.TICKETS.indexOf(name);
+        if (index >= 0) {
+            return this.troops[room][index];
+        }
+
+        index = DefenseRaffle.TICKETS.indexOf(name);
+        if (index >= 0) {
+            return this.defenses[room][index];
+        }
+
+        index = GunboatRaffle.TICKETS.indexOf(name);
+        return index >= 0 ? this.gunboatAbilities[room][index] : 0;
+    }
+
+    /**
+     * Gets the histogram of the number of choice nodes in a room.
+     *
+     * @param room Index of the room.
+     * @return a copy of the histogram, indexed by count.
+     */
+    public long[] getChoiceNodeHistogram(int room) {
+        return this.choiceNodes[room].clone();
+    }
+
+    /**
+     * Gets the histogram of the number of bonus nodes in a room.
+     *
+     * @param room Index of the room.
+     * @return a copy of the histogram, indexed by count.
+     */
+    public long[] getBonusNodeHistogram(int room) {
+        return this.bonusNodes[room].clone();
+    }
+
+    /**
+     * Gets the histogram of the number of nodes that must be unlocked to reach the
+     * engine node of a room, starting from a freshly generated tree.
+     *
+     * @param room Index of the room.
+     * @return a copy of the histogram, indexed by path length.
+     */
+    public long[] getUnlockPathHistogram(int room) {
+        return this.unlockPaths[room].clone();
+    }
+
+    /**
+     * Writes a compact report of every histogram. Ticket appearances are written as the
+     * share of trees holding the ticket in the room.
+     *
+     * @param out Destination of the report.
+     * @throws IOException if the destination cannot be written to.
+     */
+    public void writeReport(Appendable out) throws IOException {
+        String separator = System.lineSeparator();
+        out.append("Trees: ").append(Long.toString(this.trees)).append(separator);
+
+        for (int room = 0; room < this.rooms; room++) {
+            out.append("Room ").append(Integer.toString(room + 1)).append(separator);
+            appendHistogram(out, "  choice nodes ", this.choiceNodes[room]);
+            appendHistogram(out, "  bonus nodes  ", this.bonusNodes[room]);
+            appendHistogram(out, "  unlock path  ", this.unlockPaths[room]);
+            appendTickets(out, "  troops       ", TroopRaffle.TICKETS, this.troops[room]);
+            appendTickets(out, "  defenses     ", DefenseRaffle.TICKETS, this.defenses[room]);
+            appendTickets(out, "  gunboat      ", GunboatRaffle.TICKETS, this.gunboatAbilities[room]);
+        }
+    }
+
+    private void countTicket(int room, String name) {
+        int index = TroopRaffle.TICKETS.indexOf(name);
+        if (index >= 0) {
+            this.troops[room][index]++;
+            return;
+        }
+
+        index = DefenseRaffle.TICKETS.indexOf(name);
+        if (index >= 0) {
+            this.defenses[room][index]++;
+            return;
+        }
+
+        index = GunboatRaffle.TICKETS.indexOf(name);
+        if (index >= 0) {
+            this.gunboatAbilities[room][index]++;
+        }
+    }
+
+    /**
+     * Finds the fewest locked nodes that must be unlocked to reach the engine node of each
+     * room with a breadth-first search over the connections of the tree. Every unlocked
+     * node is a starting point, so each step onto a locked node costs one unlock.
+     */
+    private void measureUnlockPaths(TechTree tree) {
+        int cells = tree.getPositionCount();
+        if (this.distance.length < cells) {
+            this.distance = new int[cells];
+            this.queue = new int[cells];
+        }
+        Arrays.fill(this.distance, 0, cells, Integer.MAX_VALUE);
+
+        int head = 0;
+        int tail = 0;
+
+        for (int cell = 0; cell < cells; cell++) {
+            TechNode node = tree.getNode(cell);
+            if (node != null && node.isUnlocked()) {
+                this.distance[cell] = 0;
+                this.queue[tail++] = cell;
+            }
+        }
+
+        while (head < tail) {
+            int cell = this.queue[head++];
+            TechNode node = tree.getNode(cell);
+
+            for (int direction = 0; direction < TechNode.DIRECTIONS; direction++) {
+                int nextCell = TechTree.neighborPosition(cell, direction);
+
+                // Each cell is queued at most once, when it is first reached
+                if (node.hasLink(direction) && this.distance[nextCell] == Integer.MAX_VALUE) {
+                    this.distance[nextCell] = this.distance[cell] + 1;
+                    this.queue[tail++] = nextCell;
+                }
+            }
+        }
+
+        for (int room = 0; room < tree.getRoomCount(); room++) {
+            int roomEnd = tree.getRoomEnd(room);
+
+            for (int y = 0; y < ROWS; y++) {
+                if (tree.getNode(roomEnd, y) instanceof EngineNode) {
+                    int path = this.distance[TechTree.packPosition(roomEnd, y)];
+                    if (path != Integer.MAX_VALUE) {
+                        this.unlockPaths[room][bucket(path)]++;
+                    }
+                }
+            }
+        }
+    }
+
+    private void ensureRooms(int count) {
+        if (count <= this.rooms) {
+            return;
+        }
+
+        this.troops = grow(this.troops, count, TroopRaffle.TICKETS.size());
+        this.defenses = grow(this.defenses, count, DefenseRaffle.TICKETS.size());
+        this.gunboatAbilities = grow(this.gunboatAbilities, count, GunboatRaffle.TICKETS.size());
+        this.choiceNodes = grow(this.choiceNodes, count, BUCKETS);
+        this.bonusNodes = grow(this.bonusNodes, count, BUCKETS);
+        this.unlockPaths = grow(this.unlockPaths, count, BUCKETS);
+        this.rooms = count;
+    }
+
+    private static long[][] grow(long[][] histograms, int count, int length) {
+        long[][] grown = Arrays.copyOf(histograms, count);
+        for (int room = histograms.length; room < count; room++) {
+            grown[room] = new long[length];
+        }
+        return grown;
+    }
+
+    private static void add(long[] target, long[] source) {
+        for (int i = 0; i < source.length; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    private static int bucket(int value) {
+        return Math.min(value, BUCKETS - 1);
+    }
+
+    private static boolean isBonus(String name) {
+        NodeType type = NodeType.of(name);
+        return type != null && type.bonus;
+    }
+
+    private void appendHistogram(Appendable out, String label, long[] histogram) throws IOException {
+        long total = 0;
+        long sum = 0;
+        int first = -1;
+        int last = -1;
+
+        for (int value = 0; value < histogram.length; value++) {
+            total += histogram[value];
+            sum += histogram[value] * value;
+            if (histogram[value] > 0) {
+                first = first < 0 ? value : first;
+                last = value;
+            }
+        }
+
+        // Only the range of values that occurred is written
+        out.append(label).append("mean ").append(format(total == 0 ? 0.0 : (double) sum / total)).append(" [");
+        for (int value = Math.max(first, 0); value <= last; value++) {
+            if (value > first) {
+                out.append(' ');
+            }
+            out.append(Integer.toString(value)).append(':').append(Long.toString(histogram[value]));
+        }
+        out.append(']').append(System.lineSeparator());
+    }
+
+    private void appendTickets(Appendable out, String label, TicketTable table, long[] counts) throws IOException {
+        out.append(label);
+        for (int i = 0; i < table.size(); i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            double share = this.trees == 0 ? 0.0 : (double) counts[i] / this.trees;
+            out.append(table.getName(i)).append(' ').append(format(share));
+        }
+        out.append(System.lineSeparator());
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
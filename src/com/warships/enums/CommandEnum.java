@@ -9,6 +9,8 @@ public enum CommandEnum {
     UNLOCK("Unlocks a node."),
     GET("Displays information about a node."),
     UPGRADE("Upgrades a node to the next level."),
+    PATH("Shows the cheapest way to unlock a node, or every locked engine."),
+    PLAN("Plans the most valuable unlocks and upgrades within a budget."),
     HELP("Displays information about a command."),
     REFRESH("Refreshes and displays the tree."),
     DEBUG("Shows debugging information about the tech tree."),
@@ -0,0 +1,58 @@
+package com.warships.enums;
+
+import com.warships.nodes.BonusNodes;
+import com.warships.raffles.DefenseRaffle;
+import com.warships.raffles.GunboatRaffle;
+import com.warships.raffles.TroopRaffle;
+
+/**
+ * Categories of upgradable nodes that can be placed in a random spot of a tech tree.
+ */
+public enum NodeType {
+
+    TROOP(false),
+    DEFENSE(false),
+    GUNBOAT_ABILITY(false),
+    GUNBOAT_ENERGY(true),
+    TROOP_DAMAGE(true),
+    BUILDING_DAMAGE(true),
+    TROOP_HEALTH(true),
+    BUILDING_HEALTH(true);
+
+    /**
+     * True if nodes of this type are bonus nodes rather than base game components.
+     */
+    public final boolean bonus;
+
+    NodeType(boolean bonus) {
+        this.bonus = bonus;
+    }
+
+    /**
+     * Gets the type of a node from its name.
+     *
+     * @param name Name of the node.
+     * @return The type, or <code>null</code> if the name does not belong to a random node type.
+     */
+    public static NodeType of(String name) {
+        if (TroopRaffle.TICKETS.indexOf(name) >= 0) {
+            return TROOP;
+        } else if (DefenseRaffle.TICKETS.indexOf(name) >= 0) {
+            return DEFENSE;
+        } else if (GunboatRaffle.TICKETS.indexOf(name) >= 0) {
+            return GUNBOAT_ABILITY;
+        } else if (BonusNodes.GBE.getName().equals(name)) {
+            return GUNBOAT_ENERGY;
+        } else if (BonusNodes.TROOP_DAMAGE.getName().equals(name)) {
+            return TROOP_DAMAGE;
+        } else if (BonusNodes.BUILDING_DAMAGE.getName().equals(name)) {
+            return BUILDING_DAMAGE;
+        } else if (BonusNodes.TROOP_HEALTH.getName().equals(name)) {
+            return TROOP_HEALTH;
+        } else if (BonusNodes.BUILDING_HEALTH.getName().equals(name)) {
+            return BUILDING_HEALTH;
+        }
+
+        return null;
+    }
+}
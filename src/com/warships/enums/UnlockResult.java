@@ -0,0 +1,18 @@
+package com.warships.enums;
+
+/**
+ * Outcomes of unlocking a node of a tech tree.
+ */
+public enum UnlockResult {
+
+    UNLOCKED,
+    NO_NODE,
+    /**
+     * No neighbor of the node is unlocked.
+     */
+    BLOCKED,
+    /**
+     * The node is a choice node and no option was picked.
+     */
+    NO_SELECTION
+}
@@ -0,0 +1,209 @@
+package com.warships.loaders;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.warships.constants.WarshipConstants;
+import com.warships.nodes.UpgradeNode;
+
+/**
+ * Immutable table of pre-defined upgrade node data. A catalog is parsed once and can
+ * be shared by any number of trees on any number of threads; each tree tracks which
+ * entries it has used through its own {@link PresetLoader}.
+ */
+public final class PresetCatalog {
+
+    private static final int UPGRADE_LEVELS = 4;
+
+    /**
+     * Gets the catalog for {@link WarshipConstants#PRESET_FILENAME}. The file is read
+     * the first time this method is called.
+     *
+     * @return the shared default catalog.
+     */
+    public static PresetCatalog getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Reads a catalog from a file. Each line holds a name, a tab and the four upgrade
+     * costs separated by single spaces.
+     *
+     * @param fileLocation Path of the preset file.
+     * @return the parsed catalog.
+     * @throws IllegalArgumentException if a line is malformed.
+     */
+    public static PresetCatalog load(String fileLocation) {
+        List<String> names = new ArrayList<>();
+        List<int[]> costs = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileLocation), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            // Read each line from the file
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                int tab = line.indexOf('\t');
+                if (tab <= 0) {
+                    throw malformed(fileLocation, lineNumber, line, "expected a name followed by a tab");
+                }
+                names.add(line.substring(0, tab));
+                costs.add(parseUpgradeCosts(line, tab + 1, fileLocation, lineNumber));
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to read file " + ex.getMessage());
+        }
+
+        return new PresetCatalog(names.toArray(new String[0]), costs.toArray(new int[0][]));
+    }
+
+    private final String[] names;
+    private final int[][] upgradeCosts;
+    private final Map<String, Integer> indexByName;
+    private final long contentHash;
+
+    private PresetCatalog(String[] names, int[][] upgradeCosts) {
+        this.names = names;
+        this.upgradeCosts = upgradeCosts;
+
+        Map<String, Integer> index = new HashMap<>();
+        // FNV-1a over every name and cost, in catalog order
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < names.length; i++) {
+            index.put(names[i], i);
+
+            for (int c = 0; c < names[i].length(); c++) {
+                hash = (hash ^ names[i].charAt(c)) * 0x100000001B3L;
+            }
+            for (int cost : upgradeCosts[i]) {
+                hash = (hash ^ cost) * 0x100000001B3L;
+            }
+            hash = (hash ^ 0xFFFF) * 0x100000001B3L;
+        }
+        this.indexByName = Collections.unmodifiableMap(index);
+        this.contentHash = hash;
+    }
+
+    /**
+     * Gets the number of entries in this catalog.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return this.names.length;
+    }
+
+    /**
+     * Gets a hash of every entry of this catalog, in order. Two catalogs with the same
+     * hash give the same node for each index.
+     *
+     * @return the content hash.
+     */
+    public long getContentHash() {
+        return this.contentHash;
+    }
+
+    /**
+     * Gets the index of a named entry.
+     *
+     * @param name Name of the upgrade node.
+     * @return the index of the entry, or -1 if no entry has this name.
+     */
+    public int indexOf(String name) {
+        Integer index = this.indexByName.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Gets the name of an entry.
+     *
+     * @param index Index of the entry.
+     * @return the name.
+     */
+    public String getName(int index) {
+        return this.names[index];
+    }
+
+    /**
+     * Gets the upgrade cost of an entry at a specified level. Range should be 0-3.
+     *
+     * @param index Index of the entry.
+     * @param level Upgrade level.
+     * @return the upgrade cost.
+     */
+    public int getUpgradeCost(int index, int level) {
+        return this.upgradeCosts[index][level];
+    }
+
+    /**
+     * Constructs a new upgrade node from an entry.
+     *
+     * @param index Index of the entry.
+     * @return a new node carrying the entry's name and upgrade costs.
+     */
+    public UpgradeNode createNode(int index) {
+        int[] costs = this.upgradeCosts[index];
+
+        UpgradeNode node = new UpgradeNode(this.names[index]);
+        node.setUpgradeCosts(costs[0], costs[1], costs[2], costs[3]);
+
+        return node;
+    }
+
+    private static int[] parseUpgradeCosts(String line, int start, String fileLocation, int lineNumber) {
+        int[] results = new int[UPGRADE_LEVELS];
+        int level = 0;
+        int digits = 0;
+        long value = 0;
+
+        for (int i = start; i <= line.length(); i++) {
+            char ch = i < line.length() ? line.charAt(i) : ' ';
+            if (ch == ' ') {
+                if (digits == 0) {
+                    throw malformed(fileLocation, lineNumber, line, "empty upgrade cost at column " + (i + 1));
+                }
+                if (level == UPGRADE_LEVELS) {
+                    throw malformed(fileLocation, lineNumber, line, "more than " + UPGRADE_LEVELS + " upgrade costs");
+                }
+                results[level++] = (int) value;
+                value = 0;
+                digits = 0;
+            } else if (ch >= '0' && ch <= '9') {
+                value = value * 10 + (ch - '0');
+                digits++;
+                if (value > Integer.MAX_VALUE) {
+                    throw malformed(fileLocation, lineNumber, line, "upgrade cost out of range at column " + (i + 1));
+                }
+            } else {
+                throw malformed(fileLocation, lineNumber, line, "unexpected '" + ch + "' at column " + (i + 1));
+            }
+        }
+
+        if (level != UPGRADE_LEVELS) {
+            throw malformed(fileLocation, lineNumber, line, "expected " + UPGRADE_LEVELS + " upgrade costs but found " + level);
+        }
+
+        return results;
+    }
+
+    private static IllegalArgumentException malformed(String fileLocation, int lineNumber, String line, String reason) {
+        return new IllegalArgumentException(String.format("Malformed preset on line %d of %s: %s: \"%s\"",
+                lineNumber, fileLocation, reason, line));
+    }
+
+    private static final class DefaultHolder {
+        private static final PresetCatalog INSTANCE = load(WarshipConstants.PRESET_FILENAME);
+    }
+}
@@ -1,40 +1,39 @@
 package com.warships.loaders;
 
 import java.io.File;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Scanner;
+import java.util.BitSet;
 
 import com.warships.nodes.UpgradeNode;
 
 /**
- * Loader class for reading pre-defined upgrade node data.
+ * Per-tree draw state over a {@link PresetCatalog}. Each entry of the catalog can be
+ * unloaded once; the remaining entries are tracked as a bit set.
  */
 public class PresetLoader {
 
-    private final String fileLocation;
-    private final Map<String, UpgradeNode> presetNodes;
-    private final List<String> loadedNodes;
-    private int initialSize;
+    private final PresetCatalog catalog;
+    private final BitSet remaining;
 
-    public PresetLoader(String fileLocation) {
-        this.presetNodes = new HashMap<>();
-        this.loadedNodes = new ArrayList<>();
-        this.fileLocation = fileLocation;
-        this.initialSize = 0;
+    public PresetLoader(PresetCatalog catalog) {
+        this.catalog = catalog;
+        this.remaining = new BitSet(catalog.size());
+        this.remaining.set(0, catalog.size());
+    }
 
-        generateNodes();
+    public PresetLoader(String fileLocation) {
+        this(PresetCatalog.load(fileLocation));
     }
 
     public PresetLoader(File file) {
         this(file.getPath());
     }
 
+    public PresetCatalog getCatalog() {
+        return catalog;
+    }
+
     public int getInitialSize() {
-        return initialSize;
+        return catalog.size();
     }
 
     /**
@@ -44,7 +43,8 @@ public class PresetLoader {
      * @return true if the node is present.
      */
     public boolean contains(String name) {
-        return this.presetNodes.containsKey(name);
+        int index = this.catalog.indexOf(name);
+        return index >= 0 && this.remaining.get(index);
     }
 
     /**
@@ -53,7 +53,7 @@ public class PresetLoader {
      * @return true if the loader is not empty.
      */
     public boolean isEmpty() {
-        return this.presetNodes.isEmpty();
+        return this.remaining.isEmpty();
     }
 
     /**
@@ -63,46 +63,12 @@ public class PresetLoader {
      * @return the removed node.
      */
     public UpgradeNode unloadNode(String name) {
-        UpgradeNode node = this.presetNodes.remove(name);
-        if (node == null) {
+        int index = this.catalog.indexOf(name);
+        if (index < 0 || !this.remaining.get(index)) {
             throw new RuntimeException("Node is not present for pulling: " + name);
         }
-        return node;
-    }
-
-    private void generateNodes() {
-        File file = new File(this.fileLocation);
-
-        try (Scanner sc = new Scanner(file)) {
-            // Read each line from the file
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String[] info = line.split("\t");
-
-                // Get information from the string data
-                String nodeName = info[0];
-                int[] upgrades = parseUpgradeCosts(info[1]);
-
-                // Construct the node
-                UpgradeNode node = new UpgradeNode(nodeName);
-                node.setUpgradeCosts(upgrades[0], upgrades[1], upgrades[2], upgrades[3]);
-
-                this.presetNodes.put(nodeName, node);
-            }
-            this.initialSize = this.presetNodes.size();
-        } catch (IOException ex) {
-            throw new RuntimeException("Unable to read file " + ex.getMessage());
-        }
-    }
-
-    private int[] parseUpgradeCosts(String costs) {
-        String[] upgrades = costs.split(" ");
-        int[] results = new int[4];
-
-        for (int i = 0; i < upgrades.length; i++) {
-            results[i] = Integer.parseInt(upgrades[i]);
-        }
 
-        return results;
+        this.remaining.clear(index);
+        return this.catalog.createNode(index);
     }
 }
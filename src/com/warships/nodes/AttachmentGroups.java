@@ -0,0 +1,107 @@
+package com.warships.nodes;
+
+import java.util.Arrays;
+
+/**
+ * Disjoint-set structure tracking which nodes of a tree are connected to each other,
+ * and whether each connected group is attached to the main tree. Joining two groups
+ * and checking attachment both run in near-constant time, so linking nodes never has
+ * to walk the nodes already connected to them.
+ */
+public final class AttachmentGroups {
+
+    private static final int DEFAULT_CAPACITY = 96;
+
+    private int[] parent;
+    private byte[] rank;
+    private boolean[] attached;
+    private int size;
+
+    public AttachmentGroups() {
+        this.parent = new int[DEFAULT_CAPACITY];
+        this.rank = new byte[DEFAULT_CAPACITY];
+        this.attached = new boolean[DEFAULT_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Adds a new group holding a single member.
+     *
+     * @param isAttached If the member is already attached to the main tree.
+     * @return the id of the new member.
+     */
+    public int add(boolean isAttached) {
+        if (this.size == this.parent.length) {
+            int capacity = this.size * 2;
+            this.parent = Arrays.copyOf(this.parent, capacity);
+            this.rank = Arrays.copyOf(this.rank, capacity);
+            this.attached = Arrays.copyOf(this.attached, capacity);
+        }
+
+        int id = this.size++;
+        this.parent[id] = id;
+        this.attached[id] = isAttached;
+
+        return id;
+    }
+
+    /**
+     * Gets the representative member of the group containing a member.
+     *
+     * @param id Id of the member.
+     * @return the id of the representative.
+     */
+    public int find(int id) {
+        while (this.parent[id] != id) {
+            // Path halving
+            this.parent[id] = this.parent[this.parent[id]];
+            id = this.parent[id];
+        }
+
+        return id;
+    }
+
+    /**
+     * Joins the groups of two members. The joined group is attached if either group was.
+     *
+     * @param first Id of the first member.
+     * @param second Id of the second member.
+     */
+    public void union(int first, int second) {
+        int firstRoot = find(first);
+        int secondRoot = find(second);
+        if (firstRoot == secondRoot) {
+            return;
+        }
+
+        if (this.rank[firstRoot] < this.rank[secondRoot]) {
+            int temp = firstRoot;
+            firstRoot = secondRoot;
+            secondRoot = temp;
+        } else if (this.rank[firstRoot] == this.rank[secondRoot]) {
+            this.rank[firstRoot]++;
+        }
+
+        this.parent[secondRoot] = firstRoot;
+        this.attached[firstRoot] |= this.attached[secondRoot];
+    }
+
+    /**
+     * Marks the group of a member as attached to the main tree.
+     *
+     * @param id Id of the member.
+     */
+    public void attach(int id) {
+        this.attached[find(id)] = true;
+    }
+
+    /**
+     * Checks if the group of a member is attached to the main tree.
+     *
+     * @param id Id of the member.
+     * @return true if the member is attached.
+     */
+    public boolean isAttached(int id) {
+        return this.attached[find(id)];
+    }
+}
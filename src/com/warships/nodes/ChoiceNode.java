@@ -8,7 +8,7 @@ import java.util.List;
 
 import com.warships.constants.WarshipConstants;
 import com.warships.raffles.DefenseRaffle;
-import com.warships.utils.MathUtility;
+import com.warships.utils.RandomEngine;
 
 public class ChoiceNode extends TechNode {
 
@@ -26,18 +26,35 @@ public class ChoiceNode extends TechNode {
      * Constructs this choice node using data from a defense raffle.
      *
      * @param raffle The defense raffle to base this node off of.
+     * @param random Random engine used to pick the options.
      */
-    public ChoiceNode(DefenseRaffle raffle) {
+    public ChoiceNode(DefenseRaffle raffle, RandomEngine random) {
         this();
 
         List<String> winners = raffle.winners();
         this.choices.addAll(Arrays.asList(
-                new SimpleEntry<>(selectRandomFromRaffle(winners), 1),
-                new SimpleEntry<>(selectRandomFromRaffle(winners), 1),
-                new SimpleEntry<>(selectRandomFromRaffle(winners), 1)
+                new SimpleEntry<>(selectRandomFromRaffle(winners, random), 1),
+                new SimpleEntry<>(selectRandomFromRaffle(winners, random), 1),
+                new SimpleEntry<>(selectRandomFromRaffle(winners, random), 1)
         ));
     }
 
+    /**
+     * Constructs this choice node with known options, such as when restoring a saved tree.
+     *
+     * @param options The three options of the node, as name and amount.
+     */
+    public ChoiceNode(List<SimpleEntry<String, Integer>> options) {
+        this();
+
+        if (options.size() != 3) {
+            throw new IllegalArgumentException("A choice node needs 3 options, got " + options.size());
+        }
+        for (SimpleEntry<String, Integer> option : options) {
+            this.choices.add(new SimpleEntry<>(option.getKey(), option.getValue()));
+        }
+    }
+
     @Override
     public void unlock() {
         throw new UnsupportedOperationException("No choice has been made.");
@@ -59,6 +76,15 @@ public class ChoiceNode extends TechNode {
         return new SimpleEntry<>(selected.getKey(), selected.getValue());
     }
 
+    /**
+     * Gets the index of the selected choice.
+     *
+     * @return the index of the selection, or -1 if no choice has been made.
+     */
+    public int getSelectedChoice() {
+        return this.selectedChoice;
+    }
+
     /**
      * Gets the choice under the specified number. Range should be 0-2.
      *
@@ -86,9 +112,9 @@ public class ChoiceNode extends TechNode {
         super.unlock();
     }
 
-    private static String selectRandomFromRaffle(List<String> winners) {
+    private static String selectRandomFromRaffle(List<String> winners, RandomEngine random) {
         int max = winners.size() - 1;
-        int randomIndex = MathUtility.random(0, max);
+        int randomIndex = random.random(0, max);
 
         return winners.remove(randomIndex);
     }
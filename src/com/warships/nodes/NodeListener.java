@@ -0,0 +1,24 @@
+package com.warships.nodes;
+
+/**
+ * Receives notifications about changes made to a node, typically from the tree that
+ * holds it.
+ */
+public interface NodeListener {
+
+    /**
+     * Called after the name of a node has changed.
+     *
+     * @param node The renamed node.
+     * @param previousName The name the node had before.
+     */
+    void nodeRenamed(TechNode node, String previousName);
+
+    /**
+     * Called after a node was unlocked, upgraded, or connected to or disconnected from
+     * a neighbor. Changes to a node may also change how its neighbors are displayed.
+     *
+     * @param node The changed node.
+     */
+    void nodeChanged(TechNode node);
+}
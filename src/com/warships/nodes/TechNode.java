@@ -1,12 +1,34 @@
 package com.warships.nodes;
 
 import com.warships.constants.WarshipConstants;
+import com.warships.utils.Glyphs;
 import com.warships.utils.StringUtility;
 
 public class TechNode {
 
     public static final int NODE_WIDTH = WarshipConstants.NODE_NAME_MIN_WIDTH + 16;
 
+    /*
+     * Directions of the connections of a node, for code that walks every connection in
+     * turn. See getNextNode(int) and TechTree.neighborPosition(int, int).
+     */
+    public static final int LEFT = 0;
+    public static final int UPPER = 1;
+    public static final int RIGHT = 2;
+    public static final int LOWER = 3;
+
+    /**
+     * Number of connection directions.
+     */
+    public static final int DIRECTIONS = 4;
+
+    /*
+     * Text surrounding the cost in WarshipConstants.NODE_UNLOCK, split once so the
+     * cost can be appended without formatting.
+     */
+    private static final String UNLOCK_PREFIX = WarshipConstants.NODE_UNLOCK.substring(0, WarshipConstants.NODE_UNLOCK.indexOf("%s"));
+    private static final String UNLOCK_SUFFIX = WarshipConstants.NODE_UNLOCK.substring(WarshipConstants.NODE_UNLOCK.indexOf("%s") + 2);
+
     public static String emptyNodeString() {
         return StringUtility.repeat(WarshipConstants.BLANK_SPACE, TechNode.NODE_WIDTH + 3);
     }
@@ -20,6 +42,9 @@ public class TechNode {
     private TechNode nextUpperNode;
     private TechNode nextRightNode;
     private TechNode nextLowerNode;
+    private NodeListener listener;
+    private AttachmentGroups attachmentGroups;
+    private int attachmentId;
 
     public TechNode() {
         this.name = "?";
@@ -31,6 +56,8 @@ public class TechNode {
         this.nextLowerNode = null;
         this.nextRightNode = null;
         this.nextUpperNode = null;
+        this.attachmentGroups = null;
+        this.attachmentId = -1;
     }
 
     public TechNode(String name, int unlockCost) {
@@ -54,7 +81,22 @@ public class TechNode {
      * @param name The name to set.
      */
     public void setName(String name) {
+        String previousName = this.name;
         this.name = name;
+
+        if (this.listener != null && !previousName.equals(name)) {
+            this.listener.nodeRenamed(this, previousName);
+        }
+    }
+
+    /**
+     * Sets the listener notified about changes to this node. A node has at most one
+     * listener.
+     *
+     * @param listener The listener, or <code>null</code> to remove it.
+     */
+    public void setListener(NodeListener listener) {
+        this.listener = listener;
     }
 
     /**
@@ -64,6 +106,10 @@ public class TechNode {
      * @return true if this node is attached.
      */
     public boolean isAttached() {
+        if (attachmentGroups != null) {
+            return attachmentGroups.isAttached(attachmentId);
+        }
+
         return isAttached;
     }
 
@@ -71,9 +117,25 @@ public class TechNode {
      * Marks this node as attached to the main tree.
      */
     public void attach() {
+        if (attachmentGroups != null) {
+            attachmentGroups.attach(attachmentId);
+        }
+
         isAttached = true;
     }
 
+    /**
+     * Registers this node with the attachment groups of a tree. Once registered, linking
+     * this node to another node of the same tree joins their groups, and attachment is
+     * answered by the group rather than by this node alone.
+     *
+     * @param groups The attachment groups of the tree holding this node.
+     */
+    public void joinAttachmentGroups(AttachmentGroups groups) {
+        this.attachmentGroups = groups;
+        this.attachmentId = groups.add(this.isAttached);
+    }
+
     /**
      * Gets the unlock cost of this node.
      *
@@ -97,6 +159,7 @@ public class TechNode {
      */
     public void unlock() {
         this.isUnlocked = true;
+        notifyChanged();
     }
 
     /**
@@ -127,15 +190,13 @@ public class TechNode {
             this.nextLeftNode = nextLeftNode;
             nextLeftNode.nextRightNode = this;
 
-            if (!this.isAttached) {
-                this.isAttached = nextLeftNode.isAttached();
-            }
-
-            attemptAttachment();
+            joinAttachment(nextLeftNode);
+            notifyChanged();
         } else if (this.nextLeftNode != null) {
             // Disconnect the node
             this.nextLeftNode.nextRightNode = null;
             this.nextLeftNode = null;
+            notifyChanged();
         }
     }
 
@@ -158,15 +219,13 @@ public class TechNode {
             this.nextUpperNode = nextUpperNode;
             nextUpperNode.nextLowerNode = this;
 
-            if (!this.isAttached) {
-                this.isAttached = nextUpperNode.isAttached();
-            }
-
-            attemptAttachment();
+            joinAttachment(nextUpperNode);
+            notifyChanged();
         } else if (this.nextUpperNode != null) {
             // Disconnect the node
             this.nextUpperNode.nextLowerNode = null;
             this.nextUpperNode = null;
+            notifyChanged();
         }
     }
 
@@ -189,15 +248,13 @@ public class TechNode {
             this.nextRightNode = nextRightNode;
             nextRightNode.nextLeftNode = this;
 
-            if (!this.isAttached) {
-                this.isAttached = nextRightNode.isAttached();
-            }
-
-            attemptAttachment();
+            joinAttachment(nextRightNode);
+            notifyChanged();
         } else if (this.nextRightNode != null) {
             // Disconnect the node
             this.nextRightNode.nextLeftNode = null;
             this.nextRightNode = null;
+            notifyChanged();
         }
     }
 
@@ -220,15 +277,13 @@ public class TechNode {
             this.nextLowerNode = nextLowerNode;
             nextLowerNode.nextUpperNode = this;
 
-            if (!this.isAttached) {
-                this.isAttached = nextLowerNode.isAttached();
-            }
-
-            attemptAttachment();
+            joinAttachment(nextLowerNode);
+            notifyChanged();
         } else if (this.nextLowerNode != null) {
             // Disconnect the node
             this.nextLowerNode.nextUpperNode = null;
             this.nextLowerNode = null;
+            notifyChanged();
         }
     }
 
@@ -298,6 +353,37 @@ public class TechNode {
         return nextLeftNode != null;
     }
 
+    /**
+     * Gets the node connected in a direction.
+     *
+     * @param direction One of {@link #LEFT}, {@link #UPPER}, {@link #RIGHT} or {@link #LOWER}.
+     * @return the connected node, or <code>null</code> if there is no connection.
+     */
+    public TechNode getNextNode(int direction) {
+        switch (direction) {
+            case LEFT:
+                return nextLeftNode;
+            case UPPER:
+                return nextUpperNode;
+            case RIGHT:
+                return nextRightNode;
+            case LOWER:
+                return nextLowerNode;
+            default:
+                throw new IllegalArgumentException("Unknown direction " + direction);
+        }
+    }
+
+    /**
+     * Checks if this node has a connection in a direction.
+     *
+     * @param direction One of {@link #LEFT}, {@link #UPPER}, {@link #RIGHT} or {@link #LOWER}.
+     * @return true if the next node in the direction is not null.
+     */
+    public boolean hasLink(int direction) {
+        return getNextNode(direction) != null;
+    }
+
     /**
      * Checks if this node has any connections.
      *
@@ -308,7 +394,20 @@ public class TechNode {
     }
 
     public String toString() {
-        StringBuilder builder = new StringBuilder("(");
+        StringBuilder builder = new StringBuilder(NODE_WIDTH + 2);
+        appendTo(builder);
+
+        return builder.toString();
+    }
+
+    /**
+     * Appends the displayed form of this node to a string builder. This is the same text
+     * returned by {@link #toString()}.
+     *
+     * @param builder StringBuilder to append to.
+     */
+    public void appendTo(StringBuilder builder) {
+        builder.append('(');
 
         if (!isUnlocked && canBeUnlocked()) {
             appendUnlock(builder, this.name, this.unlockCost);
@@ -329,12 +428,10 @@ public class TechNode {
             }
         } else if (this instanceof ChoiceNode) {
             appendName(builder, this.name);
-            builder.append(StringUtility.repeat(WarshipConstants.NODE_BLANK, 14));
+            Glyphs.appendBlanks(builder, 14);
         }
 
-        builder.append(")");
-
-        return builder.toString();
+        builder.append(')');
     }
 
     public boolean equals(TechNode node) {
@@ -363,36 +460,32 @@ public class TechNode {
     }
 
     /**
-     * Recursively attaches any connected nodes claiming they are not attached.
+     * Notifies the listener of this node that its state has changed.
      */
-    private void attemptAttachment() {
-        if (this.isAttached) {
-            _attachRecursive(this.nextLeftNode);
-            _attachRecursive(this.nextLowerNode);
-            _attachRecursive(this.nextRightNode);
-            _attachRecursive(this.nextUpperNode);
+    protected void notifyChanged() {
+        if (this.listener != null) {
+            this.listener.nodeChanged(this);
         }
     }
 
-    private void _attachRecursive(TechNode otherNode) {
-        if (otherNode == null) {
-            return;
-        }
-
-        if (!otherNode.isAttached()) {
-            otherNode.attach();
-            _attachRecursive(otherNode.getNextLeftNode());
-            _attachRecursive(otherNode.getNextRightNode());
-            _attachRecursive(otherNode.getNextUpperNode());
-            _attachRecursive(otherNode.getNextLowerNode());
+    /**
+     * Shares attachment with a newly linked node. Nodes registered with the same
+     * attachment groups are joined into one group. Otherwise this node only inherits
+     * the attachment of the linked node.
+     */
+    private void joinAttachment(TechNode otherNode) {
+        if (this.attachmentGroups != null && this.attachmentGroups == otherNode.attachmentGroups) {
+            this.attachmentGroups.union(this.attachmentId, otherNode.attachmentId);
+        } else if (!this.isAttached) {
+            this.isAttached = otherNode.isAttached();
         }
     }
 
     private static void appendMaxUpgrade(StringBuilder builder) {
-        builder.append(WarshipConstants.NODE_BLANK);
+        builder.append(Glyphs.NODE_BLANK);
         builder.append("MAXED");
-        builder.append(WarshipConstants.NODE_BLANK);
-        builder.append(WarshipConstants.NODE_BLANK);
+        builder.append(Glyphs.NODE_BLANK);
+        builder.append(Glyphs.NODE_BLANK);
     }
 
     /**
@@ -401,12 +494,7 @@ public class TechNode {
     private static void appendName(StringBuilder builder, String name) {
         builder.append(name);
         if (name.length() < WarshipConstants.NODE_NAME_MIN_WIDTH) {
-            int spacesNeeded = (WarshipConstants.NODE_NAME_MIN_WIDTH - name.length());
-
-            while (spacesNeeded > 0) {
-                builder.append(WarshipConstants.NODE_BLANK);
-                spacesNeeded--;
-            }
+            Glyphs.appendBlanks(builder, WarshipConstants.NODE_NAME_MIN_WIDTH - name.length());
         }
     }
 
@@ -414,12 +502,7 @@ public class TechNode {
         appendName(builder, id);
 
         int remainingWidth = 14;
-        int spacesNeeded = (remainingWidth - WarshipConstants.NODE_LOCK.length());
-
-        while (spacesNeeded > 0) {
-            builder.append(WarshipConstants.NODE_BLANK);
-            spacesNeeded--;
-        }
+        Glyphs.appendBlanks(builder, remainingWidth - WarshipConstants.NODE_LOCK.length());
 
         builder.append(WarshipConstants.NODE_LOCK);
     }
@@ -429,24 +512,24 @@ public class TechNode {
      */
     private static void appendUnlock(StringBuilder builder, String id, int cost) {
         appendName(builder, id);
-        builder.append(String.format(WarshipConstants.NODE_UNLOCK, cost));
-        builder.append(WarshipConstants.NODE_BLANK);
-        builder.append(WarshipConstants.NODE_BLANK);
+        builder.append(UNLOCK_PREFIX).append(cost).append(UNLOCK_SUFFIX);
+        builder.append(Glyphs.NODE_BLANK);
+        builder.append(Glyphs.NODE_BLANK);
     }
 
     /**
      * Total appended characters: 8
      */
     private static void appendUpgradeInfo(StringBuilder builder, int upgradeCost) {
-        builder.append(WarshipConstants.NODE_UPGRADE_ICON);
+        builder.append(Glyphs.NODE_UPGRADE_ICON);
         builder.append(upgradeCost);
 
         if (upgradeCost < 1000000) {
             // Fill in additional spaces
             if (upgradeCost < 100000) {
-                builder.append(WarshipConstants.NODE_BLANK + WarshipConstants.NODE_BLANK);
+                Glyphs.appendBlanks(builder, 2);
             } else {
-                builder.append(WarshipConstants.NODE_BLANK);
+                builder.append(Glyphs.NODE_BLANK);
             }
         }
     }
@@ -46,6 +46,7 @@ public class UpgradeNode extends TechNode {
             return false;
         } else {
             this.upgradeCounter++;
+            notifyChanged();
             return true;
         }
     }
@@ -0,0 +1,62 @@
+package com.warships.planner;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of {@link UnlockPlanner}: the actions to take in order, and what they cost and
+ * score.
+ */
+public final class Plan {
+
+    private final List<PlanAction> actions;
+    private final double value;
+    private final int unlockCost;
+    private final int upgradeCost;
+    private final boolean complete;
+
+    Plan(List<PlanAction> actions, double value, int unlockCost, int upgradeCost, boolean complete) {
+        this.actions = Collections.unmodifiableList(actions);
+        this.value = value;
+        this.unlockCost = unlockCost;
+        this.upgradeCost = upgradeCost;
+        this.complete = complete;
+    }
+
+    /**
+     * Gets the actions of the plan. Unlocks come first, each next to a node that is
+     * already unlocked, followed by upgrades.
+     *
+     * @return the actions, in order.
+     */
+    public List<PlanAction> getActions() {
+        return this.actions;
+    }
+
+    /**
+     * Gets the value score gained by the plan.
+     *
+     * @return the value.
+     */
+    public double getValue() {
+        return this.value;
+    }
+
+    public int getUnlockCost() {
+        return this.unlockCost;
+    }
+
+    public int getUpgradeCost() {
+        return this.upgradeCost;
+    }
+
+    /**
+     * Checks if the search finished. A plan from a search that ran out of time is the
+     * best one found so far.
+     *
+     * @return true if the plan is the best possible one.
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+}
@@ -0,0 +1,64 @@
+package com.warships.planner;
+
+/**
+ * A single step of a {@link Plan}. The text form of an action is the command that
+ * performs it in the interactive mode.
+ */
+public final class PlanAction {
+
+    public enum Type {
+        UNLOCK,
+        UPGRADE
+    }
+
+    private final Type type;
+    private final int x;
+    private final int y;
+    private final int cost;
+    private final int selection;
+
+    PlanAction(Type type, int x, int y, int cost, int selection) {
+        this.type = type;
+        this.x = x;
+        this.y = y;
+        this.cost = cost;
+        this.selection = selection;
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+
+    public int getX() {
+        return this.x;
+    }
+
+    public int getY() {
+        return this.y;
+    }
+
+    /**
+     * Gets the cost of the action, in unlock points for unlocks and in resources for
+     * upgrades.
+     *
+     * @return the cost.
+     */
+    public int getCost() {
+        return this.cost;
+    }
+
+    /**
+     * Gets the option to pick when unlocking a choice node. Options are numbered from 0,
+     * as {@link com.warships.nodes.ChoiceNode#unlock(int)} takes them.
+     *
+     * @return the option index, or -1 if the action does not unlock a choice node.
+     */
+    public int getSelection() {
+        return this.selection;
+    }
+
+    @Override
+    public String toString() {
+        return this.type + " " + this.x + " " + this.y + (this.selection >= 0 ? " " + this.selection : "");
+    }
+}
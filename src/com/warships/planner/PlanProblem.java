@@ -0,0 +1,298 @@
+package com.warships.planner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+import com.warships.enums.NodeType;
+import com.warships.nodes.ChoiceNode;
+import com.warships.nodes.EngineNode;
+import com.warships.nodes.TechNode;
+import com.warships.nodes.UpgradeNode;
+import com.warships.tree.TechTree;
+
+/**
+ * Snapshot of a tree as primitive arrays for {@link UnlockPlanner}. Cells are indexed by
+ * packed position, see {@link TechTree#packPosition(int, int)}, and sets of cells are
+ * {@link BitSet}s, so trees of any width can be planned for. The sets of a problem are never changed once it is built.
+ */
+final class PlanProblem {
+
+    private static final int UPGRADE_LEVELS = 4;
+
+    final int cells;
+    final BitSet present;
+    final BitSet unlocked;
+    final BitSet[] links;
+    final int[] unlockCost;
+    final double[] unlockValue;
+
+    /**
+     * Option picked when unlocking each choice node, or -1 for other nodes.
+     */
+    final int[] selection;
+
+    /**
+     * Locked cells ordered by unlock value per cost, best first.
+     */
+    final int[] unlockOrder;
+
+    // Upgrade levels that can be bought, ordered by value per cost, best first
+    private final int[] itemCell;
+    private final int[] itemLevel;
+    private final int[] itemCost;
+    private final double[] itemValue;
+    private final int[] currentLevel;
+
+    PlanProblem(TechTree tree, PlanWeights weights) {
+        int cells = tree.getPositionCount();
+
+        this.cells = cells;
+        this.present = new BitSet(cells);
+        this.unlocked = new BitSet(cells);
+        this.links = new BitSet[cells];
+        this.unlockCost = new int[cells];
+        this.unlockValue = new double[cells];
+        this.selection = new int[cells];
+        this.currentLevel = new int[cells];
+
+        List<int[]> items = new ArrayList<>();
+        List<Double> itemValues = new ArrayList<>();
+
+        for (int cell = 0; cell < cells; cell++) {
+            TechNode node = tree.getNode(cell);
+            this.links[cell] = new BitSet(cells);
+            this.selection[cell] = -1;
+            if (node == null) {
+                continue;
+            }
+
+            this.present.set(cell);
+            if (node.isUnlocked()) {
+                this.unlocked.set(cell);
+            }
+
+            for (int direction = 0; direction < TechNode.DIRECTIONS; direction++) {
+                if (node.hasLink(direction)) {
+                    this.links[cell].set(TechTree.neighborPosition(cell, direction));
+                }
+            }
+
+            PlanWeights.Category category = categoryOf(node);
+            this.unlockCost[cell] = node.getUnlockCost();
+            this.unlockValue[cell] = weights.getUnlockValue(category);
+            if (node instanceof ChoiceNode) {
+                this.selection[cell] = largestOption((ChoiceNode) node);
+            }
+
+            double upgradeValue = weights.getUpgradeValue(category);
+            if (node instanceof UpgradeNode && upgradeValue > 0.0) {
+                UpgradeNode upgradeNode = (UpgradeNode) node;
+                int level = upgradeNode.isUnlocked() ? upgradeNode.getLevel() - 1 : upgradeNode.getLevel();
+                this.currentLevel[cell] = level;
+
+                for (; level < UPGRADE_LEVELS; level++) {
+                    items.add(new int[] {cell, level, upgradeNode.getUpgradeCost(level)});
+                    itemValues.add(upgradeValue);
+                }
+            }
+        }
+
+        // Order upgrade levels by value per cost. Later levels of a node never cost less,
+        // so they always follow the earlier ones.
+        Integer[] sorted = new Integer[items.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, Comparator.<Integer>comparingDouble(i -> -itemValues.get(i) / items.get(i)[2])
+                .thenComparingInt(i -> items.get(i)[1])
+                .thenComparingInt(i -> items.get(i)[0]));
+
+        this.itemCell = new int[sorted.length];
+        this.itemLevel = new int[sorted.length];
+        this.itemCost = new int[sorted.length];
+        this.itemValue = new double[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            int[] item = items.get(sorted[i]);
+            this.itemCell[i] = item[0];
+            this.itemLevel[i] = item[1];
+            this.itemCost[i] = item[2];
+            this.itemValue[i] = itemValues.get(sorted[i]);
+        }
+
+        this.unlockOrder = orderUnlocks();
+    }
+
+    static int xOf(int cell) {
+        return TechTree.unpackX(cell);
+    }
+
+    static int yOf(int cell) {
+        return TechTree.unpackY(cell);
+    }
+
+    /**
+     * Gets the locked cells linked to a set of unlocked cells.
+     *
+     * @param unlockedCells The unlocked cells.
+     * @return the frontier.
+     */
+    BitSet frontierOf(BitSet unlockedCells) {
+        BitSet frontier = new BitSet(this.cells);
+        for (int cell = unlockedCells.nextSetBit(0); cell >= 0; cell = unlockedCells.nextSetBit(cell + 1)) {
+            frontier.or(this.links[cell]);
+        }
+        frontier.and(this.present);
+        frontier.andNot(unlockedCells);
+        return frontier;
+    }
+
+    /**
+     * Picks the frontier cell with the best unlock value per cost that fits the budget.
+     *
+     * @return the cell, or -1 if no frontier cell fits.
+     */
+    int pick(BitSet frontier, int budget) {
+        for (int cell : this.unlockOrder) {
+            if (frontier.get(cell) && this.unlockCost[cell] <= budget) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Optimistic unlock value of a set of cells: a fractional knapsack that may take part
+     * of a node.
+     */
+    double unlockBound(BitSet allowed, int budget) {
+        double bound = 0.0;
+
+        for (int cell : this.unlockOrder) {
+            if (!allowed.get(cell)) {
+                continue;
+            }
+
+            int cost = this.unlockCost[cell];
+            if (cost <= budget) {
+                bound += this.unlockValue[cell];
+                budget -= cost;
+            } else {
+                bound += this.unlockValue[cell] * budget / cost;
+                break;
+            }
+        }
+
+        return bound;
+    }
+
+    /**
+     * Optimistic upgrade value of a set of cells: a fractional knapsack over their levels.
+     */
+    double upgradeBound(BitSet cells, int budget) {
+        double bound = 0.0;
+
+        for (int i = 0; i < this.itemCell.length; i++) {
+            if (!cells.get(this.itemCell[i])) {
+                continue;
+            }
+
+            if (this.itemCost[i] <= budget) {
+                bound += this.itemValue[i];
+                budget -= this.itemCost[i];
+            } else {
+                bound += this.itemValue[i] * budget / this.itemCost[i];
+                break;
+            }
+        }
+
+        return bound;
+    }
+
+    /**
+     * Buys upgrade levels of unlocked cells in order of value per cost while the budget
+     * lasts. A level that does not fit also rules out every later level of its node.
+     *
+     * @param cells The unlocked cells.
+     * @param budget Upgrade budget.
+     * @param nextLevel Scratch space of at least one entry per cell.
+     * @param actions List to add the bought levels to, or <code>null</code>.
+     * @return the value of the bought levels.
+     */
+    double fillUpgrades(BitSet cells, int budget, int[] nextLevel, List<PlanAction> actions) {
+        System.arraycopy(this.currentLevel, 0, nextLevel, 0, this.currentLevel.length);
+        double value = 0.0;
+
+        for (int i = 0; i < this.itemCell.length; i++) {
+            int cell = this.itemCell[i];
+            if (!cells.get(cell) || nextLevel[cell] != this.itemLevel[i] || this.itemCost[i] > budget) {
+                continue;
+            }
+
+            budget -= this.itemCost[i];
+            value += this.itemValue[i];
+            nextLevel[cell]++;
+
+            if (actions != null) {
+                actions.add(new PlanAction(PlanAction.Type.UPGRADE, xOf(cell), yOf(cell), this.itemCost[i], -1));
+            }
+        }
+
+        return value;
+    }
+
+    private int[] orderUnlocks() {
+        List<Integer> locked = new ArrayList<>();
+        for (int cell = this.present.nextSetBit(0); cell >= 0; cell = this.present.nextSetBit(cell + 1)) {
+            if (!this.unlocked.get(cell)) {
+                locked.add(cell);
+            }
+        }
+
+        locked.sort(Comparator.<Integer>comparingDouble(cell -> -this.unlockValue[cell] / Math.max(1, this.unlockCost[cell]))
+                .thenComparingInt(cell -> cell));
+
+        return locked.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Picks the option of a choice node to unlock it with. Every option scores the
+     * value of a choice node, so the one granting the largest amount is picked, the
+     * first one on a tie.
+     */
+    private static int largestOption(ChoiceNode node) {
+        int best = 0;
+        for (int i = 1; i < 3; i++) {
+            if (node.option(i).getValue() > node.option(best).getValue()) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static PlanWeights.Category categoryOf(TechNode node) {
+        if (node instanceof EngineNode) {
+            return PlanWeights.Category.ENGINE;
+        } else if (node instanceof ChoiceNode) {
+            return PlanWeights.Category.CHOICE;
+        }
+
+        NodeType type = NodeType.of(node.getName());
+        if (type == null) {
+            return PlanWeights.Category.BASE;
+        }
+
+        switch (type) {
+            case TROOP:
+                return PlanWeights.Category.TROOP;
+            case DEFENSE:
+                return PlanWeights.Category.DEFENSE;
+            case GUNBOAT_ABILITY:
+                return PlanWeights.Category.GUNBOAT_ABILITY;
+            default:
+                return PlanWeights.Category.BONUS;
+        }
+    }
+}
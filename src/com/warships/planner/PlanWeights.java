@@ -0,0 +1,96 @@
+package com.warships.planner;
+
+import java.util.Arrays;
+
+/**
+ * Immutable value scores used by {@link UnlockPlanner}. Every category of node has a
+ * value for being unlocked and a value for each upgrade level bought.
+ */
+public final class PlanWeights {
+
+    /**
+     * Categories of nodes that are scored separately.
+     */
+    public enum Category {
+        TROOP,
+        DEFENSE,
+        GUNBOAT_ABILITY,
+        BONUS,
+        /** The gunboat and landing craft nodes. */
+        BASE,
+        CHOICE,
+        ENGINE
+    }
+
+    /**
+     * Default weights. Troops are valued above defenses and gunboat abilities, bonus nodes
+     * below them, and engines highest since they open the next room.
+     */
+    public static final PlanWeights DEFAULT = new PlanWeights(
+            new double[] {3.0, 2.0, 2.0, 1.5, 0.0, 1.0, 5.0},
+            new double[] {1.0, 1.0, 1.0, 1.0, 1.0, 0.0, 0.0});
+
+    private final double[] unlockValues;
+    private final double[] upgradeValues;
+
+    private PlanWeights(double[] unlockValues, double[] upgradeValues) {
+        this.unlockValues = unlockValues;
+        this.upgradeValues = upgradeValues;
+    }
+
+    /**
+     * Gets the value of unlocking a node.
+     *
+     * @param category Category of the node.
+     * @return the value.
+     */
+    public double getUnlockValue(Category category) {
+        return this.unlockValues[category.ordinal()];
+    }
+
+    /**
+     * Gets the value of buying one upgrade level of a node.
+     *
+     * @param category Category of the node.
+     * @return the value.
+     */
+    public double getUpgradeValue(Category category) {
+        return this.upgradeValues[category.ordinal()];
+    }
+
+    /**
+     * Creates a copy of these weights with a different unlock value for a category.
+     *
+     * @param category The category.
+     * @param value Value, not negative.
+     * @return The new weights.
+     */
+    public PlanWeights withUnlockValue(Category category, double value) {
+        double[] copy = Arrays.copyOf(this.unlockValues, this.unlockValues.length);
+        copy[category.ordinal()] = checkValue(category, value);
+
+        return new PlanWeights(copy, this.upgradeValues);
+    }
+
+    /**
+     * Creates a copy of these weights with a different upgrade value for a category.
+     *
+     * @param category The category.
+     * @param value Value per upgrade level, not negative.
+     * @return The new weights.
+     */
+    public PlanWeights withUpgradeValue(Category category, double value) {
+        double[] copy = Arrays.copyOf(this.upgradeValues, this.upgradeValues.length);
+        copy[category.ordinal()] = checkValue(category, value);
+
+        return new PlanWeights(this.unlockValues, copy);
+    }
+
+    private static double checkValue(Category category, double value) {
+        if (!(value >= 0.0) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Invalid value for " + category + ": " + value);
+        }
+
+        return value;
+    }
+}
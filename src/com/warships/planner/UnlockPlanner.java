@@ -0,0 +1,336 @@
+package com.warships.planner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.warships.tree.TechTree;
+
+/**
+ * Plans which nodes of a tree to unlock and upgrade to gain the most value within a
+ * budget. Unlocks are paid from an unlock budget and upgrades from a separate resource
+ * budget, matching the two currencies of the game.
+ * <br>
+ * The sets of nodes to unlock are searched with branch-and-bound: every step either
+ * unlocks a node next to the unlocked part of the tree or rules it out, and branches
+ * whose optimistic value cannot beat the best plan found so far are skipped. For each
+ * set, upgrades are bought in order of value per cost. The top-level branches are
+ * searched in parallel, sharing the best value found so far.
+ * <br>
+ * A planner may be shared by any number of threads. Planners on the common pool are
+ * cheap to create and need not be closed.
+ */
+public class UnlockPlanner implements AutoCloseable {
+
+    /**
+     * Number of search steps between checks of the time budget.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final PlanWeights weights;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    /**
+     * Creates a planner with its own pool of worker threads, shut down on close.
+     *
+     * @param weights Value scores of the nodes.
+     * @param threads Number of worker threads to search with.
+     */
+    public UnlockPlanner(PlanWeights weights, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+
+        this.weights = weights;
+        this.pool = new ForkJoinPool(threads);
+        this.ownsPool = true;
+    }
+
+    /**
+     * Creates a planner that searches on the common pool.
+     *
+     * @param weights Value scores of the nodes.
+     */
+    public UnlockPlanner(PlanWeights weights) {
+        this.weights = weights;
+        this.pool = ForkJoinPool.commonPool();
+        this.ownsPool = false;
+    }
+
+    public UnlockPlanner() {
+        this(PlanWeights.DEFAULT);
+    }
+
+    /**
+     * Plans the most valuable unlocks and upgrades for a tree. The tree is not changed.
+     *
+     * @param tree The tree to plan for.
+     * @param unlockBudget Total unlock cost that may be spent.
+     * @param upgradeBudget Total upgrade cost that may be spent.
+     * @param timeBudgetMillis Time after which the best plan found so far is returned.
+     * @return The plan.
+     */
+    public Plan plan(TechTree tree, int unlockBudget, int upgradeBudget, long timeBudgetMillis) {
+        if (unlockBudget < 0 || upgradeBudget < 0) {
+            throw new IllegalArgumentException("Budgets cannot be negative.");
+        }
+
+        PlanProblem problem = tree.readTree(snapshot -> new PlanProblem(snapshot, this.weights));
+        long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+        Shared shared = new Shared(problem, unlockBudget, upgradeBudget, deadline);
+
+        // The plan that unlocks nothing
+        Search root = new Search(shared);
+        root.evaluate(problem.unlocked, 0, 0.0, 0);
+
+        // Each top-level branch unlocks one frontier node and rules out the ones before it
+        List<SearchTask> tasks = new ArrayList<>();
+        BitSet frontier = problem.frontierOf(problem.unlocked);
+        BitSet forbidden = new BitSet(problem.cells);
+
+        for (int cell : problem.unlockOrder) {
+            if (frontier.get(cell) && problem.unlockCost[cell] <= unlockBudget) {
+                tasks.add(new SearchTask(shared, cell, (BitSet) forbidden.clone()));
+                forbidden.set(cell);
+            }
+        }
+
+        Search best = root;
+        for (Search search : this.pool.invoke(new ForkAll(tasks))) {
+            if (search.bestValue > best.bestValue) {
+                best = search;
+            }
+        }
+
+        return best.toPlan(!shared.timedOut.get());
+    }
+
+    @Override
+    public void close() {
+        if (this.ownsPool) {
+            this.pool.shutdown();
+        }
+    }
+
+    /**
+     * State shared by every branch of one planning run.
+     */
+    private static final class Shared {
+
+        private final PlanProblem problem;
+        private final int unlockBudget;
+        private final int upgradeBudget;
+        private final long deadline;
+        private final AtomicLong incumbent;
+        private final AtomicBoolean timedOut;
+
+        private Shared(PlanProblem problem, int unlockBudget, int upgradeBudget, long deadline) {
+            this.problem = problem;
+            this.unlockBudget = unlockBudget;
+            this.upgradeBudget = upgradeBudget;
+            this.deadline = deadline;
+            // Values are never negative, so their bits order the same way as the values
+            this.incumbent = new AtomicLong(Double.doubleToLongBits(0.0));
+            this.timedOut = new AtomicBoolean(false);
+        }
+
+        private double incumbent() {
+            return Double.longBitsToDouble(this.incumbent.get());
+        }
+
+        private void offer(double value) {
+            long bits = Double.doubleToLongBits(value);
+            long current;
+            do {
+                current = this.incumbent.get();
+            } while (bits > current && !this.incumbent.compareAndSet(current, bits));
+        }
+    }
+
+    /**
+     * Depth-first search over one branch, keeping the best plan found in it.
+     */
+    private static final class Search {
+
+        private final Shared shared;
+        private final PlanProblem problem;
+        private final int[] order;
+        private final int[] nextLevel;
+        private long steps;
+
+        private double bestValue;
+        private BitSet bestUnlocked;
+        private int[] bestOrder;
+        private int bestUnlockCost;
+
+        private Search(Shared shared) {
+            this.shared = shared;
+            this.problem = shared.problem;
+            this.order = new int[this.problem.cells];
+            this.nextLevel = new int[this.problem.cells];
+            this.bestValue = -1.0;
+            this.bestOrder = new int[0];
+        }
+
+        /**
+         * Searches the plans that unlock a set of nodes and more. The sets passed in are
+         * never changed.
+         *
+         * @param upgradeBound Optimistic upgrade value of the nodes that are not ruled out.
+         */
+        private void search(BitSet unlocked, BitSet forbidden, BitSet frontier, int spent, double value,
+                double upgradeBound, int depth) {
+            if (this.shared.timedOut.get()) {
+                return;
+            }
+            if (++this.steps % CHECK_INTERVAL == 0 && System.nanoTime() > this.shared.deadline) {
+                this.shared.timedOut.set(true);
+                return;
+            }
+
+            int remaining = this.shared.unlockBudget - spent;
+
+            // Every present node that is neither ruled out nor unlocked may still be unlocked
+            BitSet allowed = (BitSet) this.problem.present.clone();
+            allowed.andNot(forbidden);
+            allowed.andNot(unlocked);
+
+            double bound = value
+                    + this.problem.unlockBound(allowed, remaining)
+                    + upgradeBound;
+            if (bound <= this.shared.incumbent()) {
+                return;
+            }
+
+            int cell = this.problem.pick(frontier, remaining);
+            if (cell < 0) {
+                return;
+            }
+
+            // Unlock the node
+            BitSet nextUnlocked = (BitSet) unlocked.clone();
+            nextUnlocked.set(cell);
+            int nextSpent = spent + this.problem.unlockCost[cell];
+            double nextValue = value + this.problem.unlockValue[cell];
+            this.order[depth] = cell;
+
+            evaluate(nextUnlocked, nextSpent, nextValue, depth + 1);
+            BitSet nextFrontier = (BitSet) frontier.clone();
+            nextFrontier.or(this.problem.links[cell]);
+            nextFrontier.and(this.problem.present);
+            nextFrontier.andNot(nextUnlocked);
+            nextFrontier.andNot(forbidden);
+            // Unlocking keeps the same nodes reachable, so the upgrade bound is passed on
+            search(nextUnlocked, forbidden, nextFrontier, nextSpent, nextValue, upgradeBound, depth + 1);
+
+            // Rule the node out
+            BitSet nextForbidden = (BitSet) forbidden.clone();
+            nextForbidden.set(cell);
+            BitSet remainingFrontier = (BitSet) frontier.clone();
+            remainingFrontier.clear(cell);
+            search(unlocked, nextForbidden, remainingFrontier, spent, value, upgradeBound(nextForbidden), depth);
+        }
+
+        private void evaluate(BitSet unlocked, int spent, double value, int depth) {
+            double total = value + this.problem.fillUpgrades(unlocked, this.shared.upgradeBudget, this.nextLevel, null);
+
+            if (total > this.bestValue) {
+                this.bestValue = total;
+                this.bestUnlocked = unlocked;
+                this.bestOrder = Arrays.copyOf(this.order, depth);
+                this.bestUnlockCost = spent;
+                this.shared.offer(total);
+            }
+        }
+
+        /**
+         * Optimistic upgrade value of the nodes that are not ruled out. It only changes when
+         * a node is ruled out, so each branch computes it once and passes it on.
+         */
+        private double upgradeBound(BitSet forbidden) {
+            BitSet reachable = (BitSet) this.problem.present.clone();
+            reachable.andNot(forbidden);
+            return this.problem.upgradeBound(reachable, this.shared.upgradeBudget);
+        }
+
+        private Plan toPlan(boolean complete) {
+            List<PlanAction> actions = new ArrayList<>();
+
+            for (int cell : this.bestOrder) {
+                actions.add(new PlanAction(PlanAction.Type.UNLOCK, PlanProblem.xOf(cell), PlanProblem.yOf(cell),
+                        this.problem.unlockCost[cell], this.problem.selection[cell]));
+            }
+
+            List<PlanAction> upgrades = new ArrayList<>();
+            this.problem.fillUpgrades(this.bestUnlocked, this.shared.upgradeBudget, this.nextLevel, upgrades);
+
+            int upgradeCost = 0;
+            for (PlanAction upgrade : upgrades) {
+                upgradeCost += upgrade.getCost();
+            }
+            actions.addAll(upgrades);
+
+            return new Plan(actions, Math.max(this.bestValue, 0.0), this.bestUnlockCost, upgradeCost, complete);
+        }
+    }
+
+    private static final class SearchTask extends RecursiveTask<Search> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Shared shared;
+        private final int cell;
+        private final BitSet forbidden;
+
+        private SearchTask(Shared shared, int cell, BitSet forbidden) {
+            this.shared = shared;
+            this.cell = cell;
+            this.forbidden = forbidden;
+        }
+
+        @Override
+        protected Search compute() {
+            PlanProblem problem = this.shared.problem;
+            Search search = new Search(this.shared);
+
+            BitSet unlocked = (BitSet) problem.unlocked.clone();
+            unlocked.set(this.cell);
+            int spent = problem.unlockCost[this.cell];
+            double value = problem.unlockValue[this.cell];
+            BitSet frontier = problem.frontierOf(unlocked);
+            frontier.andNot(this.forbidden);
+
+            search.order[0] = this.cell;
+            search.evaluate(unlocked, spent, value, 1);
+            search.search(unlocked, this.forbidden, frontier, spent, value, search.upgradeBound(this.forbidden), 1);
+
+            return search;
+        }
+    }
+
+    private static final class ForkAll extends RecursiveTask<List<Search>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<SearchTask> tasks;
+
+        private ForkAll(List<SearchTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected List<Search> compute() {
+            List<Search> results = new ArrayList<>(this.tasks.size());
+            for (SearchTask task : invokeAll(this.tasks)) {
+                results.add(task.join());
+            }
+            return results;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import com.warships.utils.RandomEngine;
+
 public class DefenseRaffle extends Raffle {
 
     public static final String SNIPER_TOWER = "Sniper Tower";
@@ -19,14 +21,21 @@ public class DefenseRaffle extends Raffle {
     public static final String BOOM_MINE = "Boom Mine";
     public static final String SHOCK_MINE = "Shock Mine";
 
-    public DefenseRaffle() {
-        super.initialize(this.getClass());
-    }
+    /**
+     * Every ticket of this raffle type.
+     */
+    public static final TicketTable TICKETS = TicketTable.of(DefenseRaffle.class);
 
     private static final List<String> OVERPOWERED_DEFENSES = Collections.unmodifiableList(Arrays.asList(
        SHOCK_LAUNCHER, ROCKET_LAUNCHER, BOOM_CANNON, SHOCK_MINE
     ));
 
+    private static final long OVERPOWERED_MASK = TICKETS.compileFilter(OVERPOWERED_DEFENSES);
+
+    public DefenseRaffle(RandomEngine random) {
+        super(TICKETS, random);
+    }
+
     /**
      * Gets and removes a defense with preference for non-challenging options. Nodes that are not
      * prioritized can be found in the {@link #OVERPOWERED_DEFENSES} variable.
@@ -34,6 +43,6 @@ public class DefenseRaffle extends Raffle {
      * @return A defense name which is not overpowered.
      */
     public String removeNonOverpowered() {
-        return super.removeWithFilter(OVERPOWERED_DEFENSES);
+        return super.removeWithFilter(OVERPOWERED_MASK);
     }
 }
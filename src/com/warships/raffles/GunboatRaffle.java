@@ -1,5 +1,7 @@
 package com.warships.raffles;
 
+import com.warships.utils.RandomEngine;
+
 public class GunboatRaffle extends Raffle {
 
     public static final String FLARE = "Flare";
@@ -10,7 +12,12 @@ public class GunboatRaffle extends Raffle {
     public static final String CRITTERS = "Critters";
     public static final String SMOKE_SCREEN = "Smoke Screen";
 
-    public GunboatRaffle() {
-        super.initialize(this.getClass());
+    /**
+     * Every ticket of this raffle type.
+     */
+    public static final TicketTable TICKETS = TicketTable.of(GunboatRaffle.class);
+
+    public GunboatRaffle(RandomEngine random) {
+        super(TICKETS, random);
     }
 }
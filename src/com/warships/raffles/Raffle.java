@@ -1,52 +1,44 @@
 package com.warships.raffles;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
-import com.warships.utils.MathUtility;
+import com.warships.utils.RandomEngine;
 
 /**
  * The super class of all raffle objects. Raffles
  * are created using accessible <code>static String</code>
- * variables declared within the subclass.
+ * variables declared within the subclass, collected once per
+ * subclass into a shared {@link TicketTable}.
+ * <br>
+ * Tickets are identified by their index in the ticket table. The remaining tickets are
+ * kept in a pool that is drawn from by swapping the last ticket into the drawn slot, and
+ * mirrored in a bit mask so that filtered draws are a masked pick.
  */
 public abstract class Raffle {
 
-    private final List<String> tickets;
-    private final List<String> winners;
-
-    protected Raffle() {
-        this.tickets = new ArrayList<>();
-        this.winners = new ArrayList<>();
-    }
+    private final TicketTable table;
+    private final int[] pool;
+    private final int[] poolSlots;
+    private final int[] winners;
+    private final RandomEngine random;
+    private int remaining;
+    private long remainingMask;
+    private int winnerCount;
 
     /**
-     * Initializes the raffle using all variables within the class containing the following
-     * signature:
-     * <pre>public static final String</pre>
-     *
-     * @param clazz The subclass to initialize.
+     * @param table Tickets of this raffle type.
+     * @param random Random engine used for every draw made from this raffle.
      */
-    protected void initialize(Class<? extends Raffle> clazz) {
-        // Get all static fields from the class
-        List<Field> fields = Arrays.stream(clazz.getDeclaredFields()).filter(f ->
-                Modifier.isStatic(f.getModifiers())).collect(Collectors.toList());
-
-        for (Field field : fields) {
-            try {
-                Object value = field.get(clazz);
-                if (value instanceof String) {
-                    String strval = (String) value;
-                    this.tickets.add(strval);
-                }
-            } catch (IllegalAccessException ex) {
-                // Do nothing, no need to add inaccessible variable
-            }
-        }
+    protected Raffle(TicketTable table, RandomEngine random) {
+        this.table = table;
+        this.pool = table.newPool();
+        this.poolSlots = table.newPool();
+        this.winners = new int[table.size()];
+        this.random = random;
+        this.remaining = table.size();
+        this.remainingMask = table.fullMask();
+        this.winnerCount = 0;
     }
 
     /**
@@ -55,9 +47,9 @@ public abstract class Raffle {
      * @param ticket Name of the ticket to remove.
      */
     public void remove(String ticket) {
-        if (this.tickets.contains(ticket)) {
-            this.winners.add(ticket);
-            this.tickets.remove(ticket);
+        int index = this.table.indexOf(ticket);
+        if (index >= 0 && this.poolSlots[index] >= 0) {
+            draw(index);
         }
     }
 
@@ -67,7 +59,12 @@ public abstract class Raffle {
      * @return the list of winners.
      */
     public List<String> winners() {
-        return new ArrayList<>(this.winners);
+        List<String> result = new ArrayList<>(this.winnerCount);
+        for (int i = 0; i < this.winnerCount; i++) {
+            result.add(this.table.getName(this.winners[i]));
+        }
+
+        return result;
     }
 
     /**
@@ -76,10 +73,10 @@ public abstract class Raffle {
      * @return the selected ticket.
      */
     public String getRandomWinner() {
-        int max = this.winners.size() - 1;
-        int randomIndex = MathUtility.random(0, max);
+        int max = this.winnerCount - 1;
+        int randomIndex = this.random.random(0, max);
 
-        return this.winners.get(randomIndex);
+        return this.table.getName(this.winners[randomIndex]);
     }
 
     /**
@@ -88,7 +85,7 @@ public abstract class Raffle {
      * @return false if the raffle has at least one ticket.
      */
     public boolean isEmpty() {
-        return this.tickets.isEmpty();
+        return this.remaining == 0;
     }
 
     /**
@@ -98,7 +95,8 @@ public abstract class Raffle {
      * @return true if the raffle has not selected the ticket.
      */
     public boolean contains(String ticket) {
-        return this.tickets.contains(ticket);
+        int index = this.table.indexOf(ticket);
+        return index >= 0 && this.poolSlots[index] >= 0;
     }
 
     /**
@@ -107,13 +105,10 @@ public abstract class Raffle {
      * @return the removed ticket.
      */
     public String removeRandom() {
-        int max = this.tickets.size() - 1;
-        int randomIndex = MathUtility.random(0, max);
+        int max = this.remaining - 1;
+        int randomIndex = this.random.random(0, max);
 
-        String result = this.tickets.remove(randomIndex);
-        this.winners.add(result);
-
-        return result;
+        return draw(this.pool[randomIndex]);
     }
 
     /**
@@ -122,7 +117,12 @@ public abstract class Raffle {
      * @return The remaining tickets.
      */
     public List<String> tickets() {
-        return new ArrayList<>(this.tickets);
+        List<String> result = new ArrayList<>(this.remaining);
+        for (int i = 0; i < this.remaining; i++) {
+            result.add(this.table.getName(this.pool[i]));
+        }
+
+        return result;
     }
 
     /**
@@ -132,21 +132,52 @@ public abstract class Raffle {
      * @return The removed ticket.
      */
     public String removeWithFilter(List<String> unwanted) {
-        // Filter out the unwanted items
-        List<String> wantedItems = this.tickets().stream().filter((str) ->
-            !unwanted.contains(str)
-        ).collect(Collectors.toList());
+        return removeWithFilter(this.table.compileFilter(unwanted));
+    }
 
-        if (!wantedItems.isEmpty()) {
+    /**
+     * Prioritizes a random ticket that is not part of a compiled filter.
+     *
+     * @param unwantedMask Filter created with {@link TicketTable#compileFilter(List)}.
+     * @return The removed ticket.
+     */
+    protected String removeWithFilter(long unwantedMask) {
+        long wanted = this.remainingMask & ~unwantedMask;
+
+        if (wanted != 0L) {
             // We have available choices, pick one at random
-            int selectedIndex = MathUtility.random(0, wantedItems.size()-1);
-            String result = wantedItems.get(selectedIndex);
+            int selected = this.random.random(0, Long.bitCount(wanted) - 1);
 
-            this.remove(result);
-            return result;
+            // Skip to the selected set bit
+            for (int i = 0; i < selected; i++) {
+                wanted &= wanted - 1;
+            }
+
+            return draw(Long.numberOfTrailingZeros(wanted));
         } else {
             // There are no other options to pull, use the standard procedure
             return this.removeRandom();
         }
     }
+
+    /**
+     * Moves a remaining ticket to the winners.
+     *
+     * @param index Table index of the ticket.
+     * @return the name of the ticket.
+     */
+    private String draw(int index) {
+        int slot = this.poolSlots[index];
+        int last = this.pool[--this.remaining];
+
+        // Swap the last remaining ticket into the drawn slot
+        this.pool[slot] = last;
+        this.poolSlots[last] = slot;
+        this.poolSlots[index] = -1;
+        this.remainingMask &= ~(1L << index);
+
+        this.winners[this.winnerCount++] = index;
+
+        return this.table.getName(index);
+    }
 }
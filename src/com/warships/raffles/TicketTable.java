@@ -0,0 +1,139 @@
+package com.warships.raffles;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable table of the tickets of one raffle type. Each raffle subclass builds its
+ * table once when the class is loaded; every raffle instance of that type shares it and
+ * only copies the initial ticket pool.
+ */
+public final class TicketTable {
+
+    /**
+     * Maximum number of tickets a table can hold, one per bit of a filter mask.
+     */
+    public static final int MAX_TICKETS = Long.SIZE;
+
+    /**
+     * Creates a table from all variables within a class containing the following
+     * signature:
+     * <pre>public static final String</pre>
+     *
+     * @param clazz The raffle class to read tickets from.
+     * @return the ticket table.
+     */
+    public static TicketTable of(Class<? extends Raffle> clazz) {
+        List<String> tickets = new ArrayList<>();
+
+        for (Field field : clazz.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+
+            try {
+                Object value = field.get(null);
+                if (value instanceof String) {
+                    tickets.add((String) value);
+                }
+            } catch (IllegalAccessException ex) {
+                // Do nothing, no need to add inaccessible variable
+            }
+        }
+
+        return new TicketTable(tickets.toArray(new String[0]));
+    }
+
+    private final String[] names;
+    private final Map<String, Integer> indexByName;
+    private final int[] initialPool;
+
+    private TicketTable(String[] names) {
+        if (names.length > MAX_TICKETS) {
+            throw new IllegalStateException("A raffle cannot hold more than " + MAX_TICKETS + " tickets.");
+        }
+
+        this.names = names;
+        this.initialPool = new int[names.length];
+
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            this.initialPool[i] = i;
+            index.put(names[i], i);
+        }
+        this.indexByName = Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Gets the number of tickets in the table.
+     *
+     * @return the number of tickets.
+     */
+    public int size() {
+        return this.names.length;
+    }
+
+    /**
+     * Gets the name of a ticket.
+     *
+     * @param index Index of the ticket.
+     * @return the name.
+     */
+    public String getName(int index) {
+        return this.names[index];
+    }
+
+    /**
+     * Gets the index of a ticket.
+     *
+     * @param name Name of the ticket.
+     * @return the index, or -1 if the table holds no such ticket.
+     */
+    public int indexOf(String name) {
+        Integer index = this.indexByName.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Compiles a list of tickets into a filter mask. Names that are not part of this
+     * table are ignored.
+     *
+     * @param tickets Names of the tickets to include.
+     * @return The filter mask.
+     */
+    public long compileFilter(List<String> tickets) {
+        long mask = 0L;
+
+        for (String ticket : tickets) {
+            int index = indexOf(ticket);
+            if (index >= 0) {
+                mask |= 1L << index;
+            }
+        }
+
+        return mask;
+    }
+
+    /**
+     * Creates a new pool holding every ticket index in order.
+     *
+     * @return a copy of the initial pool.
+     */
+    int[] newPool() {
+        return this.initialPool.clone();
+    }
+
+    /**
+     * Gets the mask holding every ticket of the table.
+     *
+     * @return the full mask.
+     */
+    long fullMask() {
+        return this.names.length == MAX_TICKETS ? -1L : (1L << this.names.length) - 1;
+    }
+}
@@ -6,6 +6,8 @@ import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.warships.utils.RandomEngine;
+
 public class TroopRaffle extends Raffle {
 
     public static final String RIFLEMAN = "Rifleman";
@@ -27,6 +29,11 @@ public class TroopRaffle extends Raffle {
     public static final String PVT_BULLIT = "Pvt. Bullit";
     public static final String SGT_BRICK = "Sgt. Brick";
 
+    /**
+     * Every ticket of this raffle type.
+     */
+    public static final TicketTable TICKETS = TicketTable.of(TroopRaffle.class);
+
     /**
      * Filter for troops that are considered hard to defend against.
      */
@@ -55,10 +62,12 @@ public class TroopRaffle extends Raffle {
             OVERPOWERED_TROOP_FILTER, PASSIVE_TROOP_FILTER, COSTLY_TROOP_FILTER
     ).flatMap(Collection::stream).collect(Collectors.toList());
 
-    public TroopRaffle() {
-        super.initialize(this.getClass());
-    }
+    private static final long FIRST_TROOP_MASK = TICKETS.compileFilter(FIRST_TROOP_FILTER);
+    private static final long OVERPOWERED_TROOP_MASK = TICKETS.compileFilter(OVERPOWERED_TROOP_FILTER);
 
+    public TroopRaffle(RandomEngine random) {
+        super(TICKETS, random);
+    }
 
     /**
      * Gets and removes a simple choice for the first node of a tech tree.
@@ -66,7 +75,7 @@ public class TroopRaffle extends Raffle {
      * @return String name of the selected choice.
      */
     public String removeFirstChoice() {
-        return super.removeWithFilter(FIRST_TROOP_FILTER);
+        return super.removeWithFilter(FIRST_TROOP_MASK);
     }
 
     /**
@@ -76,6 +85,6 @@ public class TroopRaffle extends Raffle {
      * @return String name of a troop which is not overpowered.
      */
     public String removeNonOverpowered() {
-        return super.removeWithFilter(OVERPOWERED_TROOP_FILTER);
+        return super.removeWithFilter(OVERPOWERED_TROOP_MASK);
     }
 }
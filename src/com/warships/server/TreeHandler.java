@@ -0,0 +1,117 @@
+package com.warships.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.warships.tree.TechTree;
+import com.warships.tree.TreeCodec;
+import com.warships.tree.TreeRenderer;
+import com.warships.utils.RandomEngine;
+
+/**
+ * Serves <code>GET /tree?seed=N&amp;format=text|json|binary</code>. Every request
+ * generates its own tree, so requests share nothing but the immutable preset catalog.
+ * A request without a seed gets a random one, returned in the <code>X-Tree-Seed</code>
+ * header.
+ */
+final class TreeHandler implements HttpHandler {
+
+    static final String PATH = "/tree";
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!PATH.equals(exchange.getRequestURI().getPath())) {
+                sendError(exchange, 404, "Not found");
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            long seed;
+            try {
+                seed = query.containsKey("seed") ? Long.parseLong(query.get("seed")) : RandomEngine.newSeed();
+            } catch (NumberFormatException ex) {
+                sendError(exchange, 400, "Invalid seed: " + query.get("seed"));
+                return;
+            }
+
+            String format = query.getOrDefault("format", "text");
+            if (!format.equals("text") && !format.equals("json") && !format.equals("binary")) {
+                sendError(exchange, 400, "Unknown format: " + format);
+                return;
+            }
+
+            TechTree tree = new TechTree(seed);
+            tree.generate();
+
+            exchange.getResponseHeaders().set("X-Tree-Seed", Long.toString(seed));
+            switch (format) {
+                case "json":
+                    StringBuilder json = new StringBuilder(8192);
+                    TreeJson.write(tree, json);
+                    send(exchange, 200, "application/json", json.toString().getBytes(StandardCharsets.UTF_8));
+                    break;
+                case "binary":
+                    send(exchange, 200, "application/octet-stream", TreeCodec.encode(tree));
+                    break;
+                default:
+                    ByteBuffer frame = ByteBuffer.allocate(TreeRenderer.encodedSize(tree));
+                    TreeRenderer.render(tree, frame);
+                    send(exchange, 200, "text/plain; charset=utf-8", frame.array());
+                    break;
+            }
+        } catch (RuntimeException ex) {
+            // Once the headers are out, closing the exchange is all that is left to do
+            if (exchange.getResponseCode() == -1) {
+                sendError(exchange, 500, "Generation failed: " + ex.getMessage());
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+
+        return query;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "text/plain; charset=utf-8", (message + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.warships.server;
+
+import static java.util.AbstractMap.SimpleEntry;
+
+import com.warships.enums.NodeType;
+import com.warships.nodes.ChoiceNode;
+import com.warships.nodes.EngineNode;
+import com.warships.nodes.TechNode;
+import com.warships.nodes.UpgradeNode;
+import com.warships.tree.TechTree;
+
+import java.util.Locale;
+
+/**
+ * Writes tech trees as JSON. Every node is written with its position, its connections
+ * and its state:
+ * <pre>
+ * {"seed":1,"width":20,"rooms":[4,9,13,16,19],"nodes":[
+ *   {"x":0,"y":0,"name":"Landing Craft","kind":"upgrade","type":null,"links":"R",
+ *    "attached":true,"unlocked":true,"level":1}, ...]}
+ * </pre>
+ * Choice nodes carry their <code>options</code> and <code>selected</code> index, and
+ * engine nodes their <code>engine</code> number.
+ */
+final class TreeJson {
+
+    /**
+     * Writes a tree as JSON.
+     *
+     * @param tree The tree to write.
+     * @param out Destination of the JSON.
+     */
+    static void write(TechTree tree, StringBuilder out) {
+        int start = out.length();
+
+        tree.readTree(snapshot -> {
+            // A read that is run again starts over
+            out.setLength(start);
+            writeTree(snapshot, out);
+            return null;
+        });
+    }
+
+    private static void writeTree(TechTree tree, StringBuilder out) {
+        out.append("{\"seed\":").append(tree.getSeed());
+        out.append(",\"width\":").append(tree.getWidth());
+
+        out.append(",\"rooms\":[");
+        for (int room = 0; room < tree.getRoomCount(); room++) {
+            if (room > 0) {
+                out.append(',');
+            }
+            out.append(tree.getRoomEnd(room));
+        }
+
+        out.append("],\"nodes\":[");
+        boolean first = true;
+        for (int x = 0; x < tree.getWidth(); x++) {
+            for (int y = 0; y < 3; y++) {
+                TechNode node = tree.getNode(x, y);
+                if (node == null) {
+                    continue;
+                }
+
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeNode(x, y, node, out);
+            }
+        }
+        out.append("]}");
+    }
+
+    private static void writeNode(int x, int y, TechNode node, StringBuilder out) {
+        out.append("{\"x\":").append(x).append(",\"y\":").append(y);
+        out.append(",\"name\":");
+        appendString(node.getName(), out);
+
+        if (node instanceof EngineNode) {
+            out.append(",\"kind\":\"engine\",\"engine\":").append(node.getEngineNumber());
+        } else if (node instanceof ChoiceNode) {
+            ChoiceNode choice = (ChoiceNode) node;
+            out.append(",\"kind\":\"choice\",\"options\":[");
+            for (int i = 0; i < 3; i++) {
+                SimpleEntry<String, Integer> option = choice.option(i);
+                out.append(i > 0 ? ",{\"name\":" : "{\"name\":");
+                appendString(option.getKey(), out);
+                out.append(",\"amount\":").append(option.getValue()).append('}');
+            }
+            out.append("],\"selected\":").append(choice.getSelectedChoice());
+        } else {
+            NodeType type = NodeType.of(node.getName());
+            out.append(",\"kind\":\"upgrade\",\"type\":");
+            if (type == null) {
+                out.append("null");
+            } else {
+                appendString(type.name().toLowerCase(Locale.ROOT), out);
+            }
+        }
+
+        out.append(",\"links\":\"");
+        if (node.hasLeft()) {
+            out.append('L');
+        }
+        if (node.hasUpper()) {
+            out.append('U');
+        }
+        if (node.hasRight()) {
+            out.append('R');
+        }
+        if (node.hasLower()) {
+            out.append('D');
+        }
+
+        out.append("\",\"attached\":").append(node.isAttached());
+        out.append(",\"unlocked\":").append(node.isUnlocked());
+        if (node instanceof UpgradeNode) {
+            out.append(",\"level\":").append(((UpgradeNode) node).getLevel());
+        }
+        out.append('}');
+    }
+
+    private static void appendString(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    private TreeJson() {
+        throw new IllegalStateException("Cannot instantiate utility class.");
+    }
+}
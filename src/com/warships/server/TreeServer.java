@@ -0,0 +1,76 @@
+package com.warships.server;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP server for generating trees on request:
+ * <pre>
+ * GET /tree?seed=N&amp;format=text|json|binary
+ * </pre>
+ * Each request runs on its own virtual thread when the runtime supports them. On older
+ * runtimes, requests run on a fixed pool of platform threads sized to the processors,
+ * since generation is bound by the processor rather than by I/O.
+ */
+public class TreeServer implements AutoCloseable {
+
+    /**
+     * Number of connections the server queues while every worker is busy.
+     */
+    private static final int BACKLOG = 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server bound to an address. The server does not accept requests until
+     * it is started.
+     *
+     * @param address Address to listen on. Port 0 picks a free port.
+     * @throws IOException if the address cannot be bound.
+     */
+    public TreeServer(InetSocketAddress address) throws IOException {
+        this.server = HttpServer.create(address, BACKLOG);
+        this.executor = newRequestExecutor();
+
+        this.server.createContext(TreeHandler.PATH, new TreeHandler());
+        this.server.setExecutor(this.executor);
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    /**
+     * Gets the address the server is listening on, including the chosen port.
+     *
+     * @return the bound address.
+     */
+    public InetSocketAddress getAddress() {
+        return this.server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdown();
+    }
+
+    /**
+     * Creates a virtual thread per task executor when the runtime has one. It is looked up
+     * reflectively so the server still runs on runtimes without virtual threads.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.warships.session;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+import com.warships.enums.UnlockResult;
+import com.warships.tree.TechTree;
+
+/**
+ * A player's tech tree kept by a {@link SessionManager}. Every unlock and upgrade that
+ * changes the tree is appended to an action log, so that once the manager evicts the
+ * tree it can be rebuilt from the seed by replaying the log.
+ * <br>
+ * An access past the generated columns generates engine rooms even when it changes no
+ * node, so such an access is logged as well. The tree of a session must only be changed
+ * through the session, otherwise the change is lost the next time the tree is evicted.
+ */
+public final class Session {
+
+    private static final int ACTION_UNLOCK = 0;
+    private static final int ACTION_UPGRADE = 1;
+    private static final int ACTION_EXTEND = 2;
+
+    private final SessionManager manager;
+    private final long id;
+    private final long seed;
+
+    /**
+     * The resident tree, or <code>null</code> once evicted. Cleared by the manager
+     * without holding the session lock.
+     */
+    volatile TechTree tree;
+
+    /**
+     * Estimated bytes the manager counts for this session while it is resident. Guarded
+     * by the manager.
+     */
+    long residentBytes;
+
+    // Actions packed as: type in bits 0-1, selection + 1 in bits 2-4, Y in bits 5-6 and
+    // X from bit 7
+    private int[] log;
+    private int logSize;
+
+    Session(SessionManager manager, long id, long seed) {
+        this.manager = manager;
+        this.id = id;
+        this.seed = seed;
+        this.log = new int[8];
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Checks if the tree of the session is in memory.
+     *
+     * @return true if the next access does not rebuild the tree.
+     */
+    public boolean isResident() {
+        return this.tree != null;
+    }
+
+    /**
+     * Gets the number of actions replayed when the tree is rebuilt.
+     *
+     * @return the length of the action log.
+     */
+    public synchronized int getActionCount() {
+        return this.logSize;
+    }
+
+    /**
+     * Unlocks a node of the tree, see {@link TechTree#unlockNode(int, int, int)}.
+     *
+     * @param x The X position of the node.
+     * @param y The Y position of the node.
+     * @param selection Index of the option to pick if the node is a choice node, or -1.
+     * @return The outcome.
+     */
+    public synchronized UnlockResult unlockNode(int x, int y, int selection) {
+        TechTree current = this.manager.acquire(this);
+        int width = current.getWidth();
+        UnlockResult result = current.unlockNode(x, y, selection);
+
+        if (result == UnlockResult.UNLOCKED) {
+            // Only a choice node uses the selection, and it only takes the index of an option
+            record(ACTION_UNLOCK, x, y, selection >= 0 && selection < 3 ? selection : -1);
+        } else {
+            recordExtension(current, width);
+        }
+
+        this.manager.release(this, current);
+        return result;
+    }
+
+    /**
+     * Buys the next upgrade level of a node, see {@link TechTree#buyUpgrade(int, int)}.
+     *
+     * @param x The X position of the node.
+     * @param y The Y position of the node.
+     * @return true if the node was upgraded.
+     */
+    public synchronized boolean buyUpgrade(int x, int y) {
+        TechTree current = this.manager.acquire(this);
+        int width = current.getWidth();
+        boolean upgraded = current.buyUpgrade(x, y);
+
+        if (upgraded) {
+            record(ACTION_UPGRADE, x, y, -1);
+        } else {
+            recordExtension(current, width);
+        }
+
+        this.manager.release(this, current);
+        return upgraded;
+    }
+
+    /**
+     * Reads the tree of the session, rebuilding it first if it was evicted.
+     *
+     * @param reader Function reading the tree. It must not change the tree.
+     * @param <T> Type of the result.
+     * @return The result of the read.
+     */
+    public synchronized <T> T read(Function<? super TechTree, ? extends T> reader) {
+        TechTree current = this.manager.acquire(this);
+        int width = current.getWidth();
+        T result = reader.apply(current);
+        recordExtension(current, width);
+
+        this.manager.release(this, current);
+        return result;
+    }
+
+    /**
+     * Gets the number of bytes held by the action log.
+     */
+    int getLogBytes() {
+        return this.log.length * Integer.BYTES;
+    }
+
+    /**
+     * Generates the tree from the seed and replays the action log on it. Called by the
+     * manager while the session lock is held.
+     */
+    TechTree rebuild() {
+        TechTree rebuilt = new TechTree(this.seed);
+        rebuilt.generateLazily();
+
+        for (int i = 0; i < this.logSize; i++) {
+            int action = this.log[i];
+            int selection = (action >>> 2 & 0x7) - 1;
+            int y = action >>> 5 & 0x3;
+            int x = action >>> 7;
+
+            boolean replayed;
+            switch (action & 0x3) {
+                case ACTION_UNLOCK:
+                    replayed = rebuilt.unlockNode(x, y, selection) == UnlockResult.UNLOCKED;
+                    break;
+                case ACTION_UPGRADE:
+                    replayed = rebuilt.buyUpgrade(x, y);
+                    break;
+                default:
+                    // Getting a node past the generated columns generates up to it
+                    rebuilt.getNode(x, 0);
+                    replayed = rebuilt.getWidth() > x;
+                    break;
+            }
+            if (!replayed) {
+                throw new IllegalStateException("Session " + this.id + " could not replay action " + i
+                        + " at (" + x + ", " + y + ").");
+            }
+        }
+
+        return rebuilt;
+    }
+
+    /**
+     * Logs the columns generated by an access that was not logged itself.
+     */
+    private void recordExtension(TechTree current, int width) {
+        if (current.getWidth() > width) {
+            record(ACTION_EXTEND, current.getWidth() - 1, 0, -1);
+        }
+    }
+
+    private void record(int type, int x, int y, int selection) {
+        if (this.logSize == this.log.length) {
+            this.log = Arrays.copyOf(this.log, this.logSize * 2);
+        }
+
+        this.log[this.logSize++] = type | (selection + 1) << 2 | y << 5 | x << 7;
+    }
+}
@@ -0,0 +1,233 @@
+package com.warships.session;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.warships.tree.TechTree;
+
+/**
+ * Keeps the tech trees of many sessions in memory under a byte budget. Sessions are
+ * ordered by their last access, and once the estimated size of the resident trees is
+ * over the budget, the trees of the least recently used sessions are evicted. An
+ * evicted session keeps only its seed and action log, and its tree is rebuilt on the
+ * next access.
+ * <br>
+ * New and rebuilt trees are generated lazily, so a session only holds the engine rooms
+ * its player reached.
+ */
+public final class SessionManager {
+
+    /**
+     * Estimated bytes of a tree apart from its columns: the loader, the raffles and the
+     * caches, measured on the heap of generated trees.
+     */
+    private static final long TREE_BYTES = 2800;
+
+    /**
+     * Estimated bytes of each generated column of a tree, with its nodes and their
+     * listeners.
+     */
+    private static final long COLUMN_BYTES = 3300;
+
+    private final long budget;
+    private final Map<Long, Session> sessions;
+    private final LinkedHashMap<Long, Session> resident;
+
+    private long nextId;
+    private long residentBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param budget Number of bytes the resident trees may take. The most recently used
+     *               session stays resident even when its tree alone is over the budget.
+     */
+    public SessionManager(long budget) {
+        if (budget < 1) {
+            throw new IllegalArgumentException("Budget must be positive: " + budget);
+        }
+
+        this.budget = budget;
+        this.sessions = new HashMap<>();
+        this.resident = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Starts a session on a new tree.
+     *
+     * @param seed Seed of the tree.
+     * @return The session.
+     */
+    public Session open(long seed) {
+        TechTree tree = new TechTree(seed);
+        tree.generateLazily();
+
+        synchronized (this) {
+            Session session = new Session(this, this.nextId++, seed);
+            this.sessions.put(session.getId(), session);
+            admit(session, tree);
+            return session;
+        }
+    }
+
+    /**
+     * Gets a session by its ID.
+     *
+     * @param id ID of the session.
+     * @return The session, or <code>null</code> if there is none.
+     */
+    public synchronized Session get(long id) {
+        return this.sessions.get(id);
+    }
+
+    /**
+     * Ends a session and releases its tree.
+     *
+     * @param id ID of the session.
+     * @return true if the session existed.
+     */
+    public synchronized boolean close(long id) {
+        Session session = this.sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+
+        if (this.resident.remove(id) != null) {
+            this.residentBytes -= session.residentBytes;
+            session.residentBytes = 0;
+        }
+        session.tree = null;
+        return true;
+    }
+
+    public long getBudget() {
+        return this.budget;
+    }
+
+    /**
+     * Gets the estimated size of the resident trees and their action logs.
+     *
+     * @return the resident bytes.
+     */
+    public synchronized long getResidentBytes() {
+        return this.residentBytes;
+    }
+
+    public synchronized int getResidentCount() {
+        return this.resident.size();
+    }
+
+    public synchronized int getSessionCount() {
+        return this.sessions.size();
+    }
+
+    /**
+     * Gets the number of accesses that found the tree of the session in memory.
+     *
+     * @return the number of hits.
+     */
+    public synchronized long getHitCount() {
+        return this.hits;
+    }
+
+    /**
+     * Gets the number of accesses that rebuilt the tree of an evicted session.
+     *
+     * @return the number of misses.
+     */
+    public synchronized long getMissCount() {
+        return this.misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return this.evictions;
+    }
+
+    /**
+     * Estimates the bytes a tree takes on the heap from its generated columns.
+     *
+     * @param tree The tree.
+     * @return The estimated size.
+     */
+    static long estimateBytes(TechTree tree) {
+        return TREE_BYTES + tree.getWidth() * COLUMN_BYTES;
+    }
+
+    /**
+     * Gets the tree of a session for an access, rebuilding it if it was evicted. Called
+     * with the session lock held, so the tree is rebuilt once however many threads use
+     * the session, while other sessions stay available.
+     */
+    TechTree acquire(Session session) {
+        synchronized (this) {
+            TechTree tree = session.tree;
+            if (tree != null) {
+                this.hits++;
+                this.resident.get(session.getId());
+                return tree;
+            }
+            if (!this.sessions.containsKey(session.getId())) {
+                throw new IllegalStateException("Session " + session.getId() + " is closed.");
+            }
+            this.misses++;
+        }
+
+        TechTree tree = session.rebuild();
+        synchronized (this) {
+            // The session may have been closed while its tree was rebuilt
+            if (!this.sessions.containsKey(session.getId())) {
+                throw new IllegalStateException("Session " + session.getId() + " is closed.");
+            }
+            admit(session, tree);
+        }
+        return tree;
+    }
+
+    /**
+     * Updates the size of a session after an access, since an unlock may generate a
+     * room and the action log may grow.
+     */
+    synchronized void release(Session session, TechTree tree) {
+        // The tree was evicted or the session closed during the access
+        if (session.tree != tree) {
+            return;
+        }
+
+        long bytes = estimateBytes(tree) + session.getLogBytes();
+        this.residentBytes += bytes - session.residentBytes;
+        session.residentBytes = bytes;
+        evict(session);
+    }
+
+    private void admit(Session session, TechTree tree) {
+        session.tree = tree;
+        session.residentBytes = estimateBytes(tree) + session.getLogBytes();
+        this.residentBytes += session.residentBytes;
+        this.resident.put(session.getId(), session);
+        evict(session);
+    }
+
+    /**
+     * Evicts the least recently used sessions until the resident trees are within the
+     * budget, sparing the session being accessed.
+     */
+    private void evict(Session accessed) {
+        Iterator<Session> eldest = this.resident.values().iterator();
+
+        while (this.residentBytes > this.budget && eldest.hasNext()) {
+            Session session = eldest.next();
+            if (session == accessed) {
+                continue;
+            }
+
+            eldest.remove();
+            this.residentBytes -= session.residentBytes;
+            session.residentBytes = 0;
+            session.tree = null;
+            this.evictions++;
+        }
+    }
+}
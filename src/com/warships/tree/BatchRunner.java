@@ -0,0 +1,142 @@
+package com.warships.tree;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import com.warships.utils.StringUtility;
+
+/**
+ * Runs scripts of commands without a console. A script holds one command per line, as
+ * typed in interactive mode, and may switch to a new tree at any point:
+ * <pre>
+ * # Comment
+ * seed 42
+ * unlock 1 1
+ * refresh
+ * seed 43
+ * path
+ * </pre>
+ * Commands before the first <code>seed</code> line run against a tree generated from
+ * the default seed. <code>exit</code> lines are ignored, so transcripts of interactive
+ * sessions can be replayed as they are.
+ * <br>
+ * All results go to a single sink, with no prompts and no initial render of each tree.
+ * A <code>refresh</code> that would write the same frame as the previous one for the
+ * same tree is skipped. A command that fails is reported with its line number and the
+ * script goes on.
+ */
+public final class BatchRunner {
+
+    private static final String SEED_COMMAND = "seed";
+
+    private final PrintStream out;
+    private final long defaultSeed;
+
+    private TechTree tree;
+    private String lastFrame;
+    private int treeCount;
+    private int commandCount;
+    private int failureCount;
+
+    /**
+     * @param out Destination of the results. It is flushed once a script is done or
+     *            fails to be read, and never closed.
+     * @param defaultSeed Seed of the tree used until a script selects one.
+     */
+    public BatchRunner(PrintStream out, long defaultSeed) {
+        this.out = out;
+        this.defaultSeed = defaultSeed;
+    }
+
+    /**
+     * Runs every command of a script.
+     *
+     * @param script Source of the commands, read to its end.
+     * @throws IOException if the script cannot be read.
+     */
+    public void run(BufferedReader script) throws IOException {
+        String line;
+        int lineNumber = 0;
+
+        try {
+            while ((line = script.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+
+                if (!StringUtility.isNotBlank(line) || line.startsWith("#") || line.equalsIgnoreCase("exit")) {
+                    continue;
+                }
+
+                try {
+                    runLine(line);
+                } catch (RuntimeException ex) {
+                    this.failureCount++;
+                    this.out.printf("Line %d: %s failed: %s%n", lineNumber, line, ex);
+                }
+            }
+        } finally {
+            // Results of the lines run before a read failure are kept
+            this.out.flush();
+        }
+    }
+
+    /**
+     * Gets the number of trees generated so far.
+     *
+     * @return the number of trees.
+     */
+    public int getTreeCount() {
+        return this.treeCount;
+    }
+
+    /**
+     * Gets the number of commands run so far, including failed ones.
+     *
+     * @return the number of commands.
+     */
+    public int getCommandCount() {
+        return this.commandCount;
+    }
+
+    public int getFailureCount() {
+        return this.failureCount;
+    }
+
+    private void runLine(String line) {
+        String[] args = line.split(" ");
+        this.commandCount++;
+
+        if (args[0].equalsIgnoreCase(SEED_COMMAND)) {
+            if (args.length < 2) {
+                this.out.println("Usage: SEED [Seed]");
+            } else {
+                startTree(Long.parseLong(args[1]));
+            }
+            return;
+        }
+
+        if (this.tree == null) {
+            startTree(this.defaultSeed);
+        }
+
+        if (args[0].equalsIgnoreCase("refresh")) {
+            String frame = this.tree.renderFrame();
+            if (!frame.equals(this.lastFrame)) {
+                this.out.print(frame);
+                this.lastFrame = frame;
+            }
+        } else {
+            CommandProcessor.process(line, this.tree, this.out);
+        }
+    }
+
+    private void startTree(long seed) {
+        this.tree = new TechTree(seed);
+        this.tree.generate();
+        this.lastFrame = null;
+        this.treeCount++;
+
+        this.out.printf("Seed %d%n", seed);
+    }
+}
@@ -0,0 +1,42 @@
+package com.warships.tree;
+
+import com.warships.nodes.TechNode;
+
+/**
+ * Node kinds and connection bits a cell of the grid is reduced to. {@link TreeCodec}
+ * writes them into the header of each encoded cell and {@link TreeFingerprint} hashes
+ * them, so both agree on what a cell holds.
+ */
+final class CellKind {
+
+    static final int EMPTY = 0;
+    static final int PRESET = 1;
+    static final int BONUS = 2;
+    static final int CHOICE = 3;
+    static final int ENGINE = 4;
+
+    /**
+     * Any other node. It is only fingerprinted, the codec cannot encode it.
+     */
+    static final int OTHER = 5;
+
+    static final int LINK_LEFT = 1;
+    static final int LINK_UPPER = 2;
+    static final int LINK_RIGHT = 4;
+    static final int LINK_LOWER = 8;
+
+    /**
+     * Gets the connections of a node as a mask of the <code>LINK_</code> bits.
+     *
+     * @param node The node.
+     * @return The connection mask.
+     */
+    static int linksOf(TechNode node) {
+        return (node.hasLeft() ? LINK_LEFT : 0) | (node.hasUpper() ? LINK_UPPER : 0)
+                | (node.hasRight() ? LINK_RIGHT : 0) | (node.hasLower() ? LINK_LOWER : 0);
+    }
+
+    private CellKind() {
+        throw new IllegalStateException("Cannot instantiate static class.");
+    }
+}
@@ -1,9 +1,16 @@
 package com.warships.tree;
 
+import java.awt.Point;
+import java.io.PrintStream;
+import java.util.List;
+
 import com.warships.enums.CommandEnum;
 import com.warships.nodes.ChoiceNode;
 import com.warships.nodes.TechNode;
 import com.warships.nodes.UpgradeNode;
+import com.warships.planner.Plan;
+import com.warships.planner.PlanAction;
+import com.warships.planner.UnlockPlanner;
 import com.warships.utils.StringUtility;
 
 import static java.util.AbstractMap.SimpleEntry;
@@ -11,120 +18,210 @@ import static java.util.AbstractMap.SimpleEntry;
 public final class CommandProcessor {
 
     /**
-     * Processes a command.
+     * Time the PLAN command may spend searching.
+     */
+    private static final long PLAN_TIME_MILLIS = 1000;
+
+    /**
+     * Planner of the PLAN command. It searches on the common pool, so it is shared by
+     * every command and never closed.
+     */
+    private static final UnlockPlanner PLANNER = new UnlockPlanner();
+
+    /**
+     * Processes a command, writing its results to the console.
      *
      * @param input
      */
     public static void process(String input, TechTree tree) {
+        process(input, tree, System.out);
+    }
+
+    /**
+     * Processes a command.
+     *
+     * @param input The command line.
+     * @param tree The tree the command runs against.
+     * @param out Destination of the results. It is not flushed.
+     */
+    public static void process(String input, TechTree tree, PrintStream out) {
         String[] args = input.split(" ");
         String command = args[0].toLowerCase();
 
         if (CommandEnum.contains(command)) {
             switch (CommandEnum.valueOf(command.toUpperCase())) {
                 case HELP:
-                    showHelp(args.length == 1 ? null : args[1]);
+                    showHelp(out, args.length == 1 ? null : args[1]);
                     break;
                 case GET:
                     if (args.length < 3) {
-                        System.out.println("Usage: GET [X Y]");
+                        out.println("Usage: GET [X Y]");
                     } else {
-                        showNode(tree, Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+                        showNode(out, tree, Integer.parseInt(args[1]), Integer.parseInt(args[2]));
                     }
                     break;
                 case UPGRADE:
                     if (args.length < 3) {
-                        System.out.println("Usage: UPGRADE [X Y]");
+                        out.println("Usage: UPGRADE [X Y]");
                     } else {
-                        upgradeNode(tree, Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+                        upgradeNode(out, tree, Integer.parseInt(args[1]), Integer.parseInt(args[2]));
                     }
                     break;
                 case UNLOCK:
                     if (args.length < 3) {
-                        System.out.println("Usage: UNLOCK [X Y] [Choice #]");
+                        out.println("Usage: UNLOCK [X Y] [Choice #]");
                     } else {
-                        unlockNode(tree, Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                        unlockNode(out, tree, Integer.parseInt(args[1]), Integer.parseInt(args[2]),
                                 args.length > 3 ? Integer.parseInt(args[3]) : -1);
                     }
                     break;
+                case PATH:
+                    if (args.length == 1) {
+                        showEnginePaths(out, tree);
+                    } else if (args.length < 3) {
+                        out.println("Usage: PATH [X Y]");
+                    } else {
+                        showPath(out, tree, Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+                    }
+                    break;
+                case PLAN:
+                    if (args.length < 3) {
+                        out.println("Usage: PLAN [Unlock budget] [Upgrade budget]");
+                    } else {
+                        showPlan(out, tree, Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+                    }
+                    break;
                 case REFRESH:
-                    tree.displayNodes();
+                    out.print(tree.renderFrame());
                     break;
                 case DEBUG:
-                    System.out.printf("Unused troops: %s%n", tree.getRemainingTroops());
-                    System.out.printf("Unused defenses: %s%n", tree.getRemainingDefenses());
-                    System.out.printf("Unused gunboat abilities: %s%n", tree.getRemainingGBA());
+                    out.printf("Unused troops: %s%n", tree.getRemainingTroops());
+                    out.printf("Unused defenses: %s%n", tree.getRemainingDefenses());
+                    out.printf("Unused gunboat abilities: %s%n", tree.getRemainingGBA());
                     break;
                 default:
                     throw new IllegalArgumentException("Instruction not accounted for: " + command);
             }
         } else {
-            System.out.printf("'%s' is not recognized as an internal command.%n", args[0]);
+            out.printf("'%s' is not recognized as an internal command.%n", args[0]);
         }
     }
 
-    private static void unlockNode(TechTree tree, int x, int y, int selection) {
-        TechNode node = tree.getNode(x, y);
-        if (node.canBeUnlocked()) {
-            if (!(node instanceof ChoiceNode)) {
-                node.unlock();
-                System.out.println("Node unlocked.");
-            } else {
-                if (selection != -1) {
-                    ((ChoiceNode) node).unlock(selection);
-                    System.out.println("Node unlocked.");
-                } else {
-                    System.out.println("Could not unlock node. A valid selection must be made.");
-                }
-            }
-        } else {
-            System.out.println("Unlock neighboring nodes first.");
+    private static void unlockNode(PrintStream out, TechTree tree, int x, int y, int selection) {
+        switch (tree.unlockNode(x, y, selection)) {
+            case UNLOCKED:
+                out.println("Node unlocked.");
+                break;
+            case NO_SELECTION:
+                out.println("Could not unlock node. A valid selection must be made.");
+                break;
+            case BLOCKED:
+                out.println("Unlock neighboring nodes first.");
+                break;
+            default:
+                out.println("There is no node at this position.");
+                break;
         }
     }
 
-    private static void upgradeNode(TechTree tree, int x, int y) {
+    private static void upgradeNode(PrintStream out, TechTree tree, int x, int y) {
         if (tree.buyUpgrade(x, y)) {
-            System.out.print("Upgraded ");
-            showNode(tree, x, y);
+            out.print("Upgraded ");
+            showNode(out, tree, x, y);
         } else {
-            System.out.println("Unable to purchase upgrade for this node.");
+            out.println("Unable to purchase upgrade for this node.");
         }
     }
 
-    private static void showNode(TechTree tree, int x, int y) {
-        TechNode node = tree.getNode(x, y);
-        if (node != null) {
-            System.out.printf("%s", node.getName());
-            if (!node.isUnlocked()) {
-                System.out.println(" (locked)");
-            } else if (node instanceof UpgradeNode) {
-                UpgradeNode upnode = (UpgradeNode) node;
-                System.out.printf(" (level %s)%n", upnode.getLevel());
-            } else {
-                System.out.println();
-            }
+    private static void showNode(PrintStream out, TechTree tree, int x, int y) {
+        out.print(tree.readNode(x, y, CommandProcessor::describeNode));
+    }
+
+    private static String describeNode(TechNode node) {
+        if (node == null) {
+            return String.format("There is no node at this position.%n");
+        }
+
+        StringBuilder description = new StringBuilder(node.getName());
+        if (!node.isUnlocked()) {
+            description.append(" (locked)").append(System.lineSeparator());
+        } else if (node instanceof UpgradeNode) {
+            UpgradeNode upnode = (UpgradeNode) node;
+            description.append(String.format(" (level %s)%n", upnode.getLevel()));
+        } else {
+            description.append(System.lineSeparator());
+        }
 
-            if (node instanceof ChoiceNode) {
-                ChoiceNode chnode = (ChoiceNode) node;
-                SimpleEntry<String, Integer> choice1 = chnode.option(0);
-                SimpleEntry<String, Integer> choice2 = chnode.option(1);
-                SimpleEntry<String, Integer> choice3 = chnode.option(2);
+        if (node instanceof ChoiceNode) {
+            ChoiceNode chnode = (ChoiceNode) node;
+            SimpleEntry<String, Integer> choice1 = chnode.option(0);
+            SimpleEntry<String, Integer> choice2 = chnode.option(1);
+            SimpleEntry<String, Integer> choice3 = chnode.option(2);
 
-                System.out.printf("1 -> %s x%s%n2 -> %s x%s%n3 -> %s x%s%n", choice1.getKey(), choice1.getValue(),
-                        choice2.getKey(), choice2.getValue(), choice3.getKey(), choice3.getValue());
+            description.append(String.format("1 -> %s x%s%n2 -> %s x%s%n3 -> %s x%s%n", choice1.getKey(), choice1.getValue(),
+                    choice2.getKey(), choice2.getValue(), choice3.getKey(), choice3.getValue()));
+        }
+
+        return description.toString();
+    }
+
+    private static void showEnginePaths(PrintStream out, TechTree tree) {
+        boolean anyLocked = false;
+
+        for (int room = 0; room < tree.getRoomCount(); room++) {
+            Point engine = tree.getEnginePosition(room);
+            if (!tree.readNode(engine.x, engine.y, TechNode::isUnlocked)) {
+                showPath(out, tree, engine.x, engine.y);
+                anyLocked = true;
             }
+        }
+
+        if (!anyLocked) {
+            out.println("Every engine is unlocked.");
+        }
+    }
+
+    private static void showPath(PrintStream out, TechTree tree, int x, int y) {
+        String name = tree.readNode(x, y, node -> node == null ? null : node.getName().trim());
+        if (name == null) {
+            out.println("There is no node at this position.");
+            return;
+        }
+
+        List<Point> path = tree.getCheapestUnlockPath(x, y);
+        if (path == null) {
+            out.printf("%s (%d, %d) cannot be reached.%n", name, x, y);
+        } else if (path.isEmpty()) {
+            out.printf("%s (%d, %d) is already unlocked.%n", name, x, y);
         } else {
-            System.out.println("There is no node at this position.");
+            StringBuilder steps = new StringBuilder();
+            for (Point step : path) {
+                steps.append(" (").append(step.x).append(", ").append(step.y).append(')');
+            }
+
+            out.printf("%s (%d, %d): cost %d via%s%n", name, x, y,
+                    tree.getCheapestUnlockCost(x, y), steps);
+        }
+    }
+
+    private static void showPlan(PrintStream out, TechTree tree, int unlockBudget, int upgradeBudget) {
+        Plan plan = PLANNER.plan(tree, unlockBudget, upgradeBudget, PLAN_TIME_MILLIS);
+
+        for (PlanAction action : plan.getActions()) {
+            out.printf("%s\t(cost %d)%n", action, action.getCost());
         }
+        out.printf("Value %.1f for %d unlock and %d upgrade cost%s%n", plan.getValue(),
+                plan.getUnlockCost(), plan.getUpgradeCost(), plan.isComplete() ? "" : " (search timed out)");
     }
 
-    private static void showHelp(String command) {
+    private static void showHelp(PrintStream out, String command) {
         if (StringUtility.isNotBlank(command) && CommandEnum.contains(command)) {
-            System.out.printf("%s\t\t%s%n", command.toUpperCase(), CommandEnum.descriptionOf(command));
+            out.printf("%s\t\t%s%n", command.toUpperCase(), CommandEnum.descriptionOf(command));
         } else if (StringUtility.isNotBlank(command)) {
-            System.out.println("This command is not supported by the help utility.");
+            out.println("This command is not supported by the help utility.");
         } else {
             for (CommandEnum cmd: CommandEnum.values()) {
-                System.out.printf("%s\t\t%s%n", cmd.name(), cmd.description);
+                out.printf("%s\t\t%s%n", cmd.name(), cmd.description);
             }
         }
     }
@@ -1,36 +1,70 @@
 package com.warships.tree;
 
-import java.awt.Point;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.RejectedExecutionException;
 
-import com.warships.constants.ConnectionConstants;
 import com.warships.nodes.EngineNode;
 import com.warships.nodes.TechNode;
-import com.warships.utils.MathUtility;
+import com.warships.utils.RandomEngine;
 
+/**
+ * Carves the connections of a single engine room. The generator works directly on the
+ * tree's grid and only touches the columns of the new room, plus the single link that
+ * attaches the room to the column before it.
+ */
 public class MazeGenerator {
 
     private static final int mazeY = 2;
 
-    private final TechNode[][] maze;
-    private final int mazeX;
+    /*
+     * Directions are encoded as bits so the edges of a cell fit in a 4-bit mask.
+     * North moves to a lower Y position and is linked as a lower connection.
+     */
+    private static final int NORTH = 0;
+    private static final int SOUTH = 1;
+    private static final int EAST = 2;
+    private static final int WEST = 3;
+
+    private static final int[] DX = {0, 0, 1, -1};
+    private static final int[] DY = {-1, 1, 0, 0};
+    private static final int[] OPPOSITE = {SOUTH, NORTH, WEST, EAST};
+
+    /**
+     * Every ordering of the four directions. A random row replaces shuffling a
+     * direction array for each visited cell.
+     */
+    private static final int[][] PERMUTATIONS = createPermutations();
+
+    /*
+     * Layout of a stack frame: cell index, permutation row, next direction cursor.
+     */
+    private static final int FRAME_CURSOR_BITS = 3;
+    private static final int FRAME_PERMUTATION_BITS = 5;
+    private static final int FRAME_CELL_SHIFT = FRAME_CURSOR_BITS + FRAME_PERMUTATION_BITS;
+
+    private final TechGrid tree;
     private final int startPos;
+    private final int endPos;
+    private final int roomWidth;
+    private final RandomEngine random;
 
     private boolean isGenerated;
 
-    public MazeGenerator(Map<Point, TechNode> tree, int startPos, int treeWidth) {
+    /**
+     * @param tree Grid holding the nodes of the new room.
+     * @param startPos First column of the new room.
+     * @param endPos Column after the last column of the new room.
+     * @param random Random engine used for carving.
+     */
+    MazeGenerator(TechGrid tree, int startPos, int endPos, RandomEngine random) {
+        this.tree = tree;
         this.startPos = startPos;
-        assertUninitializedTree(tree);
-
-        this.maze = new TechNode[3][treeWidth];
-        this.mazeX = treeWidth;
+        this.endPos = endPos;
+        this.roomWidth = endPos - startPos;
+        this.random = random;
         this.isGenerated = false;
 
-        initializeMaze(tree);
+        assertUninitializedTree(tree);
+        this.tree.get(this.startPos, 0).attach();
     }
 
     /**
@@ -41,107 +75,117 @@ public class MazeGenerator {
             throw new IllegalStateException("Maze has already been generated.");
         }
 
-        generatePath(this.startPos, 0);
+        byte[] edges = carvePath(this.startPos, 0);
+        linkEdges(edges);
         connectMaze();
         this.isGenerated = true;
     }
 
     /**
-     * Gets the resulting tech tree generated by this maze generator. The maze must
-     * have called the {@link #generateMaze()} prior to this method.
+     * Carves a path through every open cell reachable from a starting position using an
+     * iterative depth-first search. No nodes are linked during carving; the carved edges
+     * are returned as a direction mask per cell of the room, indexed by
+     * <code>y * roomWidth + (x - startPos)</code>.
      *
-     * @return The resulting tech tree map.
+     * @param posX X position to start carving from.
+     * @param posY Y position to start carving from.
+     * @return The edge mask of each cell.
      */
-    public Map<Point, TechNode> getResult() {
-        if (!this.isGenerated) {
-            throw new IllegalStateException("Maze has not been generated.");
+    private byte[] carvePath(int posX, int posY) {
+        final int cellCount = (mazeY + 1) * this.roomWidth;
+        byte[] edges = new byte[cellCount];
+        boolean[] open = new boolean[cellCount];
+
+        for (int y = 0; y <= mazeY; y++) {
+            for (int x = this.startPos; x < this.endPos; x++) {
+                TechNode node = this.tree.get(x, y);
+                open[cellOf(x, y)] = node != null && (!node.hasAny() || !node.isAttached());
+            }
         }
 
-        Map<Point, TechNode> result = new HashMap<>();
+        int[] stack = new int[cellCount];
+        int size = 0;
+
+        int start = cellOf(posX, posY);
+        open[start] = false;
+        stack[size++] = newFrame(start);
 
-        for (int y = 0; y < maze.length; y++) {
-            for (int x = 0; x < maze[y].length; x++) {
-                Point point = new Point(x, y);
-                TechNode node = maze[y][x];
+        while (size > 0) {
+            int frame = stack[size - 1];
+            int cursor = frame & ((1 << FRAME_CURSOR_BITS) - 1);
 
-                result.put(point, node);
+            if (cursor == DX.length) {
+                // Every direction from this cell has been tried
+                size--;
+                continue;
             }
-        }
 
-        return result;
-    }
+            stack[size - 1] = frame + 1;
 
-    private void generatePath(int posX, int posY) {
-        DIR[] directions = DIR.values();
-        // Randomize the directions
-        Collections.shuffle(Arrays.asList(directions));
+            int cell = frame >>> FRAME_CELL_SHIFT;
+            int permutation = (frame >>> FRAME_CURSOR_BITS) & ((1 << FRAME_PERMUTATION_BITS) - 1);
+            int direction = PERMUTATIONS[permutation][cursor];
 
-        for (DIR direction : directions) {
-            int nextNodeX = posX + direction.dx;
-            int nextNodeY = posY + direction.dy;
+            int nextX = this.startPos + (cell % this.roomWidth) + DX[direction];
+            int nextY = (cell / this.roomWidth) + DY[direction];
 
-            if (isInRange(nextNodeX, nextNodeY)) {
-                TechNode nextNode = this.maze[nextNodeY][nextNodeX];
+            if (isInRange(nextX, nextY)) {
+                int next = cellOf(nextX, nextY);
 
-                if (nextNode != null && between(nextNodeX, this.mazeX+1) && between(nextNodeY, mazeY+1)
-                        && (!nextNode.hasAny() || !nextNode.isAttached())) {
-                    connectNodes(posX, posY, nextNodeX, nextNodeY, direction.bit);
+                if (open[next]) {
+                    open[next] = false;
+                    edges[cell] |= 1 << direction;
+                    edges[next] |= 1 << OPPOSITE[direction];
 
-                    generatePath(nextNodeX, nextNodeY);
+                    stack[size++] = newFrame(next);
                 }
             }
         }
+
+        return edges;
     }
 
     /**
-     * Initializes the maze array.
-     *
-     * @param tree Map of points to base the array off of.
+     * Creates a stack frame for a newly visited cell with a random direction order.
      */
-    private void initializeMaze(Map<Point, TechNode> tree) {
-        for (Map.Entry<Point, TechNode> entry: tree.entrySet()) {
-            Point nodeLocation = entry.getKey();
-            int posX = (int) nodeLocation.getX();
-            int posY = (int) nodeLocation.getY();
+    private int newFrame(int cell) {
+        int permutation = this.random.random(0, PERMUTATIONS.length - 1);
 
-            TechNode nodeData = entry.getValue();
+        return (cell << FRAME_CELL_SHIFT) | (permutation << FRAME_CURSOR_BITS);
+    }
 
-            this.maze[posY][posX] = nodeData;
-        }
+    /**
+     * Links the nodes of the maze according to the carved edges. Each edge is stored on
+     * both of its cells, so only the north and east edges are materialized.
+     *
+     * @param edges The edge mask of each cell.
+     */
+    private void linkEdges(byte[] edges) {
+        for (int cell = 0; cell < edges.length; cell++) {
+            int x = this.startPos + (cell % this.roomWidth);
+            int y = cell / this.roomWidth;
 
-        this.maze[0][this.startPos].attach();
-    }
+            if ((edges[cell] & (1 << NORTH)) != 0) {
+                this.tree.get(x, y).setNextLowerNode(this.tree.get(x, y - 1));
+            }
 
-    private boolean isInRange(int x, int y) {
-        return x >= 2 && x <= this.mazeX-1 && y >= 0 && y <= mazeY;
+            if ((edges[cell] & (1 << EAST)) != 0) {
+                this.tree.get(x, y).setNextRightNode(this.tree.get(x + 1, y));
+            }
+        }
     }
 
-    private void connectNodes(int firstX, int firstY, int secondX, int secondY, String connection) {
-        switch (connection) {
-            case ConnectionConstants.LEFT:
-                this.maze[firstY][firstX].setNextLeftNode(this.maze[secondY][secondX]);
-                break;
-            case ConnectionConstants.RIGHT:
-                this.maze[firstY][firstX].setNextRightNode(this.maze[secondY][secondX]);
-                break;
-            case ConnectionConstants.LOWER:
-                this.maze[firstY][firstX].setNextUpperNode(this.maze[secondY][secondX]);
-                break;
-            case ConnectionConstants.UPPER:
-                this.maze[firstY][firstX].setNextLowerNode(this.maze[secondY][secondX]);
-                break;
-            default:
-                throw new UnsupportedOperationException("Unknown connection instruction: " + connection);
-        }
+    private int cellOf(int x, int y) {
+        return y * this.roomWidth + (x - this.startPos);
     }
 
-    private static boolean between(int v, int upper) {
-        return (v >= 0) && (v < upper);
+    private boolean isInRange(int x, int y) {
+        return x >= this.startPos && x < this.endPos && y >= 0 && y <= mazeY;
     }
 
-    private void assertUninitializedTree(Map<Point, TechNode> nodes) {
+    private void assertUninitializedTree(TechGrid nodes) {
         for (int y = 0; y <= 2; y++) {
-            if (nodes.get(new Point(this.startPos, y)).hasLeft()) {
+            if (nodes.get(this.startPos, y).hasLeft()) {
                 throw new RejectedExecutionException("Node at (2, " + y + ") has a righter attachment. Cannot generate maze.");
             }
         }
@@ -154,16 +198,16 @@ public class MazeGenerator {
         // TODO Optimize this routine
         if (this.startPos == 3) {
             // First engine room can connect to any of the starting nodes
-            final int mainConnector = MathUtility.random(0, 2);
-            this.maze[mainConnector][this.startPos-1].setNextRightNode(this.maze[mainConnector][this.startPos]);
+            final int mainConnector = this.random.random(0, 2);
+            this.tree.get(this.startPos-1, mainConnector).setNextRightNode(this.tree.get(this.startPos, mainConnector));
 
             // Determine if we should place another connector
-            boolean placeSecondConnector = MathUtility.chance(0.35);
+            boolean placeSecondConnector = this.random.chance(0.35);
 
             if (placeSecondConnector) {
                 for (int y = 2; y >= 0; y--) {
-                    if (!this.maze[y][this.startPos-1].hasRight()) {
-                        this.maze[y][this.startPos-1].setNextRightNode(this.maze[y][this.startPos]);
+                    if (!this.tree.get(this.startPos-1, y).hasRight()) {
+                        this.tree.get(this.startPos-1, y).setNextRightNode(this.tree.get(this.startPos, y));
                         break;
                     }
                 }
@@ -171,34 +215,29 @@ public class MazeGenerator {
         } else {
             // Find the engine node from the previous maze and connect it
             for (int y = 0; y <= 2; y++) {
-                if (this.maze[y][this.startPos-1] instanceof EngineNode) {
-                    this.maze[y][this.startPos-1].setNextRightNode(this.maze[y][this.startPos]);
+                if (this.tree.get(this.startPos-1, y) instanceof EngineNode) {
+                    this.tree.get(this.startPos-1, y).setNextRightNode(this.tree.get(this.startPos, y));
                     break;
                 }
             }
         }
     }
-}
 
-enum DIR {
-    N(ConnectionConstants.UPPER, 0, -1), S(ConnectionConstants.LOWER, 0, 1),
-    E(ConnectionConstants.RIGHT, 1, 0), W(ConnectionConstants.LEFT, -1, 0);
-    public final String bit;
-    public final int dx;
-    public final int dy;
-    public DIR opposite;
-
-    // use the static initializer to resolve forward references
-    static {
-        N.opposite = S;
-        S.opposite = N;
-        E.opposite = W;
-        W.opposite = E;
-    }
+    private static int[][] createPermutations() {
+        int[][] permutations = new int[24][];
+        int count = 0;
+
+        for (int a = 0; a < 4; a++) {
+            for (int b = 0; b < 4; b++) {
+                for (int c = 0; c < 4; c++) {
+                    int d = 6 - a - b - c;
+                    if (a != b && a != c && b != c && d != a && d != b && d != c) {
+                        permutations[count++] = new int[] {a, b, c, d};
+                    }
+                }
+            }
+        }
 
-    DIR(String bit, int dx, int dy) {
-        this.bit = bit;
-        this.dx = dx;
-        this.dy = dy;
+        return permutations;
     }
 }
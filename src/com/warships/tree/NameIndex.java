@@ -0,0 +1,59 @@
+package com.warships.tree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps node names to the packed positions of every node carrying that name. Positions
+ * under a name are kept in insertion order. Every method is synchronized, since nodes
+ * in different engine rooms may be renamed at once.
+ */
+final class NameIndex {
+
+    private final Map<String, List<Integer>> positions;
+
+    NameIndex() {
+        this.positions = new HashMap<>();
+    }
+
+    synchronized void add(String name, int position) {
+        this.positions.computeIfAbsent(name, key -> new ArrayList<>(1)).add(position);
+    }
+
+    synchronized void remove(String name, int position) {
+        List<Integer> named = this.positions.get(name);
+        if (named == null) {
+            return;
+        }
+
+        named.remove(Integer.valueOf(position));
+        if (named.isEmpty()) {
+            this.positions.remove(name);
+        }
+    }
+
+    /**
+     * Gets the first position recorded under a name.
+     *
+     * @param name Name of the node.
+     * @return the packed position, or -1 if no node has this name.
+     */
+    synchronized int first(String name) {
+        List<Integer> named = this.positions.get(name);
+        return named == null ? -1 : named.get(0);
+    }
+
+    /**
+     * Gets every position recorded under a name.
+     *
+     * @param name Name of the node.
+     * @return a copy of the packed positions.
+     */
+    synchronized List<Integer> all(String name) {
+        List<Integer> named = this.positions.get(name);
+        return named == null ? Collections.emptyList() : new ArrayList<>(named);
+    }
+}
@@ -0,0 +1,108 @@
+package com.warships.tree;
+
+import java.util.Arrays;
+
+import com.warships.enums.NodeType;
+import com.warships.utils.AliasTable;
+import com.warships.utils.RandomEngine;
+
+/**
+ * Draws node types from an alias table built over the types that are currently
+ * available. The table is only rebuilt when the set of available types changes, so
+ * every draw takes constant time and never has to retry.
+ */
+final class NodeTypeSampler {
+
+    private static final NodeType[] TYPES = NodeType.values();
+
+    /**
+     * Availability mask holding every bonus node type.
+     */
+    static final int BONUS_TYPES = bonusTypes();
+
+    private final NodeTypeWeights weights;
+    private final NodeType[] drawable;
+    private int available;
+    private AliasTable table;
+
+    NodeTypeSampler(NodeTypeWeights weights) {
+        this.weights = weights;
+        this.drawable = new NodeType[TYPES.length];
+        this.available = 0;
+        this.table = null;
+    }
+
+    /**
+     * Gets the bit of a node type within an availability mask.
+     *
+     * @param type The node type.
+     * @return the bit of the type.
+     */
+    static int bitOf(NodeType type) {
+        return 1 << type.ordinal();
+    }
+
+    /**
+     * Updates which node types can be drawn. The alias table is rebuilt only if the
+     * availability differs from the previous update.
+     *
+     * @param mask Bits created with {@link #bitOf(NodeType)}.
+     */
+    void setAvailable(int mask) {
+        if (mask == this.available) {
+            return;
+        }
+        this.available = mask;
+
+        double[] drawableWeights = new double[TYPES.length];
+        int count = 0;
+
+        for (NodeType type : TYPES) {
+            double weight = this.weights.getWeight(type);
+            if ((mask & bitOf(type)) != 0 && weight > 0.0) {
+                this.drawable[count] = type;
+                drawableWeights[count] = weight;
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            this.table = null;
+        } else {
+            this.table = new AliasTable(Arrays.copyOf(drawableWeights, count));
+        }
+    }
+
+    /**
+     * Checks if no node type can be drawn.
+     *
+     * @return true if every type is exhausted or has no weight.
+     */
+    boolean isEmpty() {
+        return this.table == null;
+    }
+
+    /**
+     * Draws a node type in proportion to its weight among the available types.
+     *
+     * @param random Random engine to draw with.
+     * @return The drawn type, or <code>null</code> if no type is available.
+     */
+    NodeType sample(RandomEngine random) {
+        if (this.table == null) {
+            return null;
+        }
+
+        return this.drawable[this.table.sample(random)];
+    }
+
+    private static int bonusTypes() {
+        int mask = 0;
+        for (NodeType type : TYPES) {
+            if (type.bonus) {
+                mask |= bitOf(type);
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,100 @@
+package com.warships.tree;
+
+import java.util.Arrays;
+
+import com.warships.constants.WarshipConstants;
+import com.warships.enums.NodeType;
+
+/**
+ * Immutable weights that decide which kind of node fills a random spot of a tech tree.
+ * A spot becomes a choice node with the choice chance; otherwise an upgradable node
+ * type is drawn in proportion to its weight among the types that are still available.
+ */
+public final class NodeTypeWeights {
+
+    /**
+     * Default weights. Base game components share {@link WarshipConstants#COMPONENT_NODE_CHANCE}
+     * evenly, and bonus nodes share the remainder evenly.
+     */
+    public static final NodeTypeWeights DEFAULT = createDefault();
+
+    private final double choiceChance;
+    private final double[] weights;
+
+    private NodeTypeWeights(double choiceChance, double[] weights) {
+        this.choiceChance = choiceChance;
+        this.weights = weights;
+    }
+
+    /**
+     * Gets the chance that a random spot becomes a choice node.
+     *
+     * @return the choice node chance.
+     */
+    public double getChoiceChance() {
+        return this.choiceChance;
+    }
+
+    /**
+     * Gets the relative weight of a node type.
+     *
+     * @param type The node type.
+     * @return the weight.
+     */
+    public double getWeight(NodeType type) {
+        return this.weights[type.ordinal()];
+    }
+
+    /**
+     * Creates a copy of these weights with a different choice node chance.
+     *
+     * @param chance Chance between 0 and 1.
+     * @return The new weights.
+     */
+    public NodeTypeWeights withChoiceChance(double chance) {
+        if (!(chance >= 0.0 && chance <= 1.0)) {
+            throw new IllegalArgumentException("Choice node chance must be between 0 and 1: " + chance);
+        }
+
+        return new NodeTypeWeights(chance, this.weights);
+    }
+
+    /**
+     * Creates a copy of these weights with a different weight for one node type. A weight
+     * of zero keeps the type from being drawn.
+     *
+     * @param type The node type.
+     * @param weight Relative weight, not negative.
+     * @return The new weights.
+     */
+    public NodeTypeWeights withWeight(NodeType type, double weight) {
+        if (!(weight >= 0.0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("Invalid weight for " + type + ": " + weight);
+        }
+
+        double[] copy = Arrays.copyOf(this.weights, this.weights.length);
+        copy[type.ordinal()] = weight;
+
+        return new NodeTypeWeights(this.choiceChance, copy);
+    }
+
+    private static NodeTypeWeights createDefault() {
+        NodeType[] types = NodeType.values();
+        int bonusTypes = 0;
+        for (NodeType type : types) {
+            if (type.bonus) {
+                bonusTypes++;
+            }
+        }
+        int componentTypes = types.length - bonusTypes;
+
+        double[] weights = new double[types.length];
+        for (NodeType type : types) {
+            weights[type.ordinal()] = type.bonus
+                    ? (1.0 - WarshipConstants.COMPONENT_NODE_CHANCE) / bonusTypes
+                    : WarshipConstants.COMPONENT_NODE_CHANCE / componentTypes;
+        }
+
+        return new NodeTypeWeights(WarshipConstants.CHOICE_NODE_CHANCE, weights);
+    }
+}
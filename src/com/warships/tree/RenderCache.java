@@ -0,0 +1,231 @@
+package com.warships.tree;
+
+import java.util.Arrays;
+
+import com.warships.constants.WarshipConstants;
+import com.warships.nodes.TechNode;
+import com.warships.utils.Glyphs;
+import com.warships.utils.StringUtility;
+
+/**
+ * Caches the rendered text of a tech tree. Each cell keeps its rendered node segment and
+ * the connector segment displayed below it, each row keeps its joined lines, and the
+ * whole frame is kept as a single string. Cells are marked dirty when their node changes;
+ * refreshing re-renders only dirty cells and re-joins only rows containing them.
+ * <br>
+ * Marking and refreshing are synchronized with each other, so a cell changed during a
+ * refresh is either rendered by it or left dirty for the next one.
+ */
+final class RenderCache {
+
+    private static final int CONNECTOR_SPACE = TechNode.NODE_WIDTH + WarshipConstants.HORIZONTAL_CONNECTION_LENGTH;
+    private static final String EMPTY_CELL = StringUtility.repeat(WarshipConstants.BLANK_SPACE, CONNECTOR_SPACE);
+
+    private final String[][] nodeSegments;
+    private final String[][] bufferSegments;
+    private final boolean[][] dirtyCells;
+    private final boolean[] dirtyRows;
+    private final String[] nodeLines;
+    private final String[] bufferLines;
+    private final StringBuilder builder;
+    private String frame;
+
+    RenderCache() {
+        this.nodeSegments = new String[TechGrid.ROWS][0];
+        this.bufferSegments = new String[TechGrid.ROWS][0];
+        this.dirtyCells = new boolean[TechGrid.ROWS][0];
+        this.dirtyRows = new boolean[TechGrid.ROWS];
+        this.nodeLines = new String[TechGrid.ROWS];
+        this.bufferLines = new String[TechGrid.ROWS];
+        this.builder = new StringBuilder();
+        this.frame = null;
+
+        Arrays.fill(this.dirtyRows, true);
+    }
+
+    /**
+     * Marks a cell and its four neighbors as changed.
+     *
+     * @param x The X position of the cell.
+     * @param y The Y position of the cell.
+     */
+    synchronized void markChanged(int x, int y) {
+        markDirty(x, y);
+        markDirty(x - 1, y);
+        markDirty(x + 1, y);
+        markDirty(x, y - 1);
+        markDirty(x, y + 1);
+    }
+
+    /**
+     * Brings the cached lines up to date with the tree.
+     *
+     * @param tree The tree this cache belongs to.
+     * @return The rendered frame, as returned by {@link #frame()}.
+     */
+    synchronized String refresh(TechTree tree) {
+        boolean changed = false;
+
+        for (int y = 0; y < TechGrid.ROWS; y++) {
+            int columns = tree.getMaxValueX(y) + 1;
+            if (columns != this.nodeSegments[y].length) {
+                resizeRow(y, columns);
+            }
+
+            if (!this.dirtyRows[y]) {
+                continue;
+            }
+
+            for (int x = 0; x < columns; x++) {
+                if (this.dirtyCells[y][x]) {
+                    renderCell(tree.getNode(x, y), x, y);
+                    this.dirtyCells[y][x] = false;
+                }
+            }
+
+            this.nodeLines[y] = join(this.nodeSegments[y]);
+            this.bufferLines[y] = join(this.bufferSegments[y]);
+            this.dirtyRows[y] = false;
+            changed = true;
+        }
+
+        if (changed || this.frame == null) {
+            this.frame = joinFrame();
+        }
+
+        return this.frame;
+    }
+
+    /**
+     * Gets every rendered line of the tree, top row first, each followed by a line
+     * separator. Only valid after {@link #refresh(TechTree)}.
+     *
+     * @return The rendered frame.
+     */
+    synchronized String frame() {
+        return this.frame;
+    }
+
+    private void markDirty(int x, int y) {
+        if (y < 0 || y >= TechGrid.ROWS || x < 0) {
+            return;
+        }
+
+        if (x < this.dirtyCells[y].length) {
+            this.dirtyCells[y][x] = true;
+        }
+        this.dirtyRows[y] = true;
+    }
+
+    private void resizeRow(int y, int columns) {
+        int previous = this.nodeSegments[y].length;
+
+        this.nodeSegments[y] = Arrays.copyOf(this.nodeSegments[y], columns);
+        this.bufferSegments[y] = Arrays.copyOf(this.bufferSegments[y], columns);
+        this.dirtyCells[y] = Arrays.copyOf(this.dirtyCells[y], columns);
+
+        for (int x = previous; x < columns; x++) {
+            this.dirtyCells[y][x] = true;
+        }
+        this.dirtyRows[y] = true;
+    }
+
+    private void renderCell(TechNode node, int x, int y) {
+        if (node == null) {
+            // Empty spot for a node
+            this.nodeSegments[y][x] = EMPTY_CELL;
+            this.bufferSegments[y][x] = EMPTY_CELL;
+            return;
+        }
+
+        StringBuilder nodes = this.builder;
+        nodes.setLength(0);
+        node.appendTo(nodes);
+        appendHorizontalConnection(nodes, node.hasRight());
+        this.nodeSegments[y][x] = nodes.toString();
+
+        StringBuilder buff = this.builder;
+        buff.setLength(0);
+
+        // Check for a lower connection
+        if (node.hasLower() && y > 0) {
+            // Add connector to buffer line
+            final int nodeFirstHalfWidth = WarshipConstants.NODE_NAME_MIN_WIDTH + 1;
+            final int firstHalfWithConnector = nodeFirstHalfWidth - WarshipConstants.VERTICAL_CONNECTOR.length();
+
+            Glyphs.appendSpaces(buff, firstHalfWithConnector);
+            buff.append(WarshipConstants.VERTICAL_CONNECTOR);
+            // Append spaces equal to the amount of the remaining width of the node
+            Glyphs.appendSpaces(buff, TechNode.NODE_WIDTH - nodeFirstHalfWidth);
+            // Fill in the space where a connector should be
+            Glyphs.appendSpaces(buff, WarshipConstants.HORIZONTAL_CONNECTION_LENGTH);
+        } else if (y == 0) {
+            // Display the X axis labels
+            appendGridX(buff, x);
+        } else {
+            // Empty connection
+            buff.append(EMPTY_CELL);
+        }
+
+        this.bufferSegments[y][x] = buff.toString();
+    }
+
+    private String join(String[] segments) {
+        StringBuilder line = this.builder;
+        line.setLength(0);
+
+        for (String segment : segments) {
+            line.append(segment);
+        }
+
+        return line.toString();
+    }
+
+    private String joinFrame() {
+        StringBuilder lines = this.builder;
+        lines.setLength(0);
+
+        for (int y = TechGrid.ROWS - 1; y >= 0; y--) {
+            lines.append(this.nodeLines[y]).append(System.lineSeparator());
+            lines.append(this.bufferLines[y]).append(System.lineSeparator());
+        }
+
+        return lines.toString();
+    }
+
+    /**
+     * Appends an X axis label to a string builder.
+     *
+     * @param builder StringBuilder to append to.
+     * @param x X position.
+     */
+    private static void appendGridX(StringBuilder builder, int x) {
+        final int leftHalf = WarshipConstants.NODE_NAME_MIN_WIDTH + 1;
+        Glyphs.appendSpaces(builder, leftHalf);
+
+        builder.append(x);
+
+        if (x < 10) {
+            builder.append(Glyphs.BLANK_SPACE);
+        }
+
+        final int secondHalf = (TechNode.NODE_WIDTH - leftHalf) - 2;
+        Glyphs.appendSpaces(builder, secondHalf);
+
+        Glyphs.appendSpaces(builder, WarshipConstants.HORIZONTAL_CONNECTION_LENGTH);
+    }
+
+    /**
+     * Inserts a connector string to a string builder object.
+     *
+     * @param builder StringBuilder to use (should contain nodes).
+     * @param connected If the function should append a connection.
+     */
+    private static void appendHorizontalConnection(StringBuilder builder, boolean connected) {
+        char connector = connected ? WarshipConstants.HORIZONTAL_CONNECTOR : Glyphs.BLANK_SPACE;
+
+        for (int i = 0; i < WarshipConstants.HORIZONTAL_CONNECTION_LENGTH; i++) {
+            builder.append(connector);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.warships.tree;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * One {@link StampedLock} per engine room of a tech tree. Connections only cross from one
+ * room to the next through an engine node, so a change to a node only needs the locks of
+ * the rooms holding it and its neighbors. Stripes are always acquired in room order.
+ * <br>
+ * Each thread counts the stripes it holds, so that work which needs every stripe, such
+ * as generating a room, can tell when it would wait on the calling thread itself.
+ */
+final class RoomLocks {
+
+    private final StampedLock[] stripes;
+    private final ThreadLocal<int[]> held;
+
+    /**
+     * @param count Number of stripes.
+     */
+    RoomLocks(int count) {
+        this.stripes = new StampedLock[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new StampedLock();
+        }
+        this.held = ThreadLocal.withInitial(() -> new int[1]);
+    }
+
+    int count() {
+        return this.stripes.length;
+    }
+
+    /**
+     * Checks if the calling thread holds any stripe.
+     *
+     * @return true if a stripe is held.
+     */
+    boolean isHeldByCurrentThread() {
+        return this.held.get()[0] > 0;
+    }
+
+    /**
+     * Starts an optimistic read of a range of stripes.
+     *
+     * @param first Index of the first stripe.
+     * @param last Index of the last stripe.
+     * @return The stamps of the stripes, or <code>null</code> if one of them is write locked.
+     */
+    long[] tryOptimisticRead(int first, int last) {
+        long[] stamps = new long[last - first + 1];
+
+        for (int i = 0; i < stamps.length; i++) {
+            stamps[i] = this.stripes[first + i].tryOptimisticRead();
+            if (stamps[i] == 0L) {
+                return null;
+            }
+        }
+
+        return stamps;
+    }
+
+    /**
+     * Checks that no stripe of a range was write locked since an optimistic read started.
+     *
+     * @param first Index of the first stripe.
+     * @param stamps Stamps returned by {@link #tryOptimisticRead(int, int)}.
+     * @return true if the values read are consistent.
+     */
+    boolean validate(int first, long[] stamps) {
+        for (int i = 0; i < stamps.length; i++) {
+            if (!this.stripes[first + i].validate(stamps[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    long[] readLock(int first, int last) {
+        long[] stamps = new long[last - first + 1];
+        for (int i = 0; i < stamps.length; i++) {
+            stamps[i] = this.stripes[first + i].readLock();
+        }
+
+        this.held.get()[0] += stamps.length;
+        return stamps;
+    }
+
+    void unlockRead(int first, long[] stamps) {
+        for (int i = stamps.length - 1; i >= 0; i--) {
+            this.stripes[first + i].unlockRead(stamps[i]);
+        }
+
+        this.held.get()[0] -= stamps.length;
+    }
+
+    long[] writeLock(int first, int last) {
+        long[] stamps = new long[last - first + 1];
+        for (int i = 0; i < stamps.length; i++) {
+            stamps[i] = this.stripes[first + i].writeLock();
+        }
+
+        this.held.get()[0] += stamps.length;
+        return stamps;
+    }
+
+    void unlockWrite(int first, long[] stamps) {
+        for (int i = stamps.length - 1; i >= 0; i--) {
+            this.stripes[first + i].unlockWrite(stamps[i]);
+        }
+
+        this.held.get()[0] -= stamps.length;
+    }
+}
@@ -0,0 +1,123 @@
+package com.warships.tree;
+
+import java.util.Arrays;
+
+import com.warships.nodes.TechNode;
+
+/**
+ * Dense storage for the nodes of a tech tree. Nodes are kept row-major in three rows
+ * whose column capacity grows as the tree widens, so lookups are plain array reads.
+ * <br>
+ * Positions can also be packed into a single <code>int</code>, see {@link #pack(int, int)}.
+ */
+final class TechGrid {
+
+    static final int ROWS = 3;
+
+    private static final int DEFAULT_COLUMNS = 32;
+
+    /**
+     * Packed position offsets of the left, upper, right and lower neighbors, indexed by
+     * the directions of {@link TechNode}.
+     */
+    private static final int[] NEIGHBOR_OFFSETS = {-(1 << 2), 1, 1 << 2, -1};
+
+    /**
+     * Packs a position into a single integer. The Y position occupies the lowest two bits.
+     *
+     * @param x The X position.
+     * @param y The Y position.
+     * @return The packed position.
+     */
+    static int pack(int x, int y) {
+        return (x << 2) | y;
+    }
+
+    /**
+     * Gets the packed position next to a packed position. The neighbor of a position on
+     * the edge of the grid is a position that never holds a node.
+     *
+     * @param position The packed position.
+     * @param direction Direction of the neighbor, see {@link TechNode#LEFT}.
+     * @return The packed position of the neighbor.
+     */
+    static int neighbor(int position, int direction) {
+        return position + NEIGHBOR_OFFSETS[direction];
+    }
+
+    static int unpackX(int position) {
+        return position >> 2;
+    }
+
+    static int unpackY(int position) {
+        return position & 0b11;
+    }
+
+    private TechNode[][] rows;
+    private int width;
+
+    TechGrid(int columns) {
+        this.rows = new TechNode[ROWS][Math.max(1, columns)];
+        this.width = 0;
+    }
+
+    TechGrid() {
+        this(DEFAULT_COLUMNS);
+    }
+
+    /**
+     * Gets the number of columns in use, which is one more than the highest occupied X position.
+     *
+     * @return the width of the grid.
+     */
+    int width() {
+        return this.width;
+    }
+
+    /**
+     * Retrieves the node at a specified position.
+     *
+     * @param x The X position.
+     * @param y The Y position.
+     * @return The node, or <code>null</code> if the position is empty or outside the grid.
+     */
+    TechNode get(int x, int y) {
+        if (x < 0 || x >= this.width || y < 0 || y >= ROWS) {
+            return null;
+        }
+
+        return this.rows[y][x];
+    }
+
+    TechNode get(int position) {
+        return get(unpackX(position), unpackY(position));
+    }
+
+    /**
+     * Places a node at a specified position, growing the grid if necessary.
+     *
+     * @param x The X position. Must not be negative.
+     * @param y The Y position. Must be between 0 and 2.
+     * @param node The node to place.
+     */
+    void set(int x, int y, TechNode node) {
+        ensureCapacity(x + 1);
+
+        this.rows[y][x] = node;
+        if (x >= this.width) {
+            this.width = x + 1;
+        }
+    }
+
+    private void ensureCapacity(int columns) {
+        int capacity = this.rows[0].length;
+        if (columns <= capacity) {
+            return;
+        }
+
+        int newCapacity = Math.max(columns, capacity * 2);
+        for (int y = 0; y < ROWS; y++) {
+            this.rows[y] = Arrays.copyOf(this.rows[y], newCapacity);
+        }
+    }
+}
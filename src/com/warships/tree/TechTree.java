@@ -1,45 +1,101 @@
 package com.warships.tree;
 
 import java.awt.Point;
-import java.io.File;
-import java.nio.BufferOverflowException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.warships.constants.ConnectionConstants;
 import com.warships.constants.WarshipConstants;
+import com.warships.enums.NodeType;
+import com.warships.enums.UnlockResult;
+import com.warships.loaders.PresetCatalog;
 import com.warships.loaders.PresetLoader;
+import com.warships.nodes.AttachmentGroups;
 import com.warships.nodes.BonusNodes;
 import com.warships.nodes.ChoiceNode;
 import com.warships.nodes.EngineNode;
+import com.warships.nodes.NodeListener;
 import com.warships.nodes.TechNode;
 import com.warships.nodes.UpgradeNode;
 import com.warships.raffles.DefenseRaffle;
 import com.warships.raffles.GunboatRaffle;
-import com.warships.raffles.Raffle;
 import com.warships.raffles.TroopRaffle;
-import com.warships.utils.MathUtility;
-import com.warships.utils.StringUtility;
-
+import com.warships.utils.RandomEngine;
+
+/**
+ * A Warships tech tree. Its nodes may be changed and read from several threads at once
+ * as long as the changes go through {@link #unlockNode(int, int, int)},
+ * {@link #buyUpgrade(int, int)} and {@link #attemptConnection(int, int, String)}, and
+ * the reads through {@link #readNode(int, int, Function)}, {@link #readTree(Function)},
+ * the unlock path queries and rendering. Each engine room has its own lock, so changes
+ * to different rooms never wait on each other, and reads run optimistically without
+ * locking unless a change interferes. Nodes returned by {@link #getNode(int, int)} are
+ * not guarded.
+ */
 public class TechTree {
 
+    /**
+     * Number of columns of each engine room, from the two engine room to the six engine room.
+     */
+    private static final int[] ROOM_COLUMNS = {
+            WarshipConstants.TOTAL_COLUMNS_TWO_ENGINES,
+            WarshipConstants.TOTAL_COLUMNS_THREE_ENGINES,
+            WarshipConstants.TOTAL_COLUMNS_FOUR_ENGINES,
+            WarshipConstants.TOTAL_COLUMNS_FIVE_ENGINES,
+            WarshipConstants.TOTAL_COLUMNS_SIX_ENGINES,
+    };
+
+    /**
+     * Number of bonus nodes allowed in each engine room.
+     */
+    private static final int[] ROOM_BONUS_LIMITS = {
+            WarshipConstants.TWO_ENGINES_BONUS_LIMIT,
+            WarshipConstants.THREE_ENGINES_BONUS_LIMIT,
+            WarshipConstants.FOUR_ENGINES_BONUS_LIMIT,
+            WarshipConstants.FIVE_ENGINES_BONUS_LIMIT,
+            WarshipConstants.SIX_ENGINES_BONUS_LIMIT,
+    };
+
+    /**
+     * Index of the first engine room that must not run out of nodes.
+     */
+    private static final int FIRST_COMPLETE_ROOM = 3;
+
+    /**
+     * End of a range of columns covering the whole tree, generated or not.
+     */
+    private static final int ALL_COLUMNS = Integer.MAX_VALUE;
+
     /*
      * Notes on tree generation:
      * - Nodes should occupy every space on the map except on (0, 1).
      * - Three nodes per vertical axis
      */
 
-    private Map<Point, TechNode> tree;
-    private final PresetLoader loader;
-    private final GunboatRaffle gbeRaffle;
-    private final TroopRaffle troopRaffle;
-    private final DefenseRaffle defenseRaffle;
+    private final TechGrid tree;
+    private final NameIndex names;
+    private final AttachmentGroups attachments;
+    private final RenderCache renderCache;
+    private final UnlockPaths unlockPaths;
+    private final RoomLocks locks;
+    private RandomEngine random;
+    private PresetLoader loader;
+    private GunboatRaffle gbeRaffle;
+    private TroopRaffle troopRaffle;
+    private DefenseRaffle defenseRaffle;
+    private final NodeTypeWeights weights;
+    private final NodeTypeSampler nodeTypes;
 
     private int bonusNodes;
 
+    private int[] roomEnds;
+    private int roomCount;
+
     private int currentEngineNumber;
-    private int choiceNodes;
 
     private int lastTopX;
     private int lastMidX;
@@ -47,54 +103,353 @@ public class TechTree {
 
     private boolean ensureNoMissing;
 
+    private boolean lazy;
+
     /**
-     * Initializes a Warships tech tree with required nodes.
+     * Initializes a Warships tech tree with required nodes using a random seed.
      */
     public TechTree() {
-        this.tree = new HashMap<>();
-        this.loader = new PresetLoader(new File(WarshipConstants.PRESET_FILENAME));
+        this(RandomEngine.newSeed());
+    }
+
+    /**
+     * Initializes a Warships tech tree with required nodes. Trees created with the
+     * same seed are generated identically.
+     *
+     * @param seed Seed for every random decision made by this tree.
+     */
+    public TechTree(long seed) {
+        this(seed, NodeTypeWeights.DEFAULT);
+    }
+
+    /**
+     * Initializes a Warships tech tree with required nodes, drawing random node types
+     * with custom weights.
+     *
+     * @param seed Seed for every random decision made by this tree.
+     * @param weights Weights of each kind of random node.
+     */
+    public TechTree(long seed, NodeTypeWeights weights) {
+        this(seed, weights, true);
+    }
+
+    private TechTree(long seed, NodeTypeWeights weights, boolean withBaseNodes) {
+        this.tree = new TechGrid();
+        this.names = new NameIndex();
+        this.attachments = new AttachmentGroups();
+        this.renderCache = new RenderCache();
+        this.unlockPaths = new UnlockPaths();
+        this.locks = new RoomLocks(ROOM_COLUMNS.length);
+        this.random = new RandomEngine(seed);
+        this.loader = new PresetLoader(PresetCatalog.getDefault());
         this.ensureNoMissing = false;
 
-        this.gbeRaffle = new GunboatRaffle();
-        this.troopRaffle = new TroopRaffle();
-        this.defenseRaffle = new DefenseRaffle();
+        this.gbeRaffle = new GunboatRaffle(this.random);
+        this.troopRaffle = new TroopRaffle(this.random);
+        this.defenseRaffle = new DefenseRaffle(this.random);
+        this.weights = weights;
+        this.nodeTypes = new NodeTypeSampler(weights);
 
         this.currentEngineNumber = 1;
+        this.roomEnds = new int[5];
+        this.roomCount = 0;
 
         // Initialize total amount of buff nodes to use
         this.bonusNodes = WarshipConstants.TWO_ENGINES_BONUS_LIMIT;
-        this.choiceNodes = 12;
 
         // Total nodes = 75
 
-        initializeBaseNodes();
+        if (withBaseNodes) {
+            initializeBaseNodes();
+        }
+    }
+
+    /**
+     * Creates a tree without any nodes, to be filled with previously generated nodes.
+     *
+     * @param seed Seed the restored tree was generated from.
+     * @return The empty tree.
+     */
+    static TechTree createEmpty(long seed) {
+        return new TechTree(seed, NodeTypeWeights.DEFAULT, false);
+    }
+
+    /**
+     * Gets the catalog that upgrade nodes of this tree are created from.
+     *
+     * @return the preset catalog.
+     */
+    PresetCatalog getCatalog() {
+        return this.loader.getCatalog();
+    }
+
+    /**
+     * Places a node created from the preset catalog into a restored tree. The entry is
+     * drawn from the preset pool and the raffles, as it was when the tree was generated.
+     *
+     * @param x The X position of the node.
+     * @param y The Y position of the node.
+     * @param catalogIndex Index of the catalog entry.
+     * @return The placed node.
+     */
+    UpgradeNode restorePresetNode(int x, int y, int catalogIndex) {
+        String name = this.loader.getCatalog().getName(catalogIndex);
+        UpgradeNode node = this.loader.unloadNode(name);
+
+        this.troopRaffle.remove(name);
+        this.defenseRaffle.remove(name);
+        this.gbeRaffle.remove(name);
+
+        insertNode(x, y, node);
+        return node;
+    }
+
+    /**
+     * Places a node that is not part of the preset catalog into a restored tree.
+     *
+     * @param x The X position of the node.
+     * @param y The Y position of the node.
+     * @param node The node to place.
+     */
+    void restoreNode(int x, int y, TechNode node) {
+        insertNode(x, y, node);
     }
 
     /**
-     * Generates the tech tree.
+     * Records the last column of the next engine room of a restored tree.
+     *
+     * @param roomEnd The X position of the last column of the room.
+     */
+    void restoreRoom(int roomEnd) {
+        addRoom(roomEnd);
+        this.currentEngineNumber = this.roomCount + 1;
+    }
+
+    /**
+     * Lets a restored tree that was encoded before every engine room was generated
+     * generate its remaining rooms. The rooms it holds are generated again from the seed,
+     * and the random, preset and raffle state reached after them replaces the state of
+     * this tree, so the remaining rooms come out as they would have in the encoded tree.
+     * Only a lazily generated tree can hold some of its rooms, so a tree holding rooms
+     * keeps generating lazily.
+     *
+     * @throws IllegalArgumentException if the seed generates different engine rooms.
+     */
+    void resumeGeneration() {
+        TechTree generated = new TechTree(getSeed());
+        generated.exclusive(() -> {
+            while (generated.roomCount < this.roomCount) {
+                generated.generateNextRoom();
+            }
+            return null;
+        });
+
+        for (int room = 0; room < this.roomCount; room++) {
+            if (generated.roomEnds[room] != this.roomEnds[room]) {
+                throw new IllegalArgumentException("Room " + room + " was not generated from seed " + getSeed());
+            }
+        }
+
+        exclusive(() -> {
+            this.random = generated.random;
+            this.loader = generated.loader;
+            this.gbeRaffle = generated.gbeRaffle;
+            this.troopRaffle = generated.troopRaffle;
+            this.defenseRaffle = generated.defenseRaffle;
+            this.lazy = this.roomCount > 0;
+            return null;
+        });
+    }
+
+    /**
+     * Generates the tech tree. Rooms already built by {@link #generateLazily()} are kept
+     * and only the remaining rooms are generated.
      */
     public void generate() {
-        // Engine room 1 (Two engines)
-        insertEngineRoom(WarshipConstants.TOTAL_COLUMNS_TWO_ENGINES);
+        exclusive(() -> {
+            while (this.roomCount < ROOM_COLUMNS.length) {
+                generateNextRoom();
+            }
+            return null;
+        });
+    }
 
-        this.bonusNodes = WarshipConstants.THREE_ENGINES_BONUS_LIMIT;
-        // Engine room 2 (Three engines)
-        insertEngineRoom(WarshipConstants.TOTAL_COLUMNS_THREE_ENGINES);
+    /**
+     * Generates only the first engine room of the tech tree. Each later room is generated
+     * once the engine node before it is unlocked, or once a node past the generated
+     * columns is retrieved. Rooms draw from the same random and raffle state as
+     * {@link #generate()}, so the finished tree is identical to an eagerly generated one.
+     */
+    public void generateLazily() {
+        exclusive(() -> {
+            this.lazy = true;
 
-        this.bonusNodes = WarshipConstants.FOUR_ENGINES_BONUS_LIMIT;
-        // Engine room 3 (Four engines)
-        insertEngineRoom(WarshipConstants.TOTAL_COLUMNS_FOUR_ENGINES);
+            if (this.roomCount == 0) {
+                generateNextRoom();
+            }
+            return null;
+        });
+    }
 
-        this.bonusNodes = WarshipConstants.FIVE_ENGINES_BONUS_LIMIT;
-        this.ensureNoMissing = true;
-        // Engine room 4 (Five engines)
-        insertEngineRoom(WarshipConstants.TOTAL_COLUMNS_FIVE_ENGINES);
+    /**
+     * Checks if every engine room of this tree has been generated.
+     *
+     * @return true if no room is left to generate.
+     */
+    public boolean isFullyGenerated() {
+        return this.roomCount >= ROOM_COLUMNS.length;
+    }
 
-        this.bonusNodes = WarshipConstants.SIX_ENGINES_BONUS_LIMIT;
+    /**
+     * Generates the next engine room. Callers must hold every room lock.
+     */
+    private void generateNextRoom() {
+        int room = this.roomCount;
 
-        // Engine room 5 (Six engines)
-        insertEngineRoom(WarshipConstants.TOTAL_COLUMNS_SIX_ENGINES);
-        // TODO Generate the last engine room
+        this.bonusNodes = ROOM_BONUS_LIMITS[room];
+        if (room >= FIRST_COMPLETE_ROOM) {
+            this.ensureNoMissing = true;
+        }
+        insertEngineRoom(ROOM_COLUMNS[room]);
+    }
+
+    /**
+     * Generates engine rooms of a lazily generated tree until it covers a column. Nothing
+     * is generated while the calling thread holds a room lock, since generating needs
+     * every room lock; such callers generate once their locks are released.
+     *
+     * @param x The X position of the column.
+     */
+    private void ensureColumn(int x) {
+        if (!this.lazy || this.locks.isHeldByCurrentThread()) {
+            return;
+        }
+
+        exclusive(() -> {
+            while (x >= this.tree.width() && this.roomCount < ROOM_COLUMNS.length) {
+                generateNextRoom();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Gets the room lock guarding a column. Columns past the generated rooms share the
+     * lock of the next room to be generated.
+     *
+     * @param x The X position of the column.
+     * @return The index of the lock.
+     */
+    private int stripeOf(int x) {
+        int[] ends = this.roomEnds;
+        int rooms = Math.min(this.roomCount, ends.length);
+
+        int room = 0;
+        while (room < rooms && x > ends[room]) {
+            room++;
+        }
+
+        return Math.min(room, this.locks.count() - 1);
+    }
+
+    /**
+     * Gets the last room lock of a range of columns. A range ending at
+     * {@link #ALL_COLUMNS} takes every lock, including those of rooms a lazily generated
+     * tree has not generated yet.
+     */
+    private int lastStripeOf(int toX) {
+        return toX == ALL_COLUMNS ? this.locks.count() - 1 : stripeOf(toX);
+    }
+
+    /**
+     * Checks that locks still guard a range of columns. Rooms are only generated while
+     * every lock is held, so the check cannot go stale while any lock of the range is.
+     */
+    private boolean guards(int first, int last, int fromX, int toX) {
+        return stripeOf(fromX) >= first && lastStripeOf(toX) <= last;
+    }
+
+    /**
+     * Reads the columns between two positions. The read first runs without locking and is
+     * checked afterward; if a change to those columns interfered, it runs again holding
+     * the read locks of their rooms.
+     *
+     * @param fromX The first column read.
+     * @param toX The last column read.
+     * @param reader The read. It must not change the tree.
+     * @return The result of the read.
+     */
+    private <T> T read(int fromX, int toX, Supplier<T> reader) {
+        while (true) {
+            // The locks are picked before they are held, so a room generated in between
+            // may move the columns under other locks
+            int first = stripeOf(fromX);
+            int last = lastStripeOf(toX);
+
+            long[] stamps = this.locks.tryOptimisticRead(first, last);
+            if (stamps != null && guards(first, last, fromX, toX)) {
+                try {
+                    T result = reader.get();
+                    if (this.locks.validate(first, stamps)) {
+                        return result;
+                    }
+                } catch (RuntimeException ex) {
+                    // Torn state may throw, which only counts if nothing interfered
+                    if (this.locks.validate(first, stamps)) {
+                        throw ex;
+                    }
+                }
+            }
+
+            stamps = this.locks.readLock(first, last);
+            try {
+                if (guards(first, last, fromX, toX)) {
+                    return reader.get();
+                }
+            } finally {
+                this.locks.unlockRead(first, stamps);
+            }
+        }
+    }
+
+    /**
+     * Changes the columns between two positions while holding the write locks of their rooms.
+     *
+     * @param fromX The first column changed or read.
+     * @param toX The last column changed or read.
+     * @param writer The change.
+     * @return The result of the change.
+     */
+    private <T> T write(int fromX, int toX, Supplier<T> writer) {
+        while (true) {
+            int first = stripeOf(fromX);
+            int last = lastStripeOf(toX);
+
+            long[] stamps = this.locks.writeLock(first, last);
+            try {
+                if (guards(first, last, fromX, toX)) {
+                    return writer.get();
+                }
+            } finally {
+                this.locks.unlockWrite(first, stamps);
+            }
+        }
+    }
+
+    /**
+     * Changes the tree while holding every room lock.
+     */
+    private <T> T exclusive(Supplier<T> writer) {
+        return write(0, ALL_COLUMNS, writer);
+    }
+
+    /**
+     * Gets the seed this tree was generated from.
+     *
+     * @return the seed.
+     */
+    public long getSeed() {
+        return this.random.getSeed();
     }
 
     public List<String> getRemainingTroops() {
@@ -121,113 +476,342 @@ public class TechTree {
 
         int columnEndPos = this.lastBotX + 1;
 
-        MazeGenerator generator = new MazeGenerator(this.tree, columnStartPos, columnEndPos);
+        MazeGenerator generator = new MazeGenerator(this.tree, columnStartPos, columnEndPos, this.random);
         generator.generateMaze();
 
-        this.tree = generator.getResult();
+        addRoom(columnEndPos - 1);
+    }
+
+    private void addRoom(int roomEnd) {
+        if (this.roomCount == this.roomEnds.length) {
+            this.roomEnds = Arrays.copyOf(this.roomEnds, this.roomCount * 2);
+        }
+        this.roomEnds[this.roomCount++] = roomEnd;
+    }
+
+    /**
+     * Gets the number of engine rooms generated so far.
+     *
+     * @return the number of engine rooms.
+     */
+    public int getRoomCount() {
+        return this.roomCount;
+    }
+
+    /**
+     * Gets the last column of an engine room, which holds the engine node of the room.
+     * The first room also covers the starting columns.
+     *
+     * @param room Index of the room, starting at 0.
+     * @return The X position of the last column of the room.
+     */
+    public int getRoomEnd(int room) {
+        if (room < 0 || room >= this.roomCount) {
+            throw new IndexOutOfBoundsException("Room " + room + " of " + this.roomCount);
+        }
+
+        return this.roomEnds[room];
     }
 
     /**
-     * Retrieves the node at a specified position.
+     * Retrieves the node at a specified position. On a lazily generated tree, retrieving
+     * a node past the generated columns generates the rooms up to it.
      *
      * @param x The X position of the node.
      * @param y The Y position of the node.
      * @return The node located at (x, y), or <code>null</code> if no node exists at this location.
      */
     public TechNode getNode(int x, int y) {
-        Point point = new Point(x, y);
+        if (x >= tree.width()) {
+            ensureColumn(x);
+        }
 
-        return tree.get(point);
+        return tree.get(x, y);
     }
 
-    public Point getPositionOf(String name) {
-        for (Map.Entry<Point, TechNode> id : this.tree.entrySet()) {
-            Point nodePos = id.getKey();
+    /**
+     * Retrieves the node at a packed position.
+     *
+     * @param position Position created with {@link #packPosition(int, int)}.
+     * @return The node located at the position, or <code>null</code> if no node exists at this location.
+     */
+    public TechNode getNode(int position) {
+        return getNode(TechGrid.unpackX(position), TechGrid.unpackY(position));
+    }
 
-            if (id.getValue().getName().equals(name)) {
-                return new Point(nodePos);
-            }
+    /**
+     * Packs a position into a single integer for use with {@link #getNode(int)}.
+     *
+     * @param x The X position.
+     * @param y The Y position.
+     * @return The packed position.
+     */
+    public static int packPosition(int x, int y) {
+        return TechGrid.pack(x, y);
+    }
+
+    /**
+     * Gets the packed position next to a packed position, for walking the connections of
+     * a node with {@link TechNode#getNextNode(int)}.
+     *
+     * @param position The packed position.
+     * @param direction Direction of the neighbor, see {@link TechNode#LEFT}.
+     * @return The packed position of the neighbor.
+     */
+    public static int neighborPosition(int position, int direction) {
+        return TechGrid.neighbor(position, direction);
+    }
+
+    public static int unpackX(int position) {
+        return TechGrid.unpackX(position);
+    }
+
+    public static int unpackY(int position) {
+        return TechGrid.unpackY(position);
+    }
+
+    /**
+     * Gets the number of columns in the tree. On a lazily generated tree, only the
+     * generated rooms are counted.
+     *
+     * @return the width of the tree.
+     */
+    public int getWidth() {
+        return tree.width();
+    }
+
+    /**
+     * Gets the number of packed positions the generated columns can hold, so that arrays
+     * indexed by packed position can be sized. Positions that hold no node are included.
+     *
+     * @return a bound larger than every packed position of the tree.
+     */
+    public int getPositionCount() {
+        return TechGrid.pack(tree.width(), 0);
+    }
+
+    /**
+     * Gets the position of a node by name. If several nodes share the name, the position
+     * of the first inserted one is returned.
+     *
+     * @param name Name of the node.
+     * @return The position of the node, or <code>null</code> if no node has this name.
+     */
+    public Point getPositionOf(String name) {
+        int position = names.first(name);
+        if (position < 0) {
+            return null;
         }
 
-        return null;
+        return new Point(TechGrid.unpackX(position), TechGrid.unpackY(position));
     }
 
+    /**
+     * Gets a node by name. If several nodes share the name, the first inserted one is returned.
+     *
+     * @param name Name of the node.
+     * @return The node, or <code>null</code> if no node has this name.
+     */
     public TechNode getNode(String name) {
-        for (Map.Entry<Point, TechNode> id : this.tree.entrySet()) {
-            String nodeName = id.getValue().getName();
+        int position = names.first(name);
+
+        return position < 0 ? null : tree.get(position);
+    }
+
+    /**
+     * Gets every node carrying a name, in insertion order.
+     *
+     * @param name Name of the nodes.
+     * @return The matching nodes.
+     */
+    public List<TechNode> getNodes(String name) {
+        List<Integer> positions = names.all(name);
+        List<TechNode> nodes = new ArrayList<>(positions.size());
+
+        for (int position : positions) {
+            nodes.add(tree.get(position));
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Gets the cheapest total cost of unlocking a node, counting every locked node that
+     * must be unlocked on the way and the node itself. Results are cached until a node
+     * of the tree changes.
+     *
+     * @param x The X position of the node.
+     * @param y The Y position of the node.
+     * @return The cost, 0 if the node is unlocked, or -1 if it cannot be reached.
+     */
+    public int getCheapestUnlockCost(int x, int y) {
+        int cost = read(0, ALL_COLUMNS, () -> unlockPaths.costTo(this, x, y));
+
+        return cost == UnlockPaths.UNREACHABLE ? -1 : cost;
+    }
+
+    /**
+     * Gets the locked nodes to unlock, in order, to reach a node as cheaply as possible.
+     *
+     * @param x The X position of the node.
+     * @param y The Y position of the node.
+     * @return The positions to unlock, ending with the node itself. The list is empty if the
+     * node is unlocked, or <code>null</code> if it cannot be reached.
+     */
+    public List<Point> getCheapestUnlockPath(int x, int y) {
+        return read(0, ALL_COLUMNS, () -> {
+            if (unlockPaths.costTo(this, x, y) == UnlockPaths.UNREACHABLE) {
+                return null;
+            }
 
-            if (nodeName.equals(name)) {
-                return id.getValue();
+            List<Point> path = new ArrayList<>();
+            for (int cell = TechGrid.pack(x, y); cell >= 0; cell = unlockPaths.previousOf(this, cell)) {
+                TechNode node = tree.get(cell);
+                if (node.isUnlocked()) {
+                    break;
+                }
+                path.add(new Point(TechGrid.unpackX(cell), TechGrid.unpackY(cell)));
+            }
+            Collections.reverse(path);
+
+            return path;
+        });
+    }
+
+    /**
+     * Discards the cached unlock paths so that the next query searches again.
+     */
+    void invalidateUnlockPaths() {
+        unlockPaths.invalidate();
+    }
+
+    /**
+     * Gets the position of the engine node of an engine room.
+     *
+     * @param room Index of the room, starting at 0.
+     * @return The position of the engine node.
+     */
+    public Point getEnginePosition(int room) {
+        int x = getRoomEnd(room);
+
+        for (int y = 0; y < TechGrid.ROWS; y++) {
+            if (tree.get(x, y) instanceof EngineNode) {
+                return new Point(x, y);
             }
         }
 
-        return null;
+        throw new IllegalStateException("Room " + room + " has no engine node in column " + x);
     }
 
+    /**
+     * Buys the next upgrade level of a node.
+     *
+     * @param x The X position of the node.
+     * @param y The Y position of the node.
+     * @return true if the node was upgraded.
+     */
     public boolean buyUpgrade(int x, int y) {
-        TechNode node = getNode(x, y);
-        if ((node instanceof UpgradeNode) && node.canBeUnlocked()) {
-            UpgradeNode upnode = (UpgradeNode) node;
-            return upnode.upgrade();
-        } else {
-            return false;
+        if (x >= tree.width()) {
+            ensureColumn(x);
         }
+
+        return write(x - 1, x + 1, () -> {
+            TechNode node = tree.get(x, y);
+            if ((node instanceof UpgradeNode) && node.canBeUnlocked()) {
+                UpgradeNode upnode = (UpgradeNode) node;
+                return upnode.upgrade();
+            } else {
+                return false;
+            }
+        });
     }
 
     /**
-     * Outputs the tech tree to the console.
+     * Unlocks a node next to an unlocked node. Unlocking the engine node of a lazily
+     * generated tree generates the next engine room.
+     *
+     * @param x The X position of the node.
+     * @param y The Y position of the node.
+     * @param selection Index of the option to pick if the node is a choice node, or -1.
+     * @return The outcome.
      */
-    public void displayNodes() {
-        StringBuilder nodes = new StringBuilder();
-        // Buffer string for connectors between vertical nodes
-        StringBuilder buff = new StringBuilder();
-
-        final int connectorSpace = TechNode.NODE_WIDTH + WarshipConstants.HORIZONTAL_CONNECTION_LENGTH;
-
-        for (int y = 2; y >= 0; y--) {
-            int maxX = getMaxValueX(y);
-
-            for (int x = 0; x <= maxX; x++) {
-                TechNode currentNode = getNode(x, y);
-
-                // Check if a node is present
-                if (currentNode != null) {
-                    // Display the node
-                    nodes.append(currentNode);
-
-                    appendHorizontalConnection(nodes, currentNode.hasRight());
-
-                    // Check for a lower connection
-                    if (currentNode.hasLower() && y > 0) {
-                        // Add connector to buffer line
-                        final int nodeFirstHalfWidth = WarshipConstants.NODE_NAME_MIN_WIDTH + 1;
-                        final int firstHalfWithConnector = nodeFirstHalfWidth - WarshipConstants.VERTICAL_CONNECTOR.length();
-
-                        appendSpaces(buff, firstHalfWithConnector);
-                        buff.append(WarshipConstants.VERTICAL_CONNECTOR);
-                        // Append spaces equal to the amount of the remaining width of the node
-                        appendSpaces(buff, TechNode.NODE_WIDTH - nodeFirstHalfWidth);
-                        // Fill in the space where a connector should be
-                        appendSpaces(buff, WarshipConstants.HORIZONTAL_CONNECTION_LENGTH);
-                    } else if (y == 0) {
-                        // Display the X axis labels
-                        appendGridX(buff, x);
-                    } else {
-                        // Empty connection
-                        appendSpaces(buff, connectorSpace);
-                    }
-                } else {
-                    // Empty spot for a node
-                    appendSpaces(nodes, connectorSpace);
-                    appendSpaces(buff, connectorSpace);
-                }
+    public UnlockResult unlockNode(int x, int y, int selection) {
+        if (x >= tree.width()) {
+            ensureColumn(x);
+        }
+
+        UnlockResult result = write(x - 1, x + 1, () -> {
+            TechNode node = tree.get(x, y);
+            if (node == null) {
+                return UnlockResult.NO_NODE;
+            } else if (!node.canBeUnlocked()) {
+                return UnlockResult.BLOCKED;
+            }
+
+            if (!(node instanceof ChoiceNode)) {
+                node.unlock();
+            } else if (selection != -1) {
+                ((ChoiceNode) node).unlock(selection);
+            } else {
+                return UnlockResult.NO_SELECTION;
             }
+            return UnlockResult.UNLOCKED;
+        });
 
-            System.out.println(nodes);
-            System.out.println(buff);
-            nodes.setLength(0);
-            buff.setLength(0);
+        // Generating needs every room lock, so it waits until the unlock is done
+        if (result == UnlockResult.UNLOCKED && tree.get(x, y) instanceof EngineNode) {
+            ensureColumn(x + 1);
         }
+
+        return result;
+    }
+
+    /**
+     * Reads a node consistently while other threads may change the tree. The read sees
+     * the node and its neighbors as they were between two changes.
+     *
+     * @param x The X position of the node.
+     * @param y The Y position of the node.
+     * @param reader Function reading the node, which may be <code>null</code>. It must not change the tree.
+     * @param <T> Type of the result.
+     * @return The result of the read.
+     */
+    public <T> T readNode(int x, int y, Function<? super TechNode, ? extends T> reader) {
+        if (x >= tree.width()) {
+            ensureColumn(x);
+        }
+
+        return read(x - 1, x + 1, () -> reader.apply(tree.get(x, y)));
+    }
+
+    /**
+     * Reads the whole tree consistently while other threads may change it.
+     *
+     * @param reader Function reading the tree. It must not change the tree or read past
+     *               the generated columns.
+     * @param <T> Type of the result.
+     * @return The result of the read.
+     */
+    public <T> T readTree(Function<? super TechTree, ? extends T> reader) {
+        return read(0, ALL_COLUMNS, () -> reader.apply(this));
+    }
+
+    /**
+     * Outputs the tech tree to the console. Only rows containing nodes that changed
+     * since the last render are rendered again, and the frame is written at once.
+     * See {@link TreeRenderer} for writing to other destinations.
+     */
+    public void displayNodes() {
+        System.out.print(renderFrame());
+    }
+
+    /**
+     * Brings the render cache up to date and gets the rendered tree.
+     *
+     * @return every line of the rendered tree.
+     */
+    String renderFrame() {
+        return read(0, ALL_COLUMNS, () -> this.renderCache.refresh(this));
     }
 
     /**
@@ -240,30 +824,35 @@ public class TechTree {
      * @return true if the connection was possible.
      */
     public boolean attemptConnection(int x, int y, String connection) {
-        TechNode node = getNode(x, y);
+        // Joining attachment groups may reach any room
+        return exclusive(() -> connect(x, y, connection));
+    }
+
+    private boolean connect(int x, int y, String connection) {
+        TechNode node = tree.get(x, y);
         if (node == null) {
             return false;
         }
 
-        TechNode leftNode = getNode(x - 1, y);
+        TechNode leftNode = tree.get(x - 1, y);
         if (ConnectionConstants.LEFT.equals(connection) && isConnectionPossible(node, leftNode)) {
             node.setNextLeftNode(leftNode);
             return true;
         }
 
-        TechNode upperNode = getNode(x, y + 1);
+        TechNode upperNode = tree.get(x, y + 1);
         if (ConnectionConstants.UPPER.equals(connection) && isConnectionPossible(node, upperNode)) {
             node.setNextUpperNode(upperNode);
             return true;
         }
 
-        TechNode rightNode = getNode(x + 1, y);
+        TechNode rightNode = tree.get(x + 1, y);
         if (ConnectionConstants.RIGHT.equals(connection) && isConnectionPossible(node, rightNode)) {
             node.setNextRightNode(rightNode);
             return true;
         }
 
-        TechNode lowerNode = getNode(x, y - 1);
+        TechNode lowerNode = tree.get(x, y - 1);
         if (ConnectionConstants.LOWER.equals(connection) && isConnectionPossible(node, lowerNode)) {
             node.setNextLowerNode(lowerNode);
             return true;
@@ -298,26 +887,26 @@ public class TechTree {
         UpgradeNode defense1 = loader.unloadNode(this.defenseRaffle.removeNonOverpowered());
         defense1.unlock();
         insertNode(1, 2, defense1);
-        attemptConnection(1, 2, ConnectionConstants.LEFT);
+        connect(1, 2, ConnectionConstants.LEFT);
 
         // Necessary troop node (second node in middle row)
         UpgradeNode troop = loader.unloadNode(this.troopRaffle.removeFirstChoice());
         troop.unlock();
         insertNode(1, 1, troop);
-        attemptConnection(1, 1, ConnectionConstants.UPPER);
+        connect(1, 1, ConnectionConstants.UPPER);
 
         // Defensive node 2 (right of landing craft node)
         UpgradeNode defense2 = loader.unloadNode(this.defenseRaffle.removeNonOverpowered());
         defense2.unlock();
         insertNode(1, 0, defense2);
-        attemptConnection(1, 0, ConnectionConstants.LEFT);
-        attemptConnection(1, 0, ConnectionConstants.UPPER);
+        connect(1, 0, ConnectionConstants.LEFT);
+        connect(1, 0, ConnectionConstants.UPPER);
 
         // Defensive node 3 (right of troop node)
         UpgradeNode defense3 = loader.unloadNode(this.defenseRaffle.removeNonOverpowered());
         defense3.unlock();
         insertNode(2, 1, defense3);
-        attemptConnection(2, 1, ConnectionConstants.LEFT);
+        connect(2, 1, ConnectionConstants.LEFT);
 
         // At this point, the tree meets the minimum requirements of having at least three
         // defenses (for generating choice nodes) and one troop node. So we can start the
@@ -326,12 +915,12 @@ public class TechTree {
         // Random node 1 (top row)
         UpgradeNode random1 = randomUpgradeNode();
         insertNode(2, 2, random1);
-        attemptConnection(2, 2, ConnectionConstants.LOWER);
+        connect(2, 2, ConnectionConstants.LOWER);
 
         // Random node 2 (bottom row)
         UpgradeNode random2 = randomUpgradeNode();
         insertNode(2, 0, random2);
-        attemptConnection(2, 0, ConnectionConstants.UPPER);
+        connect(2, 0, ConnectionConstants.UPPER);
     }
 
     /**
@@ -379,35 +968,13 @@ public class TechTree {
         }
     }
 
-    /**
-     * Appends an X axis label to a string builder.
-     *
-     * @param builder StringBuilder to append to.
-     * @param x X position.
-     */
-    private static void appendGridX(StringBuilder builder, int x) {
-        final int leftHalf = WarshipConstants.NODE_NAME_MIN_WIDTH + 1;
-        builder.append(StringUtility.repeat(WarshipConstants.BLANK_SPACE, leftHalf));
-
-        builder.append(x);
-
-        if (x < 10) {
-            builder.append(WarshipConstants.BLANK_SPACE);
-        }
-
-        final int secondHalf = (TechNode.NODE_WIDTH - leftHalf) - 2;
-        builder.append(StringUtility.repeat(WarshipConstants.BLANK_SPACE, secondHalf));
-
-        appendSpaces(builder, WarshipConstants.HORIZONTAL_CONNECTION_LENGTH);
-    }
-
     /**
      * Inserts two unattached regular nodes and one engine node in a column.
      *
      * @param starterX The column number to generate at. There should be no nodes at this position.
      */
     private void generateEngineColumn(int starterX) {
-        int engineSpot = MathUtility.random(0, 2);
+        int engineSpot = this.random.random(0, 2);
 
         for (int y = 0; y <= 2; y++) {
             if (y == engineSpot) {
@@ -428,7 +995,7 @@ public class TechTree {
      * @param y Row number.
      * @return The last columns position.
      */
-    private int getMaxValueX(int y) {
+    int getMaxValueX(int y) {
         switch (y) {
             case 2:
                 return this.lastTopX;
@@ -448,12 +1015,12 @@ public class TechTree {
      * @return The removed node.
      */
     private TechNode randomNode() {
-        boolean isNodeChoice = MathUtility.chance(WarshipConstants.CHOICE_NODE_CHANCE);
+        boolean isNodeChoice = this.random.chance(this.weights.getChoiceChance());
+        updateNodeTypes();
 
-        if ((loader.isEmpty() && this.bonusNodes == 0) || isNodeChoice) {
+        if (this.nodeTypes.isEmpty() || isNodeChoice) {
             // The random selection is a choice node
-            this.choiceNodes--;
-            return new ChoiceNode(this.defenseRaffle);
+            return new ChoiceNode(this.defenseRaffle, this.random);
         } else {
             return randomUpgradeNode();
         }
@@ -466,113 +1033,80 @@ public class TechTree {
      * @return The removed node.
      */
     private UpgradeNode randomUpgradeNode() {
-        if (loader.isEmpty() && this.bonusNodes == 0) {
+        updateNodeTypes();
+
+        NodeType type = this.nodeTypes.sample(this.random);
+        if (type == null) {
             return null;
         }
 
-        int type;
-        if (!loader.isEmpty() && (this.ensureNoMissing || MathUtility.chance(WarshipConstants.COMPONENT_NODE_CHANCE))) {
-            // This node will be a random troop/defense/gunboat
-            type = MathUtility.random(0, 2);
-            if (areOptionsAvailable(type)) {
-                // Pull from the troop raffle
-                type = 0;
-            }
-        } else {
-            // Random bonus node
-            type = MathUtility.random(3, 7);
+        switch (type) {
+            case TROOP:
+                if (this.currentEngineNumber == 1) {
+                    // Use a simple option for the first engine room
+                    return loader.unloadNode(troopRaffle.removeFirstChoice());
+                } else if (this.currentEngineNumber < 4) {
+                    // The tree can afford more advanced troop options
+                    // after the specified engine number
+                    return loader.unloadNode(troopRaffle.removeNonOverpowered());
+                } else {
+                    // Anything goes in the later engine rooms
+                    return loader.unloadNode(troopRaffle.removeRandom());
+                }
+            case DEFENSE:
+                if (this.currentEngineNumber > 1) {
+                    return loader.unloadNode(defenseRaffle.removeRandom());
+                } else {
+                    // To ensure a fair tree, avoid strong defenses in the
+                    // first engine room.
+                    return loader.unloadNode(defenseRaffle.removeNonOverpowered());
+                }
+            case GUNBOAT_ABILITY:
+                return loader.unloadNode(gbeRaffle.removeRandom());
+            case GUNBOAT_ENERGY:
+                this.bonusNodes--;
+                return new UpgradeNode(BonusNodes.GBE);
+            case TROOP_DAMAGE:
+                this.bonusNodes--;
+                return new UpgradeNode(BonusNodes.TROOP_DAMAGE);
+            case BUILDING_DAMAGE:
+                this.bonusNodes--;
+                return new UpgradeNode(BonusNodes.BUILDING_DAMAGE);
+            case TROOP_HEALTH:
+                this.bonusNodes--;
+                return new UpgradeNode(BonusNodes.TROOP_HEALTH);
+            case BUILDING_HEALTH:
+                this.bonusNodes--;
+                return new UpgradeNode(BonusNodes.BUILDING_HEALTH);
+            default:
+                throw new RuntimeException("Unknown node type: " + type);
         }
+    }
 
-        int repeats = 0;
-
-        while (true) {
-            /*
-             * This switch statement intentionally does not have break statements
-             * to allow iteration over alternative options.
-             */
-            switch (type) {
-                case 0:
-                    // Troop was chosen
-                    if (!troopRaffle.isEmpty()) {
-                        if (this.currentEngineNumber == 1) {
-                            // Use a simple option for the first engine room
-                            return loader.unloadNode(troopRaffle.removeFirstChoice());
-                        } else if (this.currentEngineNumber < 4) {
-                            // The tree can afford more advanced troop options
-                            // after the specified engine number
-                            return loader.unloadNode(troopRaffle.removeNonOverpowered());
-                        } else {
-                            // Anything goes in the later engine rooms
-                            return loader.unloadNode(troopRaffle.removeRandom());
-                        }
-                    }
-                case 1:
-                    // Defense was chosen
-                    if (!defenseRaffle.isEmpty()) {
-                        if (this.currentEngineNumber > 1) {
-                            return loader.unloadNode(defenseRaffle.removeRandom());
-                        } else {
-                            // To ensure a fair tree, avoid strong defenses in the
-                            // first engine room.
-                            return loader.unloadNode(defenseRaffle.removeNonOverpowered());
-                        }
-                    }
-                case 2:
-                    // Gunboat ability was chosen
-                    if (!gbeRaffle.isEmpty()) {
-                        return loader.unloadNode(gbeRaffle.removeRandom());
-                    }
-                case 3:
-                    // Bonus GBE node
-                    if (this.bonusNodes > 0) {
-                        this.bonusNodes--;
-                        return new UpgradeNode(BonusNodes.GBE);
-                    }
-                case 4:
-                    // Bonus Troop Damage node
-                    if (this.bonusNodes > 0) {
-                        this.bonusNodes--;
-                        return new UpgradeNode(BonusNodes.TROOP_DAMAGE);
-                    }
-                case 5:
-                    // Bonus defense damage node
-                    if (this.bonusNodes > 0) {
-                        this.bonusNodes--;
-                        return new UpgradeNode(BonusNodes.BUILDING_DAMAGE);
-                    }
-                case 6:
-                    // Bonus troop health node
-                    if (this.bonusNodes > 0) {
-                        this.bonusNodes--;
-                        return new UpgradeNode(BonusNodes.TROOP_HEALTH);
-                    }
-                case 7:
-                    // Bonus defense health node
-                    if (this.bonusNodes > 0) {
-                        this.bonusNodes--;
-                        return new UpgradeNode(BonusNodes.BUILDING_HEALTH);
-                    }
-
-                    // FIXME this fallback operation needs to be optimized
-                    if (repeats >= 30) {
-                        // For some reason, we could not locate any possible node.
-                        throw new BufferOverflowException();
-                    }
+    /**
+     * Tells the node type sampler which types can currently be drawn. Base game
+     * components are available while their raffle has tickets, and bonus nodes while
+     * the bonus budget lasts. Once the tree must not miss any component, bonus nodes
+     * are held back until every component has been placed.
+     */
+    private void updateNodeTypes() {
+        int components = 0;
+        if (!this.troopRaffle.isEmpty()) {
+            components |= NodeTypeSampler.bitOf(NodeType.TROOP);
+        }
+        if (!this.defenseRaffle.isEmpty()) {
+            components |= NodeTypeSampler.bitOf(NodeType.DEFENSE);
+        }
+        if (!this.gbeRaffle.isEmpty()) {
+            components |= NodeTypeSampler.bitOf(NodeType.GUNBOAT_ABILITY);
+        }
 
-                    // Setting the type to 0-2 will allow iteration over each
-                    // possible option for using a random node.
-                    type = MathUtility.random(0, 2);
-                    repeats++;
-                    break;
-                default:
-                    throw new RuntimeException("Random number contains unknown value: " + type);
-            }
+        int bonuses = 0;
+        if (this.bonusNodes > 0 && !(this.ensureNoMissing && components != 0)) {
+            bonuses = NodeTypeSampler.BONUS_TYPES;
         }
-    }
 
-    private boolean areOptionsAvailable(int option) {
-        return (option == 1 && (this.defenseRaffle.isEmpty() && this.gbeRaffle.isEmpty()))
-                || (option == 2 && this.gbeRaffle.isEmpty());
+        this.nodeTypes.setAvailable(components | bonuses);
     }
 
     /**
@@ -601,7 +1135,50 @@ public class TechTree {
                 throw new ArrayIndexOutOfBoundsException("Index of Y:" + y);
         }
 
-        tree.put(new Point(x, y), node);
+        TechNode previous = tree.get(x, y);
+        if (previous != null) {
+            previous.setListener(null);
+            names.remove(previous.getName(), TechGrid.pack(x, y));
+        }
+
+        tree.set(x, y, node);
+        names.add(node.getName(), TechGrid.pack(x, y));
+        node.setListener(new NodeBinding(TechGrid.pack(x, y)));
+        node.joinAttachmentGroups(this.attachments);
+        renderCache.markChanged(x, y);
+        unlockPaths.invalidate();
+    }
+
+    /**
+     * Binds a node to its position in this tree, keeping the name index and the render
+     * cache up to date as the node changes.
+     */
+    private final class NodeBinding implements NodeListener {
+
+        private final int position;
+
+        private NodeBinding(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public void nodeRenamed(TechNode node, String previousName) {
+            names.remove(previousName, this.position);
+            names.add(node.getName(), this.position);
+            nodeChanged(node);
+        }
+
+        @Override
+        public void nodeChanged(TechNode node) {
+            renderCache.markChanged(TechGrid.unpackX(this.position), TechGrid.unpackY(this.position));
+            unlockPaths.invalidate();
+
+            // Unlocking an engine opens the next engine room, unless the unlock holds a
+            // room lock and opens it itself
+            if (lazy && node instanceof EngineNode && node.isUnlocked()) {
+                ensureColumn(TechGrid.unpackX(this.position) + 1);
+            }
+        }
     }
 
     /**
@@ -664,14 +1241,6 @@ public class TechTree {
         }
     }
 
-    private static UpgradeNode useNodeForRandom(PresetLoader preloader, Raffle raffle) {
-        if (!raffle.isEmpty()) {
-            return preloader.unloadNode(raffle.removeRandom());
-        }
-
-        return null;
-    }
-
     /**
      * Checks if a connection could be made between two nodes. A connection is
      * possible if both nodes are non-null and are in the same engine room.
@@ -683,31 +1252,4 @@ public class TechTree {
     private static boolean isConnectionPossible(TechNode node1, TechNode node2) {
         return node1 != null && node2 != null && node1.isSameEngine(node2);
     }
-
-    /**
-     * Inserts a specified amount of spaces into a string builder object.
-     *
-     * @param str StringBuilder to use.
-     * @param spaces Amount of spaces.
-     */
-    private static void appendSpaces(StringBuilder str, int spaces) {
-        str.append(StringUtility.repeat(WarshipConstants.BLANK_SPACE, Math.max(0, spaces)));
-    }
-
-    /**
-     * Inserts a connector string to a string builder object. This method is intended for use
-     * within the display function only.
-     *
-     * @param builder StringBuilder to use (should contain nodes).
-     * @param connected If the function should append a connection.
-     */
-    private static void appendHorizontalConnection(StringBuilder builder, boolean connected) {
-        for (int i = 0; i < WarshipConstants.HORIZONTAL_CONNECTION_LENGTH; i++) {
-            if (connected) {
-                builder.append(WarshipConstants.HORIZONTAL_CONNECTOR);
-            } else {
-                builder.append(WarshipConstants.BLANK_SPACE);
-            }
-        }
-    }
 }
@@ -0,0 +1,437 @@
+package com.warships.tree;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.warships.enums.NodeType;
+import com.warships.loaders.PresetCatalog;
+import com.warships.nodes.BonusNodes;
+import com.warships.nodes.ChoiceNode;
+import com.warships.nodes.EngineNode;
+import com.warships.nodes.TechNode;
+import com.warships.nodes.UpgradeNode;
+import com.warships.raffles.DefenseRaffle;
+
+import static java.util.AbstractMap.SimpleEntry;
+
+/**
+ * Compact binary form of a tech tree, for saving trees and sharing them as text codes.
+ * Nodes are stored as indices into the preset catalog and the defense tickets, so
+ * restoring a tree never parses the preset file again once the catalog is loaded.
+ * Catalog indices follow the order of the preset file, and defense tickets are numbered
+ * by name in sorted order rather than by their order in the raffle table. The header
+ * holds a hash of both, and a tree is only restored with the same catalog and tickets it
+ * was encoded with. A tree encoded before all of its engine rooms were generated
+ * generates the remaining rooms from its seed once restored, as the encoded tree would.
+ * <br>
+ * Layout, all values unsigned bytes unless noted:
+ * <pre>
+ * 'W' 'T' version
+ * seed (8 bytes, big-endian)
+ * content hash of the catalog and tickets (8 bytes, big-endian)
+ * width, room count, last column of each room
+ * per cell, column by column from the bottom row up:
+ *     header: connections (bits 0-3: left, upper, right, lower) | kind &lt;&lt; 4
+ *     if not empty:
+ *         state: upgrade level (bits 0-2) | attached &lt;&lt; 3 | unlocked &lt;&lt; 4
+ *         preset: catalog index
+ *         bonus: bonus index
+ *         choice: 3 x (defense ticket ID, amount), selection or 0xFF
+ *         engine: engine number
+ * </pre>
+ */
+public final class TreeCodec {
+
+    private static final byte MAGIC_FIRST = 'W';
+    private static final byte MAGIC_SECOND = 'T';
+    private static final byte VERSION = 2;
+
+    private static final int HEADER_SIZE = 21;
+
+    /**
+     * Largest number of bytes a single cell can take, which is a choice node.
+     */
+    private static final int MAX_CELL_SIZE = 9;
+
+    private static final int STATE_ATTACHED = 1 << 3;
+    private static final int STATE_UNLOCKED = 1 << 4;
+    private static final int NO_SELECTION = 0xFF;
+
+    private static final NodeType[] BONUS_TYPES = {
+            NodeType.GUNBOAT_ENERGY, NodeType.TROOP_DAMAGE, NodeType.BUILDING_DAMAGE,
+            NodeType.TROOP_HEALTH, NodeType.BUILDING_HEALTH
+    };
+
+    private static final UpgradeNode[] BONUS_TEMPLATES = {
+            BonusNodes.GBE, BonusNodes.TROOP_DAMAGE, BonusNodes.BUILDING_DAMAGE,
+            BonusNodes.TROOP_HEALTH, BonusNodes.BUILDING_HEALTH
+    };
+
+    /**
+     * Defense tickets by ID, sorted by name so that IDs do not depend on the declaration
+     * order of the raffle fields.
+     */
+    private static final String[] CHOICE_TICKETS;
+    private static final Map<String, Integer> CHOICE_IDS;
+    private static final long TICKET_HASH;
+
+    static {
+        CHOICE_TICKETS = new String[DefenseRaffle.TICKETS.size()];
+        for (int i = 0; i < CHOICE_TICKETS.length; i++) {
+            CHOICE_TICKETS[i] = DefenseRaffle.TICKETS.getName(i);
+        }
+        Arrays.sort(CHOICE_TICKETS);
+
+        CHOICE_IDS = new HashMap<>();
+        // FNV-1a over every ticket name, in ID order
+        long hash = 0xCBF29CE484222325L;
+        for (int id = 0; id < CHOICE_TICKETS.length; id++) {
+            CHOICE_IDS.put(CHOICE_TICKETS[id], id);
+
+            for (int c = 0; c < CHOICE_TICKETS[id].length(); c++) {
+                hash = (hash ^ CHOICE_TICKETS[id].charAt(c)) * 0x100000001B3L;
+            }
+            hash = (hash ^ 0xFFFF) * 0x100000001B3L;
+        }
+        TICKET_HASH = hash;
+    }
+
+    /**
+     * Gets the largest number of bytes the encoding of a tree can take.
+     *
+     * @param tree The tree to measure.
+     * @return an upper bound of the encoded size.
+     */
+    public static int maxEncodedSize(TechTree tree) {
+        return HEADER_SIZE + tree.getRoomCount() + tree.getWidth() * TechGrid.ROWS * MAX_CELL_SIZE;
+    }
+
+    /**
+     * Encodes a tree.
+     *
+     * @param tree The tree to encode.
+     * @return The encoded tree.
+     */
+    public static byte[] encode(TechTree tree) {
+        return tree.readTree(snapshot -> {
+            ByteBuffer buffer = ByteBuffer.allocate(maxEncodedSize(snapshot));
+            encodeTree(snapshot, buffer);
+
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        });
+    }
+
+    /**
+     * Encodes a tree into a buffer, starting at its current position.
+     *
+     * @param tree The tree to encode.
+     * @param out Buffer to write to.
+     * @throws java.nio.BufferOverflowException if the buffer does not have enough space.
+     */
+    public static void encode(TechTree tree, ByteBuffer out) {
+        int start = out.position();
+
+        tree.readTree(snapshot -> {
+            // A read that is run again starts over
+            out.position(start);
+            encodeTree(snapshot, out);
+            return null;
+        });
+    }
+
+    private static void encodeTree(TechTree tree, ByteBuffer out) {
+        PresetCatalog catalog = tree.getCatalog();
+        int width = tree.getWidth();
+
+        out.put(MAGIC_FIRST).put(MAGIC_SECOND).put(VERSION);
+        out.putLong(tree.getSeed());
+        out.putLong(contentHash(catalog));
+        out.put(unsignedByte(width, "width"));
+        out.put(unsignedByte(tree.getRoomCount(), "room count"));
+        for (int room = 0; room < tree.getRoomCount(); room++) {
+            out.put(unsignedByte(tree.getRoomEnd(room), "room end"));
+        }
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                encodeCell(tree.getNode(x, y), catalog, out);
+            }
+        }
+    }
+
+    /**
+     * Encodes a tree as a URL-safe share code.
+     *
+     * @param tree The tree to encode.
+     * @return The share code.
+     */
+    public static String toShareCode(TechTree tree) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(encode(tree));
+    }
+
+    /**
+     * Restores a tree from its encoding.
+     *
+     * @param data The encoded tree.
+     * @return The restored tree.
+     * @throws IllegalArgumentException if the data is not a valid encoded tree.
+     */
+    public static TechTree decode(byte[] data) {
+        return decode(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Restores a tree from a buffer, starting at its current position.
+     *
+     * @param in Buffer to read from.
+     * @return The restored tree.
+     * @throws IllegalArgumentException if the data is not a valid encoded tree.
+     */
+    public static TechTree decode(ByteBuffer in) {
+        try {
+            return decodeTree(in);
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Encoded tree is truncated", ex);
+        } catch (RuntimeException ex) {
+            if (ex instanceof IllegalArgumentException) {
+                throw ex;
+            }
+            throw new IllegalArgumentException("Encoded tree is invalid: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Restores a tree from a share code.
+     *
+     * @param code The share code.
+     * @return The restored tree.
+     * @throws IllegalArgumentException if the code is not a valid share code.
+     */
+    public static TechTree fromShareCode(String code) {
+        return decode(Base64.getUrlDecoder().decode(code.trim()));
+    }
+
+    private static void encodeCell(TechNode node, PresetCatalog catalog, ByteBuffer out) {
+        if (node == null) {
+            out.put((byte) CellKind.EMPTY);
+            return;
+        }
+
+        int links = CellKind.linksOf(node);
+        int state = (node.isAttached() ? STATE_ATTACHED : 0) | (node.isUnlocked() ? STATE_UNLOCKED : 0);
+
+        if (node instanceof EngineNode) {
+            out.put((byte) (links | CellKind.ENGINE << 4)).put((byte) state);
+            out.put((byte) node.getEngineNumber());
+        } else if (node instanceof ChoiceNode) {
+            ChoiceNode choice = (ChoiceNode) node;
+            out.put((byte) (links | CellKind.CHOICE << 4)).put((byte) state);
+
+            for (int i = 0; i < 3; i++) {
+                SimpleEntry<String, Integer> option = choice.option(i);
+                out.put(unsignedByte(choiceId(option.getKey()), "choice option " + option.getKey()));
+                out.put(unsignedByte(option.getValue(), "choice amount"));
+            }
+            out.put((byte) (choice.getSelectedChoice() < 0 ? NO_SELECTION : choice.getSelectedChoice()));
+        } else if (node instanceof UpgradeNode) {
+            UpgradeNode upgradeNode = (UpgradeNode) node;
+            state |= upgradeNode.getLevel() - (upgradeNode.isUnlocked() ? 1 : 0);
+
+            int index = catalog.indexOf(node.getName());
+            if (index >= 0) {
+                out.put((byte) (links | CellKind.PRESET << 4)).put((byte) state);
+                out.put(unsignedByte(index, "catalog index"));
+            } else {
+                out.put((byte) (links | CellKind.BONUS << 4)).put((byte) state);
+                out.put(unsignedByte(bonusIndexOf(node.getName()), "bonus node " + node.getName()));
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot encode node " + node.getName());
+        }
+    }
+
+    private static TechTree decodeTree(ByteBuffer in) {
+        if (in.get() != MAGIC_FIRST || in.get() != MAGIC_SECOND) {
+            throw new IllegalArgumentException("Data is not an encoded tree");
+        }
+        int version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported tree encoding version " + version);
+        }
+
+        TechTree tree = TechTree.createEmpty(in.getLong());
+
+        long hash = in.getLong();
+        if (hash != contentHash(tree.getCatalog())) {
+            throw new IllegalArgumentException("Tree was encoded with a different preset catalog or defense tickets");
+        }
+
+        int width = Byte.toUnsignedInt(in.get());
+        int rooms = Byte.toUnsignedInt(in.get());
+        for (int room = 0; room < rooms; room++) {
+            tree.restoreRoom(Byte.toUnsignedInt(in.get()));
+        }
+
+        int cells = width * TechGrid.ROWS;
+        byte[] links = new byte[cells];
+        byte[] states = new byte[cells];
+        int[] selections = new int[cells];
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                int cell = x * TechGrid.ROWS + y;
+                int header = Byte.toUnsignedInt(in.get());
+                int kind = header >>> 4;
+
+                links[cell] = (byte) (header & 0x0F);
+                selections[cell] = NO_SELECTION;
+                if (kind == CellKind.EMPTY) {
+                    continue;
+                }
+                states[cell] = in.get();
+
+                selections[cell] = decodeNode(tree, x, y, kind, in);
+            }
+        }
+
+        // Connect every link once, from its left or lower end
+        for (int cell = 0; cell < cells; cell++) {
+            TechNode node = tree.getNode(cell / TechGrid.ROWS, cell % TechGrid.ROWS);
+            if ((links[cell] & CellKind.LINK_RIGHT) != 0) {
+                node.setNextRightNode(requireNode(tree, cell / TechGrid.ROWS + 1, cell % TechGrid.ROWS));
+            }
+            if ((links[cell] & CellKind.LINK_UPPER) != 0) {
+                node.setNextUpperNode(requireNode(tree, cell / TechGrid.ROWS, cell % TechGrid.ROWS + 1));
+            }
+        }
+
+        for (int cell = 0; cell < cells; cell++) {
+            TechNode node = tree.getNode(cell / TechGrid.ROWS, cell % TechGrid.ROWS);
+            if (node != null) {
+                restoreState(node, links[cell], states[cell], selections[cell]);
+            }
+        }
+
+        if (!tree.isFullyGenerated()) {
+            tree.resumeGeneration();
+        }
+
+        return tree;
+    }
+
+    /**
+     * Places a decoded node into the tree.
+     *
+     * @return The selection of a choice node, or {@link #NO_SELECTION}.
+     */
+    private static int decodeNode(TechTree tree, int x, int y, int kind, ByteBuffer in) {
+        switch (kind) {
+            case CellKind.PRESET:
+                int index = Byte.toUnsignedInt(in.get());
+                if (index >= tree.getCatalog().size()) {
+                    throw new IllegalArgumentException("Unknown catalog entry " + index);
+                }
+                tree.restorePresetNode(x, y, index);
+                return NO_SELECTION;
+            case CellKind.BONUS:
+                int bonus = Byte.toUnsignedInt(in.get());
+                if (bonus >= BONUS_TEMPLATES.length) {
+                    throw new IllegalArgumentException("Unknown bonus node " + bonus);
+                }
+                tree.restoreNode(x, y, new UpgradeNode(BONUS_TEMPLATES[bonus]));
+                return NO_SELECTION;
+            case CellKind.CHOICE:
+                List<SimpleEntry<String, Integer>> options = new ArrayList<>(3);
+                for (int i = 0; i < 3; i++) {
+                    int id = Byte.toUnsignedInt(in.get());
+                    if (id >= CHOICE_TICKETS.length) {
+                        throw new IllegalArgumentException("Unknown defense ticket " + id);
+                    }
+                    String name = CHOICE_TICKETS[id];
+                    options.add(new SimpleEntry<>(name, Byte.toUnsignedInt(in.get())));
+                }
+                tree.restoreNode(x, y, new ChoiceNode(options));
+                return Byte.toUnsignedInt(in.get());
+            case CellKind.ENGINE:
+                tree.restoreNode(x, y, new EngineNode(Byte.toUnsignedInt(in.get())));
+                return NO_SELECTION;
+            default:
+                throw new IllegalArgumentException("Unknown node kind " + kind + " at (" + x + ", " + y + ")");
+        }
+    }
+
+    private static void restoreState(TechNode node, int links, int state, int selection) {
+        if (CellKind.linksOf(node) != links) {
+            throw new IllegalArgumentException("Connections of " + node.getName() + " do not match its neighbors");
+        }
+
+        if ((state & STATE_ATTACHED) != 0) {
+            node.attach();
+        }
+
+        if ((state & STATE_UNLOCKED) != 0) {
+            if (node instanceof ChoiceNode) {
+                ((ChoiceNode) node).unlock(selection);
+            } else {
+                node.unlock();
+            }
+        }
+
+        if (node instanceof UpgradeNode) {
+            for (int level = state & 0x07; level > 0; level--) {
+                ((UpgradeNode) node).upgrade();
+            }
+        }
+    }
+
+    private static TechNode requireNode(TechTree tree, int x, int y) {
+        TechNode node = tree.getNode(x, y);
+        if (node == null) {
+            throw new IllegalArgumentException("Connection to empty cell (" + x + ", " + y + ")");
+        }
+        return node;
+    }
+
+    /**
+     * Gets the ID of a defense ticket, which does not depend on the order of the raffle
+     * table.
+     *
+     * @param name Name of the ticket.
+     * @return the ID, or -1 if there is no such ticket.
+     */
+    static int choiceId(String name) {
+        Integer id = CHOICE_IDS.get(name);
+        return id == null ? -1 : id;
+    }
+
+    private static long contentHash(PresetCatalog catalog) {
+        return catalog.getContentHash() ^ Long.rotateLeft(TICKET_HASH, 1);
+    }
+
+    private static int bonusIndexOf(String name) {
+        NodeType type = NodeType.of(name);
+        for (int i = 0; i < BONUS_TYPES.length; i++) {
+            if (BONUS_TYPES[i] == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte unsignedByte(int value, String field) {
+        if (value < 0 || value > 0xFF) {
+            throw new IllegalArgumentException("Cannot encode " + field + ": " + value);
+        }
+        return (byte) value;
+    }
+
+    private TreeCodec() {
+        throw new IllegalStateException("Cannot instantiate utility class.");
+    }
+}
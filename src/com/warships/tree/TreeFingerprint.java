@@ -0,0 +1,204 @@
+package com.warships.tree;
+
+import com.warships.enums.NodeType;
+import com.warships.loaders.PresetCatalog;
+import com.warships.nodes.ChoiceNode;
+import com.warships.nodes.EngineNode;
+import com.warships.nodes.TechNode;
+
+/**
+ * 128-bit fingerprint of the layout of a tech tree. Two trees have the same fingerprint
+ * when every cell holds the same node with the same connections and the engine rooms end
+ * in the same columns. Unlocks, upgrades and choices made on the tree are not part of
+ * the layout, so they leave the fingerprint unchanged.
+ * <br>
+ * Each cell is reduced to a single word from its node kind, its connections and the
+ * catalog index or ticket ID of its node, and the words are hashed with the MurmurHash3
+ * x64 128-bit mix in one pass over the grid. Ticket IDs are the name-sorted IDs of
+ * {@link TreeCodec}, so fingerprints do not depend on the order of the raffle table.
+ */
+public final class TreeFingerprint {
+
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    /**
+     * Computes the fingerprint of a tree.
+     *
+     * @param tree The tree to fingerprint.
+     * @return The fingerprint.
+     */
+    public static TreeFingerprint of(TechTree tree) {
+        return tree.readTree(TreeFingerprint::compute);
+    }
+
+    private static TreeFingerprint compute(TechTree tree) {
+        PresetCatalog catalog = tree.getCatalog();
+        Hasher hasher = new Hasher();
+
+        hasher.add(tree.getWidth());
+        hasher.add(tree.getRoomCount());
+        for (int room = 0; room < tree.getRoomCount(); room++) {
+            hasher.add(tree.getRoomEnd(room));
+        }
+
+        for (int x = 0; x < tree.getWidth(); x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                hasher.add(cellWord(tree.getNode(x, y), catalog));
+            }
+        }
+
+        return hasher.finish();
+    }
+
+    private final long high;
+    private final long low;
+
+    public TreeFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public long getHigh() {
+        return this.high;
+    }
+
+    public long getLow() {
+        return this.low;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof TreeFingerprint)) {
+            return false;
+        }
+
+        TreeFingerprint fingerprint = (TreeFingerprint) other;
+        return this.high == fingerprint.high && this.low == fingerprint.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.high ^ this.low);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", this.high, this.low);
+    }
+
+    /**
+     * Reduces a cell to a word: the node kind in bits 0-3, the connections in bits 4-7
+     * and the identity of the node above them.
+     */
+    private static long cellWord(TechNode node, PresetCatalog catalog) {
+        if (node == null) {
+            return CellKind.EMPTY;
+        }
+
+        long links = CellKind.linksOf(node);
+        long kind;
+        long identity;
+
+        if (node instanceof EngineNode) {
+            kind = CellKind.ENGINE;
+            identity = node.getEngineNumber();
+        } else if (node instanceof ChoiceNode) {
+            // The options identify a choice node, its name changes once a choice is made
+            ChoiceNode choice = (ChoiceNode) node;
+            kind = CellKind.CHOICE;
+            identity = 0;
+            for (int i = 0; i < 3; i++) {
+                identity = identity << 16
+                        | (TreeCodec.choiceId(choice.option(i).getKey()) & 0xFF) << 8
+                        | (choice.option(i).getValue() & 0xFF);
+            }
+        } else {
+            int index = catalog.indexOf(node.getName());
+            NodeType type = index < 0 ? NodeType.of(node.getName()) : null;
+
+            if (index >= 0) {
+                kind = CellKind.PRESET;
+                identity = index;
+            } else if (type != null) {
+                kind = CellKind.BONUS;
+                identity = type.ordinal();
+            } else {
+                kind = CellKind.OTHER;
+                identity = node.getName().hashCode() & 0xFFFFFFFFL;
+            }
+        }
+
+        return kind | links << 4 | identity << 8;
+    }
+
+    /**
+     * Streaming MurmurHash3 x64 128-bit over 64-bit words.
+     */
+    private static final class Hasher {
+
+        private long h1;
+        private long h2;
+        private long pending;
+        private boolean hasPending;
+        private int words;
+
+        private void add(long word) {
+            this.words++;
+
+            if (!this.hasPending) {
+                this.pending = word;
+                this.hasPending = true;
+                return;
+            }
+            this.hasPending = false;
+
+            this.h1 ^= mixK1(this.pending);
+            this.h1 = Long.rotateLeft(this.h1, 27) + this.h2;
+            this.h1 = this.h1 * 5 + 0x52DCE729;
+
+            this.h2 ^= mixK2(word);
+            this.h2 = Long.rotateLeft(this.h2, 31) + this.h1;
+            this.h2 = this.h2 * 5 + 0x38495AB5;
+        }
+
+        private TreeFingerprint finish() {
+            if (this.hasPending) {
+                this.h1 ^= mixK1(this.pending);
+            }
+
+            long length = this.words * (long) Long.BYTES;
+            this.h1 ^= length;
+            this.h2 ^= length;
+
+            this.h1 += this.h2;
+            this.h2 += this.h1;
+            this.h1 = fmix(this.h1);
+            this.h2 = fmix(this.h2);
+            this.h1 += this.h2;
+            this.h2 += this.h1;
+
+            return new TreeFingerprint(this.h1, this.h2);
+        }
+
+        private static long mixK1(long k1) {
+            return Long.rotateLeft(k1 * C1, 31) * C2;
+        }
+
+        private static long mixK2(long k2) {
+            return Long.rotateLeft(k2 * C2, 33) * C1;
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xFF51AFD7ED558CCDL;
+            k ^= k >>> 33;
+            k *= 0xC4CEB9FE1A85EC53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
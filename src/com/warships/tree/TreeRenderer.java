@@ -0,0 +1,56 @@
+package com.warships.tree;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.warships.utils.Glyphs;
+
+/**
+ * Writes rendered tech trees to arbitrary destinations. Each call writes a whole frame
+ * in one operation: a single append and flush for character streams, or a direct UTF-8
+ * encoding for byte buffers. Unchanged trees are served from their render cache.
+ */
+public final class TreeRenderer {
+
+    /**
+     * Writes a tree to a character destination such as a <code>Writer</code>. The
+     * destination is flushed once after the frame is written.
+     *
+     * @param tree The tree to render.
+     * @param out Destination of the frame.
+     * @throws IOException if the destination cannot be written to.
+     */
+    public static void render(TechTree tree, Appendable out) throws IOException {
+        out.append(tree.renderFrame());
+
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+    /**
+     * Writes a tree to a byte buffer as UTF-8.
+     *
+     * @param tree The tree to render.
+     * @param out Destination of the frame. Use {@link #encodedSize(TechTree)} to size it.
+     * @throws java.nio.BufferOverflowException if the buffer does not have enough space.
+     */
+    public static void render(TechTree tree, ByteBuffer out) {
+        Glyphs.encode(tree.renderFrame(), out);
+    }
+
+    /**
+     * Gets the number of bytes {@link #render(TechTree, ByteBuffer)} writes for a tree.
+     *
+     * @param tree The tree to measure.
+     * @return The size of the encoded frame.
+     */
+    public static int encodedSize(TechTree tree) {
+        return Glyphs.encodedLength(tree.renderFrame());
+    }
+
+    private TreeRenderer() {
+        throw new IllegalStateException("Cannot instantiate static class.");
+    }
+}
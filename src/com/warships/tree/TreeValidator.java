@@ -0,0 +1,122 @@
+package com.warships.tree;
+
+import com.warships.nodes.EngineNode;
+import com.warships.nodes.TechNode;
+
+/**
+ * Checks that a generated tech tree meets the layout rules of the game:
+ * <ul>
+ *     <li>Every cell is filled except (0, 1), which stays empty.</li>
+ *     <li>Every node is attached to the main tree.</li>
+ *     <li>The last column of each engine room holds exactly one engine node, and no
+ *     other column holds one.</li>
+ *     <li>Every connection leads to the neighboring node, and connections only cross
+ *     from one engine room to the next through an engine node.</li>
+ * </ul>
+ * The grid is checked in a single pass without allocating unless a violation is found.
+ */
+public final class TreeValidator {
+
+    /**
+     * Validates a generated tree.
+     *
+     * @param tree The tree to check.
+     * @return A description of the first violation found, or <code>null</code> if the tree is valid.
+     */
+    public static String validate(TechTree tree) {
+        int rooms = tree.getRoomCount();
+        if (rooms == 0) {
+            return "Tree has no engine rooms";
+        }
+
+        int width = tree.getRoomEnd(rooms - 1) + 1;
+        if (tree.getWidth() != width) {
+            return "Tree is " + tree.getWidth() + " columns wide but its rooms end at column " + (width - 1);
+        }
+
+        int room = 0;
+        int roomEnd = tree.getRoomEnd(0);
+
+        for (int x = 0; x < width; x++) {
+            if (x > roomEnd) {
+                roomEnd = tree.getRoomEnd(++room);
+            }
+            boolean lastColumn = x == roomEnd;
+            int engines = 0;
+
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                TechNode node = tree.getNode(x, y);
+
+                if (x == 0 && y == 1) {
+                    if (node != null) {
+                        return "Restricted cell (0, 1) holds " + node.getName();
+                    }
+                    continue;
+                }
+
+                if (node == null) {
+                    return "Missing node at (" + x + ", " + y + ")";
+                }
+
+                if (!node.isAttached()) {
+                    return "Node " + node.getName() + " at (" + x + ", " + y + ") is not attached";
+                }
+
+                if (node instanceof EngineNode) {
+                    if (!lastColumn) {
+                        return "Engine node at (" + x + ", " + y + ") is not in the last column of its room";
+                    }
+                    engines++;
+                }
+
+                String link = checkLinks(tree, node, x, y, lastColumn);
+                if (link != null) {
+                    return link;
+                }
+            }
+
+            if (lastColumn && engines != 1) {
+                return "Room " + room + " has " + engines + " engine nodes in column " + x;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks if a generated tree meets every layout rule.
+     *
+     * @param tree The tree to check.
+     * @return true if {@link #validate(TechTree)} finds no violation.
+     */
+    public static boolean isValid(TechTree tree) {
+        return validate(tree) == null;
+    }
+
+    private static String checkLinks(TechTree tree, TechNode node, int x, int y, boolean lastColumn) {
+        if (node.hasLeft() && node.getNextLeftNode() != tree.getNode(x - 1, y)) {
+            return "Left connection of (" + x + ", " + y + ") does not lead to its neighbor";
+        }
+        if (node.hasUpper() && node.getNextUpperNode() != tree.getNode(x, y + 1)) {
+            return "Upper connection of (" + x + ", " + y + ") does not lead to its neighbor";
+        }
+        if (node.hasLower() && node.getNextLowerNode() != tree.getNode(x, y - 1)) {
+            return "Lower connection of (" + x + ", " + y + ") does not lead to its neighbor";
+        }
+
+        if (node.hasRight()) {
+            if (node.getNextRightNode() != tree.getNode(x + 1, y)) {
+                return "Right connection of (" + x + ", " + y + ") does not lead to its neighbor";
+            }
+            if (lastColumn && !(node instanceof EngineNode)) {
+                return "Connection from (" + x + ", " + y + ") crosses into the next room without an engine node";
+            }
+        }
+
+        return null;
+    }
+
+    private TreeValidator() {
+        throw new IllegalStateException("Cannot instantiate utility class.");
+    }
+}
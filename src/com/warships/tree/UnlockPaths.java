@@ -0,0 +1,182 @@
+package com.warships.tree;
+
+import java.util.Arrays;
+
+import com.warships.nodes.TechNode;
+
+/**
+ * Cheapest unlock costs from the unlocked part of a tree to every node. Costs are found
+ * with Dijkstra's algorithm over the links between nodes, where stepping onto a locked
+ * node costs its unlock cost. The results are kept until the tree changes.
+ * <br>
+ * Cells are indexed by packed position, see {@link TechGrid#pack(int, int)}. Queries and invalidation are
+ * synchronized with each other, so a change made while the costs are computed always
+ * discards them afterward.
+ */
+final class UnlockPaths {
+
+    /**
+     * Cost of a cell that cannot be reached from any unlocked node.
+     */
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private int[] cost;
+    private int[] previous;
+    private long[] heap;
+    private int cells;
+    private boolean valid;
+
+    UnlockPaths() {
+        this.cost = new int[0];
+        this.previous = new int[0];
+        this.heap = new long[0];
+        this.cells = 0;
+        this.valid = false;
+    }
+
+    /**
+     * Discards the cached costs. They are computed again on the next query.
+     */
+    synchronized void invalidate() {
+        this.valid = false;
+    }
+
+    /**
+     * Gets the cheapest total unlock cost of a node, including its own cost.
+     *
+     * @param tree The tree this cache belongs to.
+     * @param x The X position of the node.
+     * @param y The Y position of the node.
+     * @return The cost, 0 if the node is unlocked, or {@link #UNREACHABLE}.
+     */
+    synchronized int costTo(TechTree tree, int x, int y) {
+        refresh(tree);
+
+        int cell = cellOf(x, y);
+        return cell < 0 ? UNREACHABLE : this.cost[cell];
+    }
+
+    /**
+     * Gets the cell that the cheapest path to a cell passes through last.
+     *
+     * @param tree The tree this cache belongs to.
+     * @param cell The packed position of the cell.
+     * @return The previous cell, or -1 if the cell is unlocked or unreachable.
+     */
+    synchronized int previousOf(TechTree tree, int cell) {
+        refresh(tree);
+
+        return this.previous[cell];
+    }
+
+    private int cellOf(int x, int y) {
+        if (x < 0 || y < 0 || y >= TechGrid.ROWS || TechGrid.pack(x, y) >= this.cells) {
+            return -1;
+        }
+
+        return TechGrid.pack(x, y);
+    }
+
+    private void refresh(TechTree tree) {
+        if (this.valid) {
+            return;
+        }
+
+        this.cells = tree.getPositionCount();
+        if (this.cost.length < this.cells) {
+            this.cost = new int[this.cells];
+            this.previous = new int[this.cells];
+            // Every cell can be pushed once as a start and once per incoming link
+            this.heap = new long[this.cells * (TechNode.DIRECTIONS + 1)];
+        }
+        Arrays.fill(this.cost, 0, this.cells, UNREACHABLE);
+        Arrays.fill(this.previous, 0, this.cells, -1);
+
+        int size = 0;
+        for (int cell = 0; cell < this.cells; cell++) {
+            TechNode node = tree.getNode(cell);
+            if (node != null && node.isUnlocked()) {
+                this.cost[cell] = 0;
+                size = push(size, 0, cell);
+            }
+        }
+
+        while (size > 0) {
+            long top = this.heap[0];
+            size = pop(size);
+
+            int cell = (int) top;
+            int cellCost = (int) (top >>> 32);
+            if (cellCost > this.cost[cell]) {
+                // Stale entry, the cell was reached more cheaply since it was pushed
+                continue;
+            }
+
+            TechNode node = tree.getNode(cell);
+            for (int direction = 0; direction < TechNode.DIRECTIONS; direction++) {
+                TechNode next = node.getNextNode(direction);
+                if (next == null) {
+                    continue;
+                }
+
+                int nextCell = TechGrid.neighbor(cell, direction);
+                int nextCost = cellCost + (next.isUnlocked() ? 0 : next.getUnlockCost());
+
+                if (nextCost < this.cost[nextCell]) {
+                    this.cost[nextCell] = nextCost;
+                    this.previous[nextCell] = cell;
+                    size = push(size, nextCost, nextCell);
+                }
+            }
+        }
+
+        this.valid = true;
+    }
+
+    /**
+     * Pushes a cell onto the binary min-heap. Entries pack the cost into the upper half
+     * and the cell into the lower half, so they order by cost.
+     */
+    private int push(int size, int cellCost, int cell) {
+        long entry = ((long) cellCost << 32) | cell;
+        int index = size;
+
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (this.heap[parent] <= entry) {
+                break;
+            }
+            this.heap[index] = this.heap[parent];
+            index = parent;
+        }
+        this.heap[index] = entry;
+
+        return size + 1;
+    }
+
+    /**
+     * Removes the smallest entry from the binary min-heap.
+     */
+    private int pop(int size) {
+        long last = this.heap[--size];
+        int index = 0;
+
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && this.heap[child + 1] < this.heap[child]) {
+                child++;
+            }
+            if (last <= this.heap[child]) {
+                break;
+            }
+            this.heap[index] = this.heap[child];
+            index = child;
+        }
+        this.heap[index] = last;
+
+        return size;
+    }
+}
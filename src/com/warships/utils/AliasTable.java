@@ -0,0 +1,106 @@
+package com.warships.utils;
+
+/**
+ * Samples indices from a fixed discrete distribution in constant time using Vose's
+ * alias method. Building the table takes linear time in the number of weights.
+ */
+public final class AliasTable {
+
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * @param weights Relative weight of each index. Weights must be finite and not
+     *                negative, and at least one weight must be positive.
+     */
+    public AliasTable(double[] weights) {
+        int size = weights.length;
+        double total = 0.0;
+
+        for (double weight : weights) {
+            if (!(weight >= 0.0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            }
+            total += weight;
+        }
+
+        if (total <= 0.0) {
+            throw new IllegalArgumentException("At least one weight must be positive.");
+        }
+
+        this.probability = new double[size];
+        this.alias = new int[size];
+
+        // Scale the weights so that the average is one, then split them into
+        // indices below and above the average
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        int heaviest = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (weights[i] > weights[heaviest]) {
+                heaviest = i;
+            }
+
+            scaled[i] = weights[i] * size / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        // Fill each underfull slot with the remainder of an overfull one
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            this.probability[less] = scaled[less];
+            this.alias[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Whatever is left is full up to rounding errors
+        while (largeCount > 0) {
+            int index = large[--largeCount];
+            this.probability[index] = 1.0;
+            this.alias[index] = index;
+        }
+        while (smallCount > 0) {
+            int index = small[--smallCount];
+            // Never let rounding errors make a zero weight drawable
+            this.probability[index] = weights[index] > 0.0 ? 1.0 : 0.0;
+            this.alias[index] = weights[index] > 0.0 ? index : heaviest;
+        }
+    }
+
+    /**
+     * Gets the number of indices this table samples from.
+     *
+     * @return the size of the table.
+     */
+    public int size() {
+        return this.probability.length;
+    }
+
+    /**
+     * Draws a random index. Indices with a weight of zero are never drawn.
+     *
+     * @param random Random engine to draw with.
+     * @return the drawn index.
+     */
+    public int sample(RandomEngine random) {
+        int slot = random.random(0, this.probability.length - 1);
+
+        return random.nextDouble() < this.probability[slot] ? slot : this.alias[slot];
+    }
+}
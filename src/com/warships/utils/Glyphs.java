@@ -0,0 +1,149 @@
+package com.warships.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.warships.constants.WarshipConstants;
+
+/**
+ * Preallocated padding and pre-encoded UTF-8 glyphs for rendering trees without
+ * per-character garbage.
+ */
+public final class Glyphs {
+
+    public static final char NODE_BLANK = WarshipConstants.NODE_BLANK;
+    public static final char BLANK_SPACE = WarshipConstants.BLANK_SPACE;
+    public static final char NODE_UPGRADE_ICON = WarshipConstants.NODE_UPGRADE_ICON;
+
+    private static final int FILL_LENGTH = 64;
+
+    private static final char[] SPACES = filled(BLANK_SPACE);
+    private static final char[] BLANKS = filled(NODE_BLANK);
+
+    /**
+     * Non-ASCII characters used by the renderer, with their UTF-8 encodings.
+     */
+    private static final char[] ENCODED_CHARS = {NODE_BLANK, NODE_UPGRADE_ICON, '«', '»'};
+    private static final byte[][] ENCODED_BYTES = encodeAll(ENCODED_CHARS);
+
+    /**
+     * Appends a number of {@link #BLANK_SPACE} characters.
+     *
+     * @param builder StringBuilder to append to.
+     * @param amount Number of characters. Negative amounts append nothing.
+     */
+    public static void appendSpaces(StringBuilder builder, int amount) {
+        appendFill(builder, SPACES, amount);
+    }
+
+    /**
+     * Appends a number of {@link #NODE_BLANK} characters.
+     *
+     * @param builder StringBuilder to append to.
+     * @param amount Number of characters. Negative amounts append nothing.
+     */
+    public static void appendBlanks(StringBuilder builder, int amount) {
+        appendFill(builder, BLANKS, amount);
+    }
+
+    /**
+     * Gets the number of bytes needed to encode text as UTF-8.
+     *
+     * @param text Text to measure.
+     * @return The encoded length.
+     */
+    public static int encodedLength(CharSequence text) {
+        int length = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch < 0x80) {
+                length++;
+            } else if (ch < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(ch)) {
+                // Surrogate pairs encode to four bytes in total
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Encodes text as UTF-8 into a buffer. Rendering glyphs are copied from their
+     * pre-encoded form.
+     *
+     * @param text Text to encode.
+     * @param out Buffer to write to.
+     * @throws java.nio.BufferOverflowException if the buffer does not have enough space.
+     */
+    public static void encode(CharSequence text, ByteBuffer out) {
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+
+            if (ch < 0x80) {
+                out.put((byte) ch);
+                continue;
+            }
+
+            byte[] glyph = encodedGlyph(ch);
+            if (glyph != null) {
+                out.put(glyph);
+            } else if (ch < 0x800) {
+                out.put((byte) (0xC0 | (ch >> 6)));
+                out.put((byte) (0x80 | (ch & 0x3F)));
+            } else if (Character.isHighSurrogate(ch) && i + 1 < text.length()) {
+                int codePoint = Character.toCodePoint(ch, text.charAt(++i));
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                out.put((byte) (0xE0 | (ch >> 12)));
+                out.put((byte) (0x80 | ((ch >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (ch & 0x3F)));
+            }
+        }
+    }
+
+    private static byte[] encodedGlyph(char ch) {
+        for (int i = 0; i < ENCODED_CHARS.length; i++) {
+            if (ENCODED_CHARS[i] == ch) {
+                return ENCODED_BYTES[i];
+            }
+        }
+
+        return null;
+    }
+
+    private static void appendFill(StringBuilder builder, char[] fill, int amount) {
+        while (amount > 0) {
+            int length = Math.min(amount, fill.length);
+            builder.append(fill, 0, length);
+            amount -= length;
+        }
+    }
+
+    private static char[] filled(char ch) {
+        char[] fill = new char[FILL_LENGTH];
+        Arrays.fill(fill, ch);
+        return fill;
+    }
+
+    private static byte[][] encodeAll(char[] chars) {
+        byte[][] encoded = new byte[chars.length][];
+        for (int i = 0; i < chars.length; i++) {
+            encoded[i] = String.valueOf(chars[i]).getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    private Glyphs() {
+        throw new IllegalStateException("Cannot instantiate utility class.");
+    }
+}
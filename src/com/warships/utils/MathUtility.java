@@ -1,5 +1,11 @@
 package com.warships.utils;
 
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Unseeded random helpers. Tree generation should use a {@link RandomEngine} instead
+ * so that results can be reproduced from a seed.
+ */
 public final class MathUtility {
 
     /**
@@ -31,7 +37,7 @@ public final class MathUtility {
      * @return Random integer between the minimum and maximum.
      */
     public static int random(int min, int max) {
-        return (int) Math.floor(Math.random() * (max - min + 1) + min);
+        return ThreadLocalRandom.current().nextInt(min, max + 1);
     }
 
     private MathUtility() {
@@ -0,0 +1,112 @@
+package com.warships.utils;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Seedable source of randomness used by a single tree generator. Every generator
+ * owns its own engine, so trees built on separate threads never share state and
+ * the same seed always reproduces the same sequence of decisions.
+ * <br>
+ * Instances are not thread-safe. Use {@link #split()} to derive an independent
+ * engine for another thread.
+ */
+public final class RandomEngine {
+
+    /**
+     * Creates a fresh seed for callers that do not need reproducible results.
+     *
+     * @return A random 64-bit seed.
+     */
+    public static long newSeed() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    private final long seed;
+    private final SplittableRandom random;
+
+    public RandomEngine(long seed) {
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+    }
+
+    public RandomEngine() {
+        this(newSeed());
+    }
+
+    /**
+     * Gets the seed this engine was created with.
+     *
+     * @return the seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Derives a new, independent engine from this one. The derived seed is drawn
+     * from this engine, so splitting is itself reproducible.
+     *
+     * @return The derived engine.
+     */
+    public RandomEngine split() {
+        return new RandomEngine(this.random.nextLong());
+    }
+
+    /**
+     * Gets a random integer between a specified range.
+     *
+     * @param min Minimum number (inclusive).
+     * @param max Maximum number (inclusive).
+     * @return Random integer between the minimum and maximum.
+     */
+    public int random(int min, int max) {
+        return this.random.nextInt(min, max + 1);
+    }
+
+    /**
+     * Gets a random double between zero (inclusive) and one (exclusive).
+     *
+     * @return Random double in the range [0, 1).
+     */
+    public double nextDouble() {
+        return this.random.nextDouble();
+    }
+
+    /**
+     * Determines a proc chance based on a specified percentage.
+     *
+     * @param percent Percentage to proc.
+     * @return true if the method should proc.
+     */
+    public boolean chance(double percent) {
+        if (percent >= 1.0) {
+            return true;
+        } else if (percent <= 0.0) {
+            return false;
+        }
+
+        int lowerNumber = (int) (percent * 100);
+
+        // Determine the deciding number
+        int roll = random(1, 100);
+
+        return (lowerNumber >= roll);
+    }
+
+    /**
+     * Randomly reorders the elements of an array in place.
+     *
+     * @param array The array to shuffle.
+     * @param <T> Element type of the array.
+     */
+    public <T> void shuffle(T[] array) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = this.random.nextInt(i + 1);
+
+            T temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+}
@@ -3,13 +3,11 @@ package com.warships.utils;
 public final class StringUtility {
 
     public static String repeat(String str, int amount) {
-        String result = "";
-        while (amount > 0) {
-            result += str;
-            amount--;
+        if (amount <= 0) {
+            return "";
         }
 
-        return result;
+        return str.repeat(amount);
     }
 
     public static String repeat(Character ch, int amount) {
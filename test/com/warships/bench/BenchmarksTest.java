@@ -0,0 +1,47 @@
+package com.warships.bench;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import com.warships.test.Test;
+
+public class BenchmarksTest {
+
+    @Test
+    public void runnerReportsEachBenchmarkOnce() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BenchmarkRunner runner = new BenchmarkRunner(new PrintStream(bytes, true, StandardCharsets.UTF_8), 0, 0.01);
+        long[] runs = {0L};
+
+        runner.run("count", i -> runs[0]++);
+
+        String[] lines = bytes.toString(StandardCharsets.UTF_8).split(System.lineSeparator());
+        assertEquals(1L, lines.length, "Reported lines");
+        assertTrue(lines[0].matches("count +[0-9.]+ ops/s +[0-9.]+ ns/op +[0-9.]+ B/op"), "Report: " + lines[0]);
+        assertTrue(runs[0] > 0, "Operation ran");
+    }
+
+    @Test
+    public void everyBenchmarkRuns() {
+        PrintStream console = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        try {
+            Benchmarks.main(new String[] {"--warmup", "0", "--seconds", "0.001"});
+        } finally {
+            System.setOut(console);
+        }
+
+        String output = bytes.toString(StandardCharsets.UTF_8);
+        for (String name : new String[] {"tree.generate", "maze.generateMaze[width=16]", "raffle.removeWithFilter",
+                "preset.parse", "tree.displayNodes", "tree.render.byteBuffer", "tree.unlockPath.uncached",
+                "tree.codec.decode", "tree.fingerprint", "session.rehydrate", "command.process"}) {
+            assertTrue(output.contains(name + " "), "Missing benchmark " + name);
+        }
+        assertTrue(output.contains("sink: "), "Missing sink");
+    }
+}
@@ -0,0 +1,51 @@
+package com.warships.bulk;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertThrows;
+
+import java.util.List;
+
+import com.warships.test.Test;
+import com.warships.tree.TechTree;
+import com.warships.tree.TreeFingerprint;
+
+public class BulkGeneratorTest {
+
+    private static final long SEED = 42L;
+    private static final int COUNT = 150;
+
+    @Test
+    public void resultsDoNotDependOnThreadCount() {
+        List<TreeFingerprint> single = fingerprints(1);
+        List<TreeFingerprint> several = fingerprints(3);
+
+        assertEquals(COUNT, single.size(), "Number of trees");
+        assertEquals(single, several, "Trees generated on 1 and 3 threads");
+    }
+
+    @Test
+    public void treesAreGeneratedFromDerivedSeeds() {
+        try (BulkGenerator generator = new BulkGenerator(2)) {
+            List<Long> seeds = generator.generate(SEED, 10, TechTree::getSeed);
+
+            for (int i = 0; i < seeds.size(); i++) {
+                assertEquals(BulkGenerator.seedOf(SEED, i), (long) seeds.get(i), "Seed of tree " + i);
+            }
+        }
+    }
+
+    @Test
+    public void rejectsBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new BulkGenerator(0));
+
+        try (BulkGenerator generator = new BulkGenerator(1)) {
+            assertThrows(IllegalArgumentException.class, () -> generator.generate(SEED, -1));
+        }
+    }
+
+    private static List<TreeFingerprint> fingerprints(int threads) {
+        try (BulkGenerator generator = new BulkGenerator(threads)) {
+            return generator.generate(SEED, COUNT, TreeFingerprint::of);
+        }
+    }
+}
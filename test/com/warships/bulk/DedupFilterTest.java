@@ -0,0 +1,91 @@
+package com.warships.bulk;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertFalse;
+import static com.warships.test.Assert.assertThrows;
+import static com.warships.test.Assert.assertTrue;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import com.warships.test.Test;
+import com.warships.tree.TechTree;
+import com.warships.tree.TreeFingerprint;
+
+public class DedupFilterTest {
+
+    @Test
+    public void repeatsAreConfirmedWithinCapacity() {
+        DedupFilter filter = new DedupFilter(4096);
+        TreeFingerprint[] fingerprints = randomFingerprints(1, 2000);
+
+        for (TreeFingerprint fingerprint : fingerprints) {
+            assertTrue(filter.add(fingerprint), "New fingerprint " + fingerprint);
+        }
+        for (TreeFingerprint fingerprint : fingerprints) {
+            assertFalse(filter.add(fingerprint), "Repeated fingerprint " + fingerprint);
+        }
+
+        assertEquals(2000L, filter.getUniqueCount(), "Unique count");
+        assertEquals(2000L, filter.getRepeatCount(), "Repeat count");
+        assertEquals(0L, filter.getProbableRepeatCount(), "Probable repeat count");
+    }
+
+    @Test
+    public void fullFilterStillRejectsRepeats() {
+        DedupFilter filter = new DedupFilter(64);
+        TreeFingerprint[] fingerprints = randomFingerprints(2, 5000);
+
+        long added = 0;
+        for (TreeFingerprint fingerprint : fingerprints) {
+            if (filter.add(fingerprint)) {
+                added++;
+            }
+        }
+        assertEquals(5000L, filter.getUniqueCount() + filter.getProbableRepeatCount(), "Adds counted once");
+        assertEquals(added, filter.getUniqueCount(), "Unique count");
+
+        for (TreeFingerprint fingerprint : fingerprints) {
+            assertFalse(filter.add(fingerprint), "Repeated fingerprint " + fingerprint);
+        }
+    }
+
+    @Test
+    public void zeroFingerprintIsTracked() {
+        DedupFilter filter = new DedupFilter(16);
+        TreeFingerprint zero = new TreeFingerprint(0L, 0L);
+
+        assertTrue(filter.add(zero), "First zero fingerprint");
+        assertFalse(filter.add(zero), "Second zero fingerprint");
+        assertEquals(1L, filter.getRepeatCount(), "Repeat count");
+    }
+
+    @Test
+    public void generateUniqueSkipsLayoutsSeenInEarlierRuns() {
+        DedupFilter filter = new DedupFilter(1024);
+
+        try (BulkGenerator generator = new BulkGenerator(2)) {
+            List<Long> first = generator.generateUnique(7L, 100, filter, TechTree::getSeed);
+            List<Long> second = generator.generateUnique(7L, 100, filter, TechTree::getSeed);
+
+            assertEquals((long) first.size(), filter.getUniqueCount(), "Unique layouts of the first run");
+            assertTrue(second.isEmpty(), "Second run kept " + second.size() + " trees");
+        }
+    }
+
+    @Test
+    public void rejectsBadCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new DedupFilter(0));
+        assertTrue(new DedupFilter(1000).getMemoryBytes() > 0, "Memory is counted");
+    }
+
+    private static TreeFingerprint[] randomFingerprints(long seed, int count) {
+        SplittableRandom random = new SplittableRandom(seed);
+        TreeFingerprint[] fingerprints = new TreeFingerprint[count];
+
+        for (int i = 0; i < count; i++) {
+            fingerprints[i] = new TreeFingerprint(random.nextLong(), random.nextLong());
+        }
+        return fingerprints;
+    }
+}
@@ -0,0 +1,55 @@
+package com.warships.bulk;
+
+import static com.warships.test.Assert.assertEquals;
+
+import java.io.IOException;
+
+import com.warships.test.Test;
+import com.warships.tree.TechTree;
+import com.warships.tree.TreeFixtures;
+
+public class TreeStatisticsTest {
+
+    private static final long SEED = 7L;
+    private static final int COUNT = 200;
+
+    @Test
+    public void statisticsDoNotDependOnThreadCount() throws IOException {
+        assertEquals(report(1), report(3), "Reports of 1 and 3 threads");
+    }
+
+    @Test
+    public void everyTreeIsRecordedOnce() {
+        try (BulkGenerator generator = new BulkGenerator(3)) {
+            assertEquals(COUNT, generator.collectStatistics(SEED, COUNT).getTreeCount(), "Trees recorded");
+        }
+    }
+
+    @Test
+    public void mergeAddsCounts() {
+        TreeStatistics first = new TreeStatistics();
+        TreeStatistics second = new TreeStatistics();
+        TreeStatistics both = new TreeStatistics();
+
+        for (long seed = 0; seed < 6; seed++) {
+            TechTree tree = TreeFixtures.generated(seed);
+            (seed % 2 == 0 ? first : second).record(tree);
+            both.record(tree);
+        }
+        first.merge(second);
+
+        assertEquals(6, first.getTreeCount(), "Merged tree count");
+        for (int room = 0; room < both.getRoomCount(); room++) {
+            assertEquals(both.getAppearances(room, "Gunboat"), first.getAppearances(room, "Gunboat"),
+                    "Gunboat appearances in room " + room);
+        }
+    }
+
+    private static String report(int threads) throws IOException {
+        try (BulkGenerator generator = new BulkGenerator(threads)) {
+            StringBuilder report = new StringBuilder();
+            generator.collectStatistics(SEED, COUNT).writeReport(report);
+            return report.toString();
+        }
+    }
+}
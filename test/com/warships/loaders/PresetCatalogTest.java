@@ -0,0 +1,72 @@
+package com.warships.loaders;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertThrows;
+import static com.warships.test.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.warships.test.Test;
+
+public class PresetCatalogTest {
+
+    @Test
+    public void parsesNamesAndCosts() throws IOException {
+        PresetCatalog catalog = load("Gunboat\t54000 71500 87000 105000\n\nMine\t1 2 3 4\n");
+
+        assertEquals(2, catalog.size(), "Entries");
+        assertEquals(1, catalog.indexOf("Mine"), "Index of Mine");
+        assertEquals(-1, catalog.indexOf("Nothing"), "Index of a missing entry");
+        assertEquals(105000, catalog.getUpgradeCost(0, 3), "Last cost of Gunboat");
+        assertEquals(3, catalog.getUpgradeCost(1, 2), "Third cost of Mine");
+    }
+
+    @Test
+    public void defaultCatalogLoads() {
+        assertTrue(PresetCatalog.getDefault().size() > 0, "Default catalog is empty");
+    }
+
+    @Test
+    public void rejectsTrailingSpace() {
+        assertMalformed("Gunboat\t1 2 3 4 \n", "line 1");
+    }
+
+    @Test
+    public void rejectsMissingTab() {
+        assertMalformed("Gunboat\t1 2 3 4\nMine 1 2 3 4\n", "line 2");
+    }
+
+    @Test
+    public void rejectsNonDigits() {
+        assertMalformed("Gunboat\t1 2x 3 4\n", "unexpected 'x'");
+    }
+
+    @Test
+    public void rejectsWrongCostCount() {
+        assertMalformed("Gunboat\t1 2 3\n", "found 3");
+        assertMalformed("Gunboat\t1 2 3 4 5\n", "more than 4");
+    }
+
+    @Test
+    public void rejectsOverflow() {
+        assertMalformed("Gunboat\t1 2 3 99999999999\n", "out of range");
+    }
+
+    private static void assertMalformed(String contents, String expected) {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> load(contents));
+        assertTrue(ex.getMessage().contains(expected), "Message should mention " + expected + ": " + ex.getMessage());
+    }
+
+    private static PresetCatalog load(String contents) throws IOException {
+        Path file = Files.createTempFile("presets", ".txt");
+        try {
+            Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+            return PresetCatalog.load(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.warships.nodes;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertFalse;
+import static com.warships.test.Assert.assertTrue;
+
+import com.warships.test.Test;
+
+public class AttachmentGroupsTest {
+
+    @Test
+    public void joinedGroupIsAttachedIfEitherWas() {
+        AttachmentGroups groups = new AttachmentGroups();
+        int root = groups.add(true);
+        int first = groups.add(false);
+        int second = groups.add(false);
+
+        groups.union(first, second);
+        assertFalse(groups.isAttached(first), "First member before joining the root");
+        assertEquals(groups.find(first), groups.find(second), "Group of the joined members");
+
+        groups.union(second, root);
+        assertTrue(groups.isAttached(first), "First member after joining the root");
+        assertTrue(groups.isAttached(second), "Second member after joining the root");
+    }
+
+    @Test
+    public void attachingOneMemberAttachesItsGroup() {
+        AttachmentGroups groups = new AttachmentGroups();
+        int first = groups.add(false);
+        int second = groups.add(false);
+        int other = groups.add(false);
+
+        groups.union(first, second);
+        groups.attach(second);
+
+        assertTrue(groups.isAttached(first), "First member");
+        assertFalse(groups.isAttached(other), "Member of another group");
+    }
+
+    @Test
+    public void growsPastDefaultCapacity() {
+        AttachmentGroups groups = new AttachmentGroups();
+        int root = groups.add(true);
+        int previous = root;
+
+        for (int i = 0; i < 1000; i++) {
+            int next = groups.add(false);
+            groups.union(previous, next);
+            previous = next;
+        }
+
+        assertTrue(groups.isAttached(previous), "Last member of the chain");
+        assertEquals(groups.find(root), groups.find(previous), "Group of the chain");
+    }
+
+    @Test
+    public void linkedNodesShareAttachment() {
+        AttachmentGroups groups = new AttachmentGroups();
+        TechNode root = new TechNode("Root", 0);
+        TechNode first = new TechNode("First", 1);
+        TechNode second = new TechNode("Second", 1);
+        root.attach();
+        for (TechNode node : new TechNode[] {root, first, second}) {
+            node.joinAttachmentGroups(groups);
+        }
+
+        first.setNextRightNode(second);
+        assertFalse(second.isAttached(), "Second node before linking to the root");
+
+        // Linking either end of a chain attaches every node of it
+        root.setNextRightNode(first);
+        assertTrue(first.isAttached(), "First node");
+        assertTrue(second.isAttached(), "Second node");
+    }
+}
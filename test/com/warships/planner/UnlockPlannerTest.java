@@ -0,0 +1,176 @@
+package com.warships.planner;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertFalse;
+import static com.warships.test.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import com.warships.enums.UnlockResult;
+import com.warships.nodes.ChoiceNode;
+import com.warships.test.Test;
+import com.warships.tree.TechTree;
+import com.warships.tree.TreeFixtures;
+
+public class UnlockPlannerTest {
+
+    private static final long TIME_MILLIS = 10_000;
+
+    private final UnlockPlanner planner = new UnlockPlanner();
+
+    @Test
+    public void plansStayWithinBudgets() {
+        for (long seed = 0; seed < 5; seed++) {
+            TechTree tree = TreeFixtures.generated(seed);
+            Plan plan = this.planner.plan(tree, 300, 500_000, TIME_MILLIS);
+
+            assertTrue(plan.isComplete(), "Search of seed " + seed + " timed out");
+            assertTrue(plan.getUnlockCost() <= 300, "Unlock cost " + plan.getUnlockCost());
+            assertTrue(plan.getUpgradeCost() <= 500_000, "Upgrade cost " + plan.getUpgradeCost());
+        }
+    }
+
+    @Test
+    public void plansCanBeReplayed() {
+        for (long seed = 0; seed < 5; seed++) {
+            TechTree tree = TreeFixtures.generated(seed);
+            Plan plan = this.planner.plan(tree, 800, 3_000_000, TIME_MILLIS);
+
+            for (PlanAction action : plan.getActions()) {
+                if (action.getType() == PlanAction.Type.UNLOCK) {
+                    assertEquals(UnlockResult.UNLOCKED, tree.unlockNode(action.getX(), action.getY(), action.getSelection()),
+                            "Unlock of " + action + " in seed " + seed);
+                } else {
+                    assertTrue(tree.buyUpgrade(action.getX(), action.getY()), "Upgrade of " + action + " in seed " + seed);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void choiceUnlocksPickTheRecordedOption() {
+        boolean found = false;
+
+        for (long seed = 0; seed < 20 && !found; seed++) {
+            TechTree tree = TreeFixtures.generated(seed);
+            for (PlanAction action : this.planner.plan(tree, 800, 0, TIME_MILLIS).getActions()) {
+                if (action.getSelection() >= 0) {
+                    assertTrue(action.getSelection() < 3, "Option of " + action);
+                    assertTrue(action.toString().endsWith(" " + action.getSelection()), "Command of " + action);
+                    found = true;
+                }
+                tree.unlockNode(action.getX(), action.getY(), action.getSelection());
+                if (action.getSelection() >= 0) {
+                    ChoiceNode node = (ChoiceNode) tree.getNode(action.getX(), action.getY());
+                    assertEquals(action.getSelection(), node.getSelectedChoice(), "Option picked by " + action);
+                }
+            }
+        }
+
+        assertTrue(found, "No plan unlocked a choice node");
+    }
+
+    @Test
+    public void emptyBudgetsPlanNothing() {
+        Plan plan = this.planner.plan(TreeFixtures.generated(1L), 0, 0, TIME_MILLIS);
+
+        assertTrue(plan.getActions().isEmpty(), "Actions of an empty plan");
+        assertEquals(0.0, plan.getValue(), "Value of an empty plan");
+    }
+
+    @Test
+    public void plansMatchExhaustiveSearch() {
+        TechTree tree = TreeFixtures.gridTree(3);
+        PlanProblem problem = new PlanProblem(tree, PlanWeights.DEFAULT);
+        int totalCost = 0;
+        for (int cell : problem.unlockOrder) {
+            totalCost += problem.unlockCost[cell];
+        }
+
+        for (int unlockBudget : new int[] {totalCost / 4, totalCost / 2, totalCost}) {
+            for (int upgradeBudget : new int[] {0, 50_000, 1_000_000}) {
+                Plan plan = this.planner.plan(tree, unlockBudget, upgradeBudget, TIME_MILLIS);
+
+                assertTrue(plan.isComplete(), "Search timed out");
+                double expected = exhaustiveValue(problem, unlockBudget, upgradeBudget);
+                assertTrue(Math.abs(expected - plan.getValue()) < 1e-9, "Value " + plan.getValue() + " instead of "
+                        + expected + " with budgets " + unlockBudget + " and " + upgradeBudget);
+            }
+        }
+    }
+
+    @Test
+    public void timedOutSearchReturnsPlanWithinBudgets() {
+        TechTree tree = TreeFixtures.gridTree(30);
+        Plan plan = this.planner.plan(tree, 2000, 1_000_000, 0);
+
+        assertFalse(plan.isComplete(), "Search finished without time");
+        assertTrue(plan.getUnlockCost() <= 2000, "Unlock cost " + plan.getUnlockCost());
+        assertTrue(plan.getUpgradeCost() <= 1_000_000, "Upgrade cost " + plan.getUpgradeCost());
+        for (PlanAction action : plan.getActions()) {
+            if (action.getType() == PlanAction.Type.UNLOCK) {
+                assertEquals(UnlockResult.UNLOCKED, tree.unlockNode(action.getX(), action.getY(), action.getSelection()),
+                        "Unlock of " + action);
+            } else {
+                assertTrue(tree.buyUpgrade(action.getX(), action.getY()), "Upgrade of " + action);
+            }
+        }
+    }
+
+    @Test
+    public void plansTreesWiderThanSixtyFourCells() {
+        TechTree tree = TreeFixtures.gridTree(30);
+        Plan plan = this.planner.plan(tree, 200, 0, TIME_MILLIS);
+
+        assertTrue(plan.getUnlockCost() > 0 && plan.getUnlockCost() <= 200, "Unlock cost " + plan.getUnlockCost());
+        for (PlanAction action : plan.getActions()) {
+            assertEquals(UnlockResult.UNLOCKED, tree.unlockNode(action.getX(), action.getY(), action.getSelection()),
+                    "Unlock of " + action);
+        }
+    }
+
+    /**
+     * Finds the best plan value by trying every set of locked nodes that can be unlocked
+     * from the unlocked ones within the budget.
+     */
+    private static double exhaustiveValue(PlanProblem problem, int unlockBudget, int upgradeBudget) {
+        int[] locked = problem.unlockOrder;
+        int[] nextLevel = new int[problem.cells];
+        double best = 0.0;
+
+        for (int subset = 0; subset < 1 << locked.length; subset++) {
+            BitSet cells = (BitSet) problem.unlocked.clone();
+            int cost = 0;
+            double value = 0.0;
+            for (int i = 0; i < locked.length; i++) {
+                if ((subset & 1 << i) != 0) {
+                    cells.set(locked[i]);
+                    cost += problem.unlockCost[locked[i]];
+                    value += problem.unlockValue[locked[i]];
+                }
+            }
+
+            if (cost <= unlockBudget && isConnected(problem, cells)) {
+                best = Math.max(best, value + problem.fillUpgrades(cells, upgradeBudget, nextLevel, null));
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Checks that every node of a set can be reached from the initially unlocked nodes
+     * without leaving the set.
+     */
+    private static boolean isConnected(PlanProblem problem, BitSet cells) {
+        BitSet reached = (BitSet) problem.unlocked.clone();
+        BitSet added;
+        do {
+            added = problem.frontierOf(reached);
+            added.and(cells);
+            reached.or(added);
+        } while (!added.isEmpty());
+
+        return reached.equals(cells);
+    }
+}
@@ -0,0 +1,84 @@
+package com.warships.raffles;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertFalse;
+import static com.warships.test.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.warships.test.Test;
+import com.warships.utils.RandomEngine;
+
+public class RaffleTest {
+
+    @Test
+    public void filteredDrawsSkipFilteredTickets() {
+        List<String> unwanted = Arrays.asList(DefenseRaffle.MORTAR, DefenseRaffle.MINE, DefenseRaffle.BOOM_CANNON);
+        int wanted = DefenseRaffle.TICKETS.size() - unwanted.size();
+
+        for (long seed = 0; seed < 50; seed++) {
+            DefenseRaffle raffle = new DefenseRaffle(new RandomEngine(seed));
+
+            for (int i = 0; i < wanted; i++) {
+                String ticket = raffle.removeWithFilter(unwanted);
+                assertFalse(unwanted.contains(ticket), "Draw " + i + " of seed " + seed + " was " + ticket);
+            }
+
+            // Only filtered tickets are left, so the filter gives way
+            for (int i = 0; i < unwanted.size(); i++) {
+                assertTrue(unwanted.contains(raffle.removeWithFilter(unwanted)), "Fallback draw " + i);
+            }
+            assertTrue(raffle.isEmpty(), "Raffle of seed " + seed + " is empty");
+        }
+    }
+
+    @Test
+    public void poolEmptiesOncePerTicket() {
+        for (long seed = 0; seed < 50; seed++) {
+            DefenseRaffle raffle = new DefenseRaffle(new RandomEngine(seed));
+            Set<String> drawn = new HashSet<>();
+
+            while (!raffle.isEmpty()) {
+                String ticket = raffle.removeRandom();
+                assertTrue(drawn.add(ticket), "Ticket " + ticket + " drawn twice with seed " + seed);
+                assertFalse(raffle.contains(ticket), "Raffle still contains " + ticket);
+                assertFalse(raffle.tickets().contains(ticket), "Remaining tickets hold " + ticket);
+                assertEquals(DefenseRaffle.TICKETS.size() - drawn.size(), raffle.tickets().size(), "Remaining");
+            }
+
+            assertEquals(DefenseRaffle.TICKETS.size(), drawn.size(), "Drawn tickets");
+            assertEquals(drawn, new HashSet<>(raffle.winners()), "Winners");
+        }
+    }
+
+    @Test
+    public void winnersKeepDrawOrder() {
+        DefenseRaffle raffle = new DefenseRaffle(new RandomEngine(3L));
+        List<String> drawn = new ArrayList<>();
+
+        raffle.remove(DefenseRaffle.CANNON);
+        drawn.add(DefenseRaffle.CANNON);
+        for (int i = 0; i < 4; i++) {
+            drawn.add(raffle.removeRandom());
+        }
+
+        assertEquals(drawn, raffle.winners(), "Winners");
+    }
+
+    @Test
+    public void removingMissingTicketDoesNothing() {
+        DefenseRaffle raffle = new DefenseRaffle(new RandomEngine(7L));
+        raffle.remove(DefenseRaffle.SNIPER_TOWER);
+        List<String> tickets = raffle.tickets();
+
+        raffle.remove(DefenseRaffle.SNIPER_TOWER);
+        raffle.remove("Not A Defense");
+
+        assertEquals(tickets, raffle.tickets(), "Remaining tickets");
+        assertEquals(Arrays.asList(DefenseRaffle.SNIPER_TOWER), raffle.winners(), "Winners");
+    }
+}
@@ -0,0 +1,64 @@
+package com.warships.raffles;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.warships.test.Test;
+import com.warships.utils.RandomEngine;
+
+public class TicketTableTest {
+
+    @Test
+    public void holdsEveryStringConstant() {
+        Set<String> expected = new HashSet<>(Arrays.asList(
+                DefenseRaffle.SNIPER_TOWER, DefenseRaffle.MORTAR, DefenseRaffle.CANNON, DefenseRaffle.BOOM_CANNON,
+                DefenseRaffle.MACHINE_GUN, DefenseRaffle.FLAMETHROWER, DefenseRaffle.ROCKET_LAUNCHER,
+                DefenseRaffle.SHOCK_LAUNCHER, DefenseRaffle.CRITTER_LAUNCHER, DefenseRaffle.MINE,
+                DefenseRaffle.BOOM_MINE, DefenseRaffle.SHOCK_MINE));
+
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < DefenseRaffle.TICKETS.size(); i++) {
+            names.add(DefenseRaffle.TICKETS.getName(i));
+        }
+
+        assertEquals(expected.size(), DefenseRaffle.TICKETS.size(), "Tickets");
+        assertEquals(expected, names, "Ticket names");
+    }
+
+    @Test
+    public void indexMatchesName() {
+        TicketTable table = TroopRaffle.TICKETS;
+
+        for (int i = 0; i < table.size(); i++) {
+            assertEquals(i, table.indexOf(table.getName(i)), "Index of " + table.getName(i));
+        }
+        assertEquals(-1, table.indexOf("Not A Troop"), "Index of a missing ticket");
+    }
+
+    @Test
+    public void filterIgnoresMissingNames() {
+        TicketTable table = DefenseRaffle.TICKETS;
+        long mask = table.compileFilter(Arrays.asList(DefenseRaffle.MORTAR, "Not A Defense", DefenseRaffle.MINE));
+
+        assertEquals((1L << table.indexOf(DefenseRaffle.MORTAR)) | (1L << table.indexOf(DefenseRaffle.MINE)), mask,
+                "Filter mask");
+        assertEquals(0L, table.compileFilter(Arrays.asList("Not A Defense")), "Empty filter mask");
+    }
+
+    @Test
+    public void rafflesDoNotSharePools() {
+        DefenseRaffle first = new DefenseRaffle(new RandomEngine(1L));
+        DefenseRaffle second = new DefenseRaffle(new RandomEngine(1L));
+
+        while (!first.isEmpty()) {
+            first.removeRandom();
+        }
+
+        assertEquals(DefenseRaffle.TICKETS.size(), second.tickets().size(), "Tickets of the second raffle");
+        assertTrue(second.contains(DefenseRaffle.MORTAR), "Second raffle contains " + DefenseRaffle.MORTAR);
+    }
+}
@@ -0,0 +1,116 @@
+package com.warships.server;
+
+import static com.warships.test.Assert.assertArrayEquals;
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.warships.test.Test;
+import com.warships.tree.TechTree;
+import com.warships.tree.TreeFixtures;
+import com.warships.tree.TreeCodec;
+import com.warships.tree.TreeRenderer;
+
+public class TreeServerTest {
+
+    @Test
+    public void servesEveryFormat() throws IOException {
+        TechTree tree = TreeFixtures.generated(5L);
+
+        try (TreeServer server = startServer()) {
+            Response text = get(server, "/tree?seed=5");
+            assertEquals(200L, text.status, "Text status");
+            ByteBuffer frame = ByteBuffer.allocate(TreeRenderer.encodedSize(tree));
+            TreeRenderer.render(tree, frame);
+            assertArrayEquals(frame.array(), text.body, "Text body");
+            assertEquals("5", text.seed, "Seed header");
+
+            Response json = get(server, "/tree?seed=5&format=json");
+            assertEquals(200L, json.status, "JSON status");
+            assertTrue(new String(json.body, StandardCharsets.UTF_8).startsWith("{\"seed\":5,"), "JSON body");
+
+            Response binary = get(server, "/tree?seed=5&format=binary");
+            assertEquals(200L, binary.status, "Binary status");
+            assertArrayEquals(TreeCodec.encode(tree), binary.body, "Binary body");
+        }
+    }
+
+    @Test
+    public void requestWithoutSeedGetsRandomSeed() throws IOException {
+        try (TreeServer server = startServer()) {
+            Response response = get(server, "/tree");
+
+            assertEquals(200L, response.status, "Status");
+            assertTrue(response.seed != null && response.seed.matches("-?\\d+"), "Seed header " + response.seed);
+        }
+    }
+
+    @Test
+    public void rejectsBadRequests() throws IOException {
+        try (TreeServer server = startServer()) {
+            assertEquals(400L, get(server, "/tree?seed=abc").status, "Invalid seed");
+            assertEquals(400L, get(server, "/tree?seed=1&format=xml").status, "Unknown format");
+            assertEquals(404L, get(server, "/tree/other").status, "Unknown path");
+
+            HttpURLConnection connection = open(server, "/tree");
+            try {
+                connection.setRequestMethod("DELETE");
+                assertEquals(405L, connection.getResponseCode(), "Other method");
+                assertEquals("GET", connection.getHeaderField("Allow"), "Allow header");
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static TreeServer startServer() throws IOException {
+        TreeServer server = new TreeServer(new InetSocketAddress("localhost", 0));
+        server.start();
+        return server;
+    }
+
+    private static HttpURLConnection open(TreeServer server, String path) throws IOException {
+        InetSocketAddress address = server.getAddress();
+        URL url = new URL("http", address.getHostString(), address.getPort(), path);
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    private static Response get(TreeServer server, String path) throws IOException {
+        HttpURLConnection connection = open(server, path);
+        try {
+            int status = connection.getResponseCode();
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            if (in != null) {
+                try (InputStream stream = in) {
+                    stream.transferTo(body);
+                }
+            }
+            return new Response(status, connection.getHeaderField("X-Tree-Seed"), body.toByteArray());
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static final class Response {
+
+        private final int status;
+        private final String seed;
+        private final byte[] body;
+
+        private Response(int status, String seed, byte[] body) {
+            this.status = status;
+            this.seed = seed;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.warships.session;
+
+import static com.warships.test.Assert.assertArrayEquals;
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertFalse;
+import static com.warships.test.Assert.assertThrows;
+import static com.warships.test.Assert.assertTrue;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.warships.test.Test;
+import com.warships.tree.TechTree;
+import com.warships.tree.TreeCodec;
+import com.warships.tree.TreeFixtures;
+
+public class SessionManagerTest {
+
+    /**
+     * Number of columns of a fully generated tree.
+     */
+    private static final int COLUMNS = 20;
+
+    @Test
+    public void evictsLeastRecentlyUsedWithinBudget() {
+        SessionManager manager = new SessionManager(2 * treeBytes() + 1000);
+        Session first = manager.open(1L);
+        Session second = manager.open(2L);
+
+        assertEquals(2L, manager.getResidentCount(), "Resident sessions");
+
+        // Using the first session makes the second the least recently used one
+        first.read(TechTree::getWidth);
+        Session third = manager.open(3L);
+
+        assertTrue(first.isResident(), "First session is resident");
+        assertFalse(second.isResident(), "Second session is resident");
+        assertTrue(third.isResident(), "Third session is resident");
+        assertEquals(1L, manager.getEvictionCount(), "Evictions");
+        assertTrue(manager.getResidentBytes() <= manager.getBudget(), "Resident bytes within budget");
+
+        second.read(TechTree::getWidth);
+        assertEquals(1L, manager.getHitCount(), "Hits");
+        assertEquals(1L, manager.getMissCount(), "Misses");
+        assertEquals(3L, manager.getSessionCount(), "Sessions");
+    }
+
+    @Test
+    public void rebuiltTreeMatchesTreeThatWasNeverEvicted() {
+        SessionManager manager = new SessionManager(1);
+        Session session = manager.open(21L);
+        TechTree mirror = new TechTree(21L);
+        mirror.generateLazily();
+
+        for (int round = 0; round < 4; round++) {
+            long other = round;
+            TreeFixtures.forEachCell(COLUMNS, (x, y) -> {
+                // Opening another session evicts this one before every action
+                manager.close(manager.open(other).getId());
+
+                int selection = TreeFixtures.selectionOf(x, y);
+                assertEquals(mirror.unlockNode(x, y, selection), session.unlockNode(x, y, selection),
+                        "Unlock of (" + x + ", " + y + ")");
+                assertEquals(mirror.buyUpgrade(x, y), session.buyUpgrade(x, y),
+                        "Upgrade of (" + x + ", " + y + ")");
+            });
+        }
+
+        manager.close(manager.open(0L).getId());
+        assertFalse(session.isResident(), "Session is resident");
+        assertArrayEquals(TreeCodec.encode(mirror), session.read(TreeCodec::encode), "Rebuilt tree");
+        assertTrue(manager.getMissCount() > 0, "Trees were rebuilt");
+    }
+
+    @Test
+    public void closedSessionCannotBeUsed() {
+        SessionManager manager = new SessionManager(1_000_000);
+        Session session = manager.open(5L);
+
+        assertTrue(manager.close(session.getId()), "Close of an open session");
+        assertFalse(manager.close(session.getId()), "Close of a closed session");
+        assertEquals(null, manager.get(session.getId()), "Closed session");
+        assertThrows(IllegalStateException.class, () -> session.unlockNode(1, 0, -1));
+        assertEquals(0L, manager.getResidentBytes(), "Resident bytes");
+    }
+
+    @Test
+    public void closingDuringRebuildDoesNotReadmitTree() throws InterruptedException {
+        SessionManager manager = new SessionManager(1);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        for (long seed = 0; seed < 20; seed++) {
+            Session session = manager.open(seed);
+            playEveryNode(session);
+            manager.close(manager.open(seed).getId());
+
+            long misses = manager.getMissCount();
+            Thread user = new Thread(() -> {
+                try {
+                    session.read(TechTree::getWidth);
+                } catch (IllegalStateException ex) {
+                    // Closed while the tree was rebuilt
+                } catch (Throwable ex) {
+                    failures.add(ex);
+                }
+            });
+            user.start();
+
+            // Close the session as soon as its rebuild starts
+            while (manager.getMissCount() == misses && user.isAlive()) {
+                Thread.onSpinWait();
+            }
+            manager.close(session.getId());
+            user.join();
+
+            assertTrue(failures.isEmpty(), "Unexpected failure: " + failures.peek());
+            assertEquals(0L, manager.getResidentCount(), "Resident sessions of seed " + seed);
+            assertEquals(0L, manager.getResidentBytes(), "Resident bytes of seed " + seed);
+        }
+    }
+
+    @Test
+    public void rejectsBadBudget() {
+        assertThrows(IllegalArgumentException.class, () -> new SessionManager(0));
+    }
+
+    /**
+     * Unlocks and upgrades nodes across the whole tree, so that rebuilding it replays a
+     * long action log.
+     */
+    private static void playEveryNode(Session session) {
+        for (int round = 0; round < 3; round++) {
+            TreeFixtures.forEachCell(COLUMNS, (x, y) -> {
+                session.unlockNode(x, y, TreeFixtures.selectionOf(x, y));
+                session.buyUpgrade(x, y);
+            });
+        }
+    }
+
+    private static long treeBytes() {
+        TechTree tree = new TechTree(0L);
+        tree.generateLazily();
+        return SessionManager.estimateBytes(tree);
+    }
+}
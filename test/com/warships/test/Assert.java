@@ -0,0 +1,75 @@
+package com.warships.test;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Assertions used by tests. A failed assertion throws an {@link AssertionError}.
+ */
+public final class Assert {
+
+    /**
+     * A block of code expected to throw.
+     */
+    @FunctionalInterface
+    public interface Block {
+        void run() throws Exception;
+    }
+
+    public static void assertTrue(boolean condition, String message) {
+        if (!condition) {
+            fail(message);
+        }
+    }
+
+    public static void assertFalse(boolean condition, String message) {
+        assertTrue(!condition, message);
+    }
+
+    public static void assertEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            fail(message + ": expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    public static void assertEquals(long expected, long actual, String message) {
+        if (expected != actual) {
+            fail(message + ": expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    public static void assertArrayEquals(byte[] expected, byte[] actual, String message) {
+        if (!Arrays.equals(expected, actual)) {
+            fail(message + ": arrays differ");
+        }
+    }
+
+    /**
+     * Checks that a block throws an exception of a type.
+     *
+     * @param type Expected type of the exception.
+     * @param block Block to run.
+     * @param <T> Type of the exception.
+     * @return The exception thrown.
+     */
+    public static <T extends Throwable> T assertThrows(Class<T> type, Block block) {
+        try {
+            block.run();
+        } catch (Throwable ex) {
+            if (type.isInstance(ex)) {
+                return type.cast(ex);
+            }
+            throw new AssertionError("Expected " + type.getSimpleName() + " but got " + ex, ex);
+        }
+
+        throw new AssertionError("Expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+
+    public static void fail(String message) {
+        throw new AssertionError(message);
+    }
+
+    private Assert() {
+        throw new IllegalStateException("Cannot instantiate static class.");
+    }
+}
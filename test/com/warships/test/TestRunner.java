@@ -0,0 +1,64 @@
+package com.warships.test;
+
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Minimal test harness. Every public method of a test class annotated with
+ * {@link Test} runs on a new instance of the class, and the failures are reported
+ * with the exception that caused them. Tests run in the order of their names.
+ */
+public final class TestRunner {
+
+    private final PrintStream out;
+    private int passed;
+    private int failed;
+
+    /**
+     * @param out Stream results are reported to.
+     */
+    public TestRunner(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Runs every test of a class.
+     *
+     * @param testClass The test class. It must have a public no-argument constructor.
+     */
+    public void run(Class<?> testClass) {
+        Method[] methods = testClass.getMethods();
+        Arrays.sort(methods, Comparator.comparing(Method::getName));
+
+        for (Method method : methods) {
+            if (!method.isAnnotationPresent(Test.class) || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+
+            String name = testClass.getSimpleName() + "." + method.getName();
+            try {
+                method.invoke(testClass.getConstructor().newInstance());
+                this.passed++;
+            } catch (InvocationTargetException ex) {
+                this.failed++;
+                this.out.printf("FAIL %s%n", name);
+                ex.getCause().printStackTrace(this.out);
+            } catch (ReflectiveOperationException ex) {
+                this.failed++;
+                this.out.printf("FAIL %s: cannot run: %s%n", name, ex);
+            }
+        }
+    }
+
+    public int getPassedCount() {
+        return this.passed;
+    }
+
+    public int getFailedCount() {
+        return this.failed;
+    }
+}
@@ -0,0 +1,84 @@
+package com.warships.test;
+
+import com.warships.bench.BenchmarksTest;
+import com.warships.bulk.BulkGeneratorTest;
+import com.warships.bulk.DedupFilterTest;
+import com.warships.bulk.TreeStatisticsTest;
+import com.warships.loaders.PresetCatalogTest;
+import com.warships.nodes.AttachmentGroupsTest;
+import com.warships.planner.UnlockPlannerTest;
+import com.warships.raffles.RaffleTest;
+import com.warships.raffles.TicketTableTest;
+import com.warships.server.TreeServerTest;
+import com.warships.session.SessionManagerTest;
+import com.warships.tree.BatchRunnerTest;
+import com.warships.tree.MazeGeneratorTest;
+import com.warships.tree.NameIndexTest;
+import com.warships.tree.RenderCacheTest;
+import com.warships.tree.TechGridTest;
+import com.warships.tree.TechTreeConcurrencyTest;
+import com.warships.tree.TreeCodecTest;
+import com.warships.tree.TreeDeterminismTest;
+import com.warships.tree.TreeFingerprintTest;
+import com.warships.tree.TreeRendererTest;
+import com.warships.tree.UnlockPathsTest;
+import com.warships.tree.TreeValidatorTest;
+import com.warships.utils.AliasTableTest;
+import com.warships.utils.RandomEngineTest;
+
+/**
+ * Runs every test class and exits with a non-zero status if a test fails.
+ * <pre>
+ * Tests [--filter text]
+ * </pre>
+ */
+public final class Tests {
+
+    private static final Class<?>[] TEST_CLASSES = {
+            RandomEngineTest.class,
+            BulkGeneratorTest.class,
+            TreeStatisticsTest.class,
+            DedupFilterTest.class,
+            PresetCatalogTest.class,
+            AliasTableTest.class,
+            TechGridTest.class,
+            NameIndexTest.class,
+            MazeGeneratorTest.class,
+            AttachmentGroupsTest.class,
+            RaffleTest.class,
+            TicketTableTest.class,
+            TreeDeterminismTest.class,
+            RenderCacheTest.class,
+            TreeRendererTest.class,
+            TreeCodecTest.class,
+            TreeFingerprintTest.class,
+            TreeValidatorTest.class,
+            TechTreeConcurrencyTest.class,
+            UnlockPathsTest.class,
+            UnlockPlannerTest.class,
+            BatchRunnerTest.class,
+            TreeServerTest.class,
+            SessionManagerTest.class,
+            BenchmarksTest.class,
+    };
+
+    public static void main(String[] args) {
+        String filter = args.length == 2 && args[0].equals("--filter") ? args[1] : "";
+        TestRunner runner = new TestRunner(System.out);
+
+        for (Class<?> testClass : TEST_CLASSES) {
+            if (testClass.getSimpleName().contains(filter)) {
+                runner.run(testClass);
+            }
+        }
+
+        System.out.printf("%d passed, %d failed%n", runner.getPassedCount(), runner.getFailedCount());
+        if (runner.getFailedCount() > 0) {
+            System.exit(1);
+        }
+    }
+
+    private Tests() {
+        throw new IllegalStateException("Cannot instantiate static class.");
+    }
+}
@@ -0,0 +1,117 @@
+package com.warships.tree;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertThrows;
+import static com.warships.test.Assert.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import com.warships.test.Test;
+
+public class BatchRunnerTest {
+
+    @Test
+    public void runsEachSeedOnItsOwnTree() throws IOException {
+        Output output = run("seed 1\nrefresh\nseed 2\nrefresh\n");
+
+        assertEquals("Seed 1\n" + frame(1) + "Seed 2\n" + frame(2), output.text, "Output");
+        assertEquals(2L, output.runner.getTreeCount(), "Trees");
+        assertEquals(4L, output.runner.getCommandCount(), "Commands");
+    }
+
+    @Test
+    public void commandsBeforeFirstSeedUseDefaultSeed() throws IOException {
+        Output output = run("refresh\n");
+
+        assertEquals("Seed 9\n" + frame(9), output.text, "Output");
+    }
+
+    @Test
+    public void skipsRefreshOfUnchangedTree() throws IOException {
+        Output output = run("seed 1\nrefresh\nrefresh\nseed 1\nrefresh\n");
+
+        assertEquals("Seed 1\n" + frame(1) + "Seed 1\n" + frame(1), output.text, "Output");
+    }
+
+    @Test
+    public void ignoresBlankLinesCommentsAndExit() throws IOException {
+        Output output = run("\n# comment\n   \nexit\nEXIT\nseed 3\n");
+
+        assertEquals("Seed 3\n", output.text, "Output");
+        assertEquals(1L, output.runner.getCommandCount(), "Commands");
+    }
+
+    @Test
+    public void reportsFailedLinesAndGoesOn() throws IOException {
+        Output output = run("# comment\nseed x\nseed 4\n");
+
+        assertTrue(output.text.startsWith("Line 2: seed x failed: java.lang.NumberFormatException"),
+                "Output: " + output.text);
+        assertTrue(output.text.endsWith("Seed 4\n"), "Output: " + output.text);
+        assertEquals(1L, output.runner.getFailureCount(), "Failures");
+        assertEquals(2L, output.runner.getCommandCount(), "Commands");
+    }
+
+    @Test
+    public void flushesResultsWhenScriptCannotBeRead() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        // Results only reach the bytes once the sink is flushed
+        PrintStream out = new PrintStream(new BufferedOutputStream(bytes, 1 << 16), false, StandardCharsets.UTF_8);
+        BatchRunner runner = new BatchRunner(out, 9L);
+
+        BufferedReader script = new BufferedReader(new Reader() {
+            private final Reader lines = new StringReader("seed 5\n");
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                int read = this.lines.read(buffer, offset, length);
+                if (read < 0) {
+                    throw new IOException("Script is gone");
+                }
+                return read;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        assertThrows(IOException.class, () -> runner.run(script));
+        assertEquals("Seed 5\n", bytes.toString(StandardCharsets.UTF_8).replace(System.lineSeparator(), "\n"),
+                "Output");
+    }
+
+    private static Output run(String script) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, false, StandardCharsets.UTF_8);
+        BatchRunner runner = new BatchRunner(out, 9L);
+
+        runner.run(new BufferedReader(new StringReader(script)));
+
+        String text = bytes.toString(StandardCharsets.UTF_8).replace(System.lineSeparator(), "\n");
+        return new Output(runner, text);
+    }
+
+    private static String frame(long seed) {
+        TechTree tree = TreeFixtures.generated(seed);
+        return tree.renderFrame().replace(System.lineSeparator(), "\n");
+    }
+
+    private static final class Output {
+
+        private final BatchRunner runner;
+        private final String text;
+
+        private Output(BatchRunner runner, String text) {
+            this.runner = runner;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.warships.tree;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertThrows;
+import static com.warships.test.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import com.warships.loaders.PresetCatalog;
+import com.warships.nodes.EngineNode;
+import com.warships.nodes.TechNode;
+import com.warships.test.Test;
+import com.warships.utils.RandomEngine;
+
+public class MazeGeneratorTest {
+
+    /**
+     * First column carved by the maze of the first engine room.
+     */
+    private static final int FIRST_MAZE_COLUMN = 3;
+
+    @Test
+    public void everyRoomIsSpanningTree() {
+        for (long seed = 0; seed < 30; seed++) {
+            TechTree tree = TreeFixtures.generated(seed);
+
+            for (int room = 0; room < tree.getRoomCount(); room++) {
+                int start = mazeStart(tree, room);
+                int end = tree.getRoomEnd(room) + 1;
+                String label = "Room " + room + " of seed " + seed;
+
+                assertEquals(TechGrid.ROWS * (end - start) - 1, countLinks(tree, start, end), label + " links");
+                assertEquals(TechGrid.ROWS * (end - start), countReachable(tree, start, end), label + " reachable");
+            }
+        }
+    }
+
+    @Test
+    public void roomsAreStitchedToThePreviousColumn() {
+        for (long seed = 0; seed < 30; seed++) {
+            TechTree tree = TreeFixtures.generated(seed);
+
+            for (int room = 0; room < tree.getRoomCount(); room++) {
+                int before = mazeStart(tree, room) - 1;
+                String label = "Room " + room + " of seed " + seed;
+
+                int stitches = 0;
+                for (int y = 0; y < TechGrid.ROWS; y++) {
+                    TechNode node = tree.getNode(before, y);
+                    if (node.hasRight()) {
+                        stitches++;
+                        assertTrue(node.getNextRightNode() == tree.getNode(before + 1, y), label + " stitch");
+                        if (room > 0) {
+                            assertTrue(node instanceof EngineNode, label + " stitch from " + node);
+                        }
+                    }
+                }
+
+                // The first room may get a second connector to the starting columns
+                assertTrue(stitches == 1 || (room == 0 && stitches == 2), label + " has " + stitches + " stitches");
+            }
+        }
+    }
+
+    @Test
+    public void roomsMatchBetweenEagerAndLazyTrees() {
+        TechTree eager = TreeFixtures.generated(31L);
+        TechTree lazy = new TechTree(31L);
+        lazy.generateLazily();
+
+        for (int room = 0; room < eager.getRoomCount(); room++) {
+            // Reading past the generated columns stitches in the next room
+            lazy.getNode(eager.getRoomEnd(room), 0);
+            assertEquals(eager.getRoomEnd(room), lazy.getRoomEnd(room), "End of room " + room);
+        }
+
+        assertEquals(eager.renderFrame(), lazy.renderFrame(), "Frame");
+    }
+
+    @Test
+    public void carvesOnlyOnce() {
+        PresetCatalog catalog = PresetCatalog.getDefault();
+        TechGrid grid = new TechGrid();
+        for (int x = 0; x < FIRST_MAZE_COLUMN + 4; x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                grid.set(x, y, catalog.createNode(x * TechGrid.ROWS + y));
+            }
+        }
+
+        MazeGenerator generator = new MazeGenerator(grid, FIRST_MAZE_COLUMN, FIRST_MAZE_COLUMN + 4, new RandomEngine(1L));
+        generator.generateMaze();
+
+        assertThrows(IllegalStateException.class, generator::generateMaze);
+    }
+
+    private static int mazeStart(TechTree tree, int room) {
+        return room == 0 ? FIRST_MAZE_COLUMN : tree.getRoomEnd(room - 1) + 1;
+    }
+
+    /**
+     * Counts the links between nodes of the columns <code>[start, end)</code>.
+     */
+    private static int countLinks(TechTree tree, int start, int end) {
+        int links = 0;
+
+        for (int x = start; x < end; x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                TechNode node = tree.getNode(x, y);
+                if (node.hasLower()) {
+                    links++;
+                }
+                if (node.hasRight() && x + 1 < end) {
+                    links++;
+                }
+            }
+        }
+
+        return links;
+    }
+
+    /**
+     * Counts the nodes of the columns <code>[start, end)</code> reachable from the top left
+     * node without leaving the columns.
+     */
+    private static int countReachable(TechTree tree, int start, int end) {
+        int width = end - start;
+        boolean[] seen = new boolean[TechGrid.ROWS * width];
+        Deque<Integer> queue = new ArrayDeque<>();
+        seen[0] = true;
+        queue.add(0);
+        int reached = 0;
+
+        while (!queue.isEmpty()) {
+            int cell = queue.poll();
+            reached++;
+
+            TechNode node = tree.getNode(start + cell / TechGrid.ROWS, cell % TechGrid.ROWS);
+            for (TechNode next : new TechNode[] {node.getNextLeftNode(), node.getNextUpperNode(),
+                    node.getNextRightNode(), node.getNextLowerNode()}) {
+                if (next == null) {
+                    continue;
+                }
+
+                int nextCell = cellOf(tree, next, start, end);
+                if (nextCell >= 0 && !seen[nextCell]) {
+                    seen[nextCell] = true;
+                    queue.add(nextCell);
+                }
+            }
+        }
+
+        return reached;
+    }
+
+    private static int cellOf(TechTree tree, TechNode node, int start, int end) {
+        for (int x = start; x < end; x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                if (tree.getNode(x, y) == node) {
+                    return (x - start) * TechGrid.ROWS + y;
+                }
+            }
+        }
+
+        return -1;
+    }
+}
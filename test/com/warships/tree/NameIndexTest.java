@@ -0,0 +1,64 @@
+package com.warships.tree;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertTrue;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.warships.nodes.TechNode;
+import com.warships.test.Test;
+
+public class NameIndexTest {
+
+    @Test
+    public void keepsInsertionOrder() {
+        NameIndex index = new NameIndex();
+        index.add("Mortar", 9);
+        index.add("Mortar", 4);
+        index.add("Cannon", 5);
+
+        assertEquals(9L, index.first("Mortar"), "First mortar");
+        assertEquals(Arrays.asList(9, 4), index.all("Mortar"), "Mortars");
+        assertEquals(Arrays.asList(5), index.all("Cannon"), "Cannons");
+    }
+
+    @Test
+    public void removesSinglePosition() {
+        NameIndex index = new NameIndex();
+        index.add("Mortar", 9);
+        index.add("Mortar", 4);
+
+        index.remove("Mortar", 9);
+        assertEquals(4L, index.first("Mortar"), "First mortar");
+
+        index.remove("Mortar", 4);
+        index.remove("Mortar", 4);
+        index.remove("Cannon", 5);
+        assertEquals(-1L, index.first("Mortar"), "First mortar");
+        assertEquals(Collections.emptyList(), index.all("Mortar"), "Mortars");
+    }
+
+    @Test
+    public void treeLookupsFollowRenamedNodes() {
+        TechTree tree = TreeFixtures.played(15L);
+
+        TreeFixtures.forEachCell(tree.getWidth(), (x, y) -> {
+            TechNode node = tree.getNode(x, y);
+            if (node == null) {
+                return;
+            }
+
+            String name = node.getName();
+            assertTrue(tree.getNodes(name).contains(node), "Nodes named " + name + " hold (" + x + ", " + y + ")");
+            assertEquals(name, tree.getNode(name).getName(), "Node named " + name);
+
+            Point position = tree.getPositionOf(name);
+            assertEquals(name, tree.getNode(position.x, position.y).getName(), "Position of " + name);
+        });
+
+        assertEquals(null, tree.getNode("Not A Node"), "Missing node");
+        assertEquals(null, tree.getPositionOf("Not A Node"), "Missing position");
+    }
+}
@@ -0,0 +1,83 @@
+package com.warships.tree;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertTrue;
+
+import com.warships.constants.ConnectionConstants;
+import com.warships.enums.UnlockResult;
+import com.warships.loaders.PresetCatalog;
+import com.warships.test.Test;
+
+public class RenderCacheTest {
+
+    @Test
+    public void unlocksMatchFullRender() {
+        TechTree tree = TreeFixtures.generated(4L);
+        assertRendersFresh(tree, "Generated tree");
+
+        for (int round = 0; round < 2; round++) {
+            TreeFixtures.forEachCell(tree.getWidth(), (x, y) -> {
+                if (tree.unlockNode(x, y, TreeFixtures.selectionOf(x, y)) == UnlockResult.UNLOCKED) {
+                    assertRendersFresh(tree, "After unlocking (" + x + ", " + y + ")");
+                }
+            });
+        }
+    }
+
+    @Test
+    public void upgradesMatchFullRender() {
+        TechTree tree = TreeFixtures.generated(6L);
+        TreeFixtures.unlockAll(tree);
+        assertRendersFresh(tree, "Unlocked tree");
+
+        // Enough rounds to max out every node
+        for (int round = 0; round < 5; round++) {
+            TreeFixtures.forEachCell(tree.getWidth(), (x, y) -> {
+                if (tree.buyUpgrade(x, y)) {
+                    assertRendersFresh(tree, "After upgrading (" + x + ", " + y + ")");
+                }
+            });
+        }
+    }
+
+    @Test
+    public void connectionsMatchFullRender() {
+        PresetCatalog catalog = PresetCatalog.getDefault();
+        TechTree tree = TechTree.createEmpty(0L);
+        tree.restoreRoom(3);
+        TreeFixtures.forEachCell(4, (x, y) -> {
+            if (x != 0 || y != 1) {
+                tree.restoreNode(x, y, catalog.createNode(x * TechGrid.ROWS + y));
+            }
+        });
+        assertRendersFresh(tree, "Unconnected tree");
+
+        int[] connected = {0};
+        TreeFixtures.forEachCell(4, (x, y) -> {
+            for (String direction : new String[] {ConnectionConstants.RIGHT, ConnectionConstants.UPPER}) {
+                if (tree.attemptConnection(x, y, direction)) {
+                    connected[0]++;
+                    assertRendersFresh(tree, "After connecting (" + x + ", " + y + ") " + direction);
+                }
+            }
+        });
+
+        assertTrue(connected[0] > 10, "Only " + connected[0] + " connections");
+    }
+
+    @Test
+    public void unchangedTreeKeepsFrame() {
+        TechTree tree = TreeFixtures.generated(2L);
+        String frame = tree.renderFrame();
+
+        assertTrue(frame == tree.renderFrame(), "Frame was rendered again");
+    }
+
+    /**
+     * Checks that the cached frame, which only re-renders changed cells, matches a frame
+     * rendered from scratch.
+     */
+    private static void assertRendersFresh(TechTree tree, String message) {
+        assertEquals(new RenderCache().refresh(tree), tree.renderFrame(), message);
+    }
+}
@@ -0,0 +1,81 @@
+package com.warships.tree;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertTrue;
+
+import com.warships.loaders.PresetCatalog;
+import com.warships.nodes.TechNode;
+import com.warships.test.Test;
+
+public class TechGridTest {
+
+    @Test
+    public void packedPositionsRoundTrip() {
+        for (int x = 0; x < 1000; x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                int position = TechTree.packPosition(x, y);
+
+                assertEquals(x, TechTree.unpackX(position), "X of (" + x + ", " + y + ")");
+                assertEquals(y, TechTree.unpackY(position), "Y of (" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    @Test
+    public void linksLeadToNeighborPositions() {
+        TechTree tree = TreeFixtures.played(12L);
+
+        TreeFixtures.forEachCell(tree.getWidth(), (x, y) -> {
+            TechNode node = tree.getNode(x, y);
+            if (node == null) {
+                return;
+            }
+
+            int position = TechTree.packPosition(x, y);
+            assertTrue(position < tree.getPositionCount(), "Position of (" + x + ", " + y + ")");
+            for (int direction = 0; direction < TechNode.DIRECTIONS; direction++) {
+                if (node.hasLink(direction)) {
+                    assertTrue(node.getNextNode(direction) == tree.getNode(TechTree.neighborPosition(position, direction)),
+                            "Link " + direction + " of (" + x + ", " + y + ")");
+                }
+            }
+        });
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        PresetCatalog catalog = PresetCatalog.getDefault();
+        TechGrid grid = new TechGrid(1);
+        TechNode first = catalog.createNode(0);
+        TechNode last = catalog.createNode(1);
+
+        grid.set(0, 0, first);
+        grid.set(40, 2, last);
+
+        assertEquals(41L, grid.width(), "Width");
+        assertTrue(grid.get(0, 0) == first, "Node at (0, 0)");
+        assertTrue(grid.get(TechGrid.pack(40, 2)) == last, "Node at (40, 2)");
+        assertEquals(null, grid.get(20, 1), "Node at (20, 1)");
+    }
+
+    @Test
+    public void positionsOutsideGridAreEmpty() {
+        TechGrid grid = new TechGrid();
+        grid.set(2, 1, PresetCatalog.getDefault().createNode(0));
+
+        assertEquals(null, grid.get(-1, 1), "Node left of the grid");
+        assertEquals(null, grid.get(3, 1), "Node right of the grid");
+        assertEquals(null, grid.get(2, -1), "Node above the grid");
+        assertEquals(null, grid.get(2, TechGrid.ROWS), "Node below the grid");
+    }
+
+    @Test
+    public void packedLookupMatchesTree() {
+        TechTree tree = TreeFixtures.generated(12L);
+
+        TreeFixtures.forEachCell(tree.getWidth(), (x, y) -> {
+            assertTrue(tree.getNode(TechTree.packPosition(x, y)) == tree.getNode(x, y),
+                    "Node at (" + x + ", " + y + ")");
+        });
+    }
+}
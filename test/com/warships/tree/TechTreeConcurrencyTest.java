@@ -0,0 +1,104 @@
+package com.warships.tree;
+
+import static com.warships.test.Assert.assertArrayEquals;
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertTrue;
+import static com.warships.test.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import com.warships.test.Test;
+
+public class TechTreeConcurrencyTest {
+
+    private static final int SEEDS = 8;
+    private static final int UNLOCKERS = 3;
+
+    @Test
+    public void unlocksRacingLazyGenerationMatchSerialUnlocks() throws InterruptedException {
+        for (long seed = 0; seed < SEEDS; seed++) {
+            TechTree concurrent = new TechTree(seed);
+            concurrent.generateLazily();
+
+            ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+
+            for (int i = 0; i < UNLOCKERS; i++) {
+                threads.add(worker(start, failures, () -> TreeFixtures.unlockAll(concurrent)));
+            }
+            // Retrieving nodes past the generated columns and generating the rest race the unlocks
+            threads.add(worker(start, failures, () -> {
+                for (int x = 0; x < 20; x += 3) {
+                    concurrent.readNode(x, 0, node -> node);
+                }
+                concurrent.generate();
+            }));
+            threads.add(worker(start, failures, () -> {
+                for (int i = 0; i < 200; i++) {
+                    TreeFingerprint.of(concurrent);
+                    concurrent.getCheapestUnlockCost(concurrent.readTree(TechTree::getWidth) - 1, 0);
+                }
+            }));
+
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (!failures.isEmpty()) {
+                throw new AssertionError("Worker of seed " + seed + " failed", failures.peek());
+            }
+
+            TechTree serial = TreeFixtures.generated(seed);
+            TreeFixtures.unlockAll(serial);
+
+            assertEquals(null, TreeValidator.validate(concurrent), "Violation of seed " + seed);
+            assertArrayEquals(TreeCodec.encode(serial), TreeCodec.encode(concurrent), "Tree of seed " + seed);
+        }
+    }
+
+    @Test
+    public void fullTreeReadsSeeRoomsGeneratedMeanwhile() throws InterruptedException {
+        TechTree tree = new TechTree(3L);
+        tree.generateLazily();
+        int lazyWidth = tree.getWidth();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        Thread generator = worker(start, failures, tree::generate);
+        Thread reader = worker(start, failures, () -> {
+            for (int i = 0; i < 500; i++) {
+                // Every column a full read sees must hold a complete room
+                String violation = tree.readTree(TreeValidator::validate);
+                if (violation != null) {
+                    fail("Read a partly generated tree: " + violation);
+                }
+            }
+        });
+
+        start.countDown();
+        generator.join();
+        reader.join();
+        if (!failures.isEmpty()) {
+            throw new AssertionError("Worker failed", failures.peek());
+        }
+
+        assertTrue(tree.getWidth() > lazyWidth, "Remaining rooms were generated");
+    }
+
+    private static Thread worker(CountDownLatch start, ConcurrentLinkedQueue<Throwable> failures, Runnable work) {
+        Thread thread = new Thread(() -> {
+            try {
+                start.await();
+                work.run();
+            } catch (Throwable ex) {
+                failures.add(ex);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,114 @@
+package com.warships.tree;
+
+import static com.warships.test.Assert.assertArrayEquals;
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertFalse;
+import static com.warships.test.Assert.assertThrows;
+import static com.warships.test.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.warships.test.Test;
+
+public class TreeCodecTest {
+
+    private static final int SEEDS = 30;
+
+    @Test
+    public void roundTripKeepsBytesFingerprintAndRender() {
+        for (long seed = 0; seed < SEEDS; seed++) {
+            TechTree tree = TreeFixtures.played(seed);
+            byte[] encoded = TreeCodec.encode(tree);
+            TechTree decoded = TreeCodec.decode(encoded);
+
+            assertArrayEquals(encoded, TreeCodec.encode(decoded), "Encoding of seed " + seed);
+            assertEquals(TreeFingerprint.of(tree), TreeFingerprint.of(decoded), "Fingerprint of seed " + seed);
+            assertEquals(tree.renderFrame(), decoded.renderFrame(), "Render of seed " + seed);
+            assertEquals(seed, decoded.getSeed(), "Seed");
+        }
+    }
+
+    @Test
+    public void partlyGeneratedTreeKeepsGenerating() {
+        TechTree eager = TreeFixtures.generated(9L);
+        TechTree lazy = new TechTree(9L);
+        lazy.generateLazily();
+        TreeFixtures.forEachCell(lazy.getWidth(), (x, y) -> lazy.unlockNode(x, y, TreeFixtures.selectionOf(x, y)));
+
+        TechTree decoded = TreeCodec.decode(TreeCodec.encode(lazy));
+        assertFalse(decoded.isFullyGenerated(), "Decoded tree is fully generated");
+        assertEquals(lazy.getRoomCount(), decoded.getRoomCount(), "Rooms");
+
+        // Reading past the generated columns still generates the remaining rooms
+        decoded.getNode(eager.getWidth() - 1, 0);
+        lazy.generate();
+        assertTrue(decoded.isFullyGenerated(), "Decoded tree is fully generated");
+        assertEquals(TreeFingerprint.of(eager), TreeFingerprint.of(decoded), "Fingerprint");
+        assertArrayEquals(TreeCodec.encode(lazy), TreeCodec.encode(decoded), "Encoding");
+    }
+
+    @Test
+    public void ungeneratedTreeGeneratesLikeFreshTree() {
+        TechTree decoded = TreeCodec.decode(TreeCodec.encode(new TechTree(9L)));
+        decoded.generate();
+
+        assertArrayEquals(TreeCodec.encode(TreeFixtures.generated(9L)), TreeCodec.encode(decoded), "Encoding");
+    }
+
+    @Test
+    public void shareCodeRoundTrips() {
+        TechTree tree = TreeFixtures.played(7);
+        String code = TreeCodec.toShareCode(tree);
+
+        assertEquals(code, TreeCodec.toShareCode(TreeCodec.fromShareCode(code)), "Share code");
+    }
+
+    @Test
+    public void encodeIntoBufferMatchesEncode() {
+        TechTree tree = TreeFixtures.played(3);
+        ByteBuffer buffer = ByteBuffer.allocate(TreeCodec.maxEncodedSize(tree) + 4);
+        buffer.position(4);
+        TreeCodec.encode(tree, buffer);
+
+        byte[] encoded = TreeCodec.encode(tree);
+        assertTrue(encoded.length <= TreeCodec.maxEncodedSize(tree), "Encoded size within bound");
+        assertArrayEquals(encoded, Arrays.copyOfRange(buffer.array(), 4, buffer.position()), "Buffer encoding");
+    }
+
+    @Test
+    public void rejectsDifferentContentHash() {
+        byte[] encoded = TreeCodec.encode(TreeFixtures.played(1));
+        // The content hash follows the magic, the version and the seed
+        encoded[11] ^= 1;
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> TreeCodec.decode(encoded));
+        assertTrue(ex.getMessage().contains("catalog"), "Message: " + ex.getMessage());
+    }
+
+    @Test
+    public void rejectsOtherVersions() {
+        byte[] encoded = TreeCodec.encode(TreeFixtures.played(1));
+        encoded[2] = 1;
+
+        assertThrows(IllegalArgumentException.class, () -> TreeCodec.decode(encoded));
+    }
+
+    @Test
+    public void rejectsBadMagic() {
+        byte[] encoded = TreeCodec.encode(TreeFixtures.played(1));
+        encoded[0] = 'X';
+
+        assertThrows(IllegalArgumentException.class, () -> TreeCodec.decode(encoded));
+    }
+
+    @Test
+    public void rejectsTruncatedData() {
+        byte[] encoded = TreeCodec.encode(TreeFixtures.played(1));
+
+        for (int length : new int[] {0, 5, 20, encoded.length / 2, encoded.length - 1}) {
+            byte[] truncated = Arrays.copyOf(encoded, length);
+            assertThrows(IllegalArgumentException.class, () -> TreeCodec.decode(truncated));
+        }
+    }
+}
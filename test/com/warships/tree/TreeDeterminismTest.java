@@ -0,0 +1,41 @@
+package com.warships.tree;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.warships.test.Test;
+
+public class TreeDeterminismTest {
+
+    private static final int SEEDS = 50;
+
+    @Test
+    public void sameSeedGeneratesSameTree() {
+        for (long seed = 0; seed < SEEDS; seed++) {
+            assertEquals(render(seed), render(seed), "Tree of seed " + seed);
+        }
+    }
+
+    @Test
+    public void seedIsKept() {
+        assertEquals(42L, new TechTree(42L).getSeed(), "Seed");
+    }
+
+    @Test
+    public void differentSeedsGenerateDifferentTrees() {
+        Set<String> frames = new HashSet<>();
+        for (long seed = 0; seed < SEEDS; seed++) {
+            frames.add(render(seed));
+        }
+
+        assertTrue(frames.size() > SEEDS * 9 / 10, "Only " + frames.size() + " distinct trees");
+    }
+
+    private static String render(long seed) {
+        TechTree tree = TreeFixtures.generated(seed);
+        return tree.renderFrame();
+    }
+}
@@ -0,0 +1,59 @@
+package com.warships.tree;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertFalse;
+import static com.warships.test.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.warships.test.Test;
+
+public class TreeFingerprintTest {
+
+    private static final int SEEDS = 50;
+
+    @Test
+    public void sameSeedGivesSameFingerprint() {
+        for (long seed = 0; seed < SEEDS; seed++) {
+            TreeFingerprint first = TreeFingerprint.of(TreeFixtures.generated(seed));
+            TreeFingerprint second = TreeFingerprint.of(TreeFixtures.generated(seed));
+
+            assertEquals(first, second, "Fingerprint of seed " + seed);
+            assertEquals(first.hashCode(), second.hashCode(), "Hash code of seed " + seed);
+        }
+    }
+
+    @Test
+    public void differentLayoutsGiveDifferentFingerprints() {
+        Set<TreeFingerprint> fingerprints = new HashSet<>();
+        Set<String> frames = new HashSet<>();
+        for (long seed = 0; seed < SEEDS; seed++) {
+            TechTree tree = TreeFixtures.generated(seed);
+            fingerprints.add(TreeFingerprint.of(tree));
+            frames.add(tree.renderFrame());
+        }
+
+        assertEquals(frames.size(), fingerprints.size(), "Distinct fingerprints");
+    }
+
+    @Test
+    public void unlocksAndUpgradesKeepFingerprint() {
+        TechTree tree = TreeFixtures.generated(11);
+        TreeFingerprint before = TreeFingerprint.of(tree);
+
+        TreeFixtures.unlockAll(tree);
+        TreeFixtures.forEachCell(tree.getWidth(), tree::buyUpgrade);
+
+        assertTrue(tree.getNode(1, 0).isUnlocked(), "Nodes were unlocked");
+        assertEquals(before, TreeFingerprint.of(tree), "Fingerprint after unlocks");
+    }
+
+    @Test
+    public void rendersAsHex() {
+        TreeFingerprint fingerprint = new TreeFingerprint(0x1234L, -1L);
+
+        assertEquals("0000000000001234ffffffffffffffff", fingerprint.toString(), "Hex form");
+        assertFalse(fingerprint.equals(new TreeFingerprint(0x1234L, 0L)), "Equal to other low half");
+    }
+}
@@ -0,0 +1,138 @@
+package com.warships.tree;
+
+import com.warships.constants.ConnectionConstants;
+import com.warships.enums.UnlockResult;
+import com.warships.loaders.PresetCatalog;
+
+/**
+ * Builds trees for tests, either generated from a seed or with layouts that generation
+ * does not produce, and plays actions across them.
+ */
+public final class TreeFixtures {
+
+    /**
+     * Action taken on a single cell of a tree.
+     */
+    @FunctionalInterface
+    public interface CellAction {
+        void apply(int x, int y);
+    }
+
+    /**
+     * Generates a tree eagerly.
+     *
+     * @param seed Seed of the tree.
+     * @return The generated tree.
+     */
+    public static TechTree generated(long seed) {
+        TechTree tree = new TechTree(seed);
+        tree.generate();
+        return tree;
+    }
+
+    /**
+     * Generates a tree and unlocks and upgrades about two thirds of its cells, so that
+     * the tree holds node states and choice selections as well as its layout.
+     *
+     * @param seed Seed of the tree.
+     * @return The played tree.
+     */
+    public static TechTree played(long seed) {
+        TechTree tree = generated(seed);
+
+        for (int round = 0; round < 3; round++) {
+            forEachCell(tree.getWidth(), (x, y) -> {
+                if ((x + y + seed) % 3 != 0) {
+                    tree.unlockNode(x, y, selectionOf(x, y));
+                    tree.buyUpgrade(x, y);
+                }
+            });
+        }
+        return tree;
+    }
+
+    /**
+     * Runs an action on every cell of the first columns of a tree, column by column from
+     * the bottom row up.
+     *
+     * @param columns Number of columns to visit.
+     * @param action Action to run on each cell.
+     */
+    public static void forEachCell(int columns, CellAction action) {
+        for (int x = 0; x < columns; x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                action.apply(x, y);
+            }
+        }
+    }
+
+    /**
+     * Gets the option picked when the choice node of a cell is unlocked by a fixture. The
+     * option only depends on the position, so any order of unlocks ends in the same tree.
+     *
+     * @param x The X position of the cell.
+     * @param y The Y position of the cell.
+     * @return The index of the option.
+     */
+    public static int selectionOf(int x, int y) {
+        return (x + y) % 3;
+    }
+
+    /**
+     * Unlocks every node that can be reached, sweeping the tree until a sweep unlocks
+     * nothing. Unlocking an unlocked node succeeds again, so those are skipped. Safe to
+     * run from several threads on the same tree.
+     *
+     * @param tree The tree to unlock.
+     */
+    public static void unlockAll(TechTree tree) {
+        boolean[] changed = {true};
+        while (changed[0]) {
+            changed[0] = false;
+
+            int width = tree.readTree(TechTree::getWidth);
+            forEachCell(width, (x, y) -> {
+                if (!tree.readNode(x, y, node -> node == null || node.isUnlocked())) {
+                    changed[0] |= tree.unlockNode(x, y, selectionOf(x, y)) == UnlockResult.UNLOCKED;
+                }
+            });
+            changed[0] |= tree.readTree(TechTree::getWidth) > width;
+        }
+    }
+
+    /**
+     * Builds a tree of a single room filled with preset nodes, each linked to its
+     * neighbors on the right and above. Only the node at (0, 0) is unlocked.
+     *
+     * @param columns Number of columns of the tree.
+     * @return The tree.
+     */
+    public static TechTree gridTree(int columns) {
+        PresetCatalog catalog = PresetCatalog.getDefault();
+        TechTree tree = TechTree.createEmpty(0L);
+        tree.restoreRoom(columns - 1);
+
+        int index = 0;
+        for (int x = 0; x < columns; x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                if (x != 0 || y != 1) {
+                    tree.restoreNode(x, y, catalog.createNode(index++ % catalog.size()));
+                }
+            }
+        }
+
+        for (int x = 0; x < columns; x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                tree.attemptConnection(x, y, ConnectionConstants.RIGHT);
+                tree.attemptConnection(x, y, ConnectionConstants.UPPER);
+            }
+        }
+
+        tree.getNode(0, 0).unlock();
+        return tree;
+    }
+
+    private TreeFixtures() {
+        throw new IllegalStateException("Cannot instantiate static class.");
+    }
+}
@@ -0,0 +1,68 @@
+package com.warships.tree;
+
+import static com.warships.test.Assert.assertArrayEquals;
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertFalse;
+import static com.warships.test.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.warships.loaders.PresetCatalog;
+import com.warships.nodes.TechNode;
+import com.warships.nodes.UpgradeNode;
+import com.warships.test.Test;
+import com.warships.utils.Glyphs;
+
+public class TreeRendererTest {
+
+    @Test
+    public void bufferHoldsFrameAsUtf8() {
+        TechTree tree = TreeFixtures.played(8L);
+        byte[] expected = tree.renderFrame().getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(TreeRenderer.encodedSize(tree));
+        TreeRenderer.render(tree, buffer);
+
+        assertEquals(expected.length, TreeRenderer.encodedSize(tree), "Encoded size");
+        assertFalse(buffer.hasRemaining(), "Buffer was filled");
+        assertArrayEquals(expected, buffer.array(), "Encoded frame");
+    }
+
+    @Test
+    public void writerGetsFrame() throws IOException {
+        TechTree tree = TreeFixtures.played(8L);
+        StringWriter out = new StringWriter();
+        TreeRenderer.render(tree, out);
+
+        assertEquals(tree.renderFrame(), out.toString(), "Written frame");
+    }
+
+    @Test
+    public void maxedNodePadsWithBlankGlyphs() {
+        UpgradeNode node = PresetCatalog.getDefault().createNode(0);
+        node.unlock();
+        while (node.upgrade()) {
+            // Upgrade until maxed
+        }
+
+        String text = node.toString();
+        // Adding two glyphs as chars once printed their code point sum instead
+        assertTrue(text.endsWith("MAXED" + Glyphs.NODE_BLANK + Glyphs.NODE_BLANK + ")"), "Maxed node " + text);
+        assertFalse(text.contains(Integer.toString(Glyphs.NODE_BLANK + Glyphs.NODE_BLANK)), "Maxed node " + text);
+    }
+
+    @Test
+    public void everyNodeStateHasTheSameWidth() {
+        TechTree tree = TreeFixtures.played(8L);
+
+        TreeFixtures.forEachCell(tree.getWidth(), (x, y) -> {
+            TechNode node = tree.getNode(x, y);
+            if (node != null) {
+                assertEquals(TechNode.NODE_WIDTH, node.toString().length(), "Width of " + node);
+            }
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package com.warships.tree;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertTrue;
+
+import com.warships.nodes.TechNode;
+import com.warships.test.Test;
+
+public class TreeValidatorTest {
+
+    @Test
+    public void generatedTreesAreValid() {
+        for (long seed = 0; seed < 200; seed++) {
+            TechTree tree = TreeFixtures.generated(seed);
+
+            assertEquals(null, TreeValidator.validate(tree), "Violation in tree of seed " + seed);
+        }
+    }
+
+    @Test
+    public void lazilyGeneratedTreesAreValid() {
+        TechTree tree = new TechTree(3L);
+        tree.generateLazily();
+
+        assertTrue(TreeValidator.isValid(tree), "Lazy tree is invalid");
+    }
+
+    @Test
+    public void rejectsTreeWithoutRooms() {
+        assertEquals("Tree has no engine rooms", TreeValidator.validate(TechTree.createEmpty(1L)), "Violation");
+    }
+
+    @Test
+    public void rejectsMissingNode() {
+        TechTree tree = copyWithout(5, 0);
+        String violation = TreeValidator.validate(tree);
+
+        // The link of a neighbor may be reported before the empty cell itself
+        assertTrue(violation != null && (violation.contains("(5, 0)") || violation.contains("neighbor")),
+                "Violation: " + violation);
+    }
+
+    @Test
+    public void rejectsRoomsShorterThanTree() {
+        TechTree tree = copyWithout(-1, -1);
+        TechTree partial = TechTree.createEmpty(1L);
+        partial.restoreRoom(tree.getRoomEnd(0));
+        for (int x = 0; x < tree.getWidth(); x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                if (tree.getNode(x, y) != null) {
+                    partial.restoreNode(x, y, tree.getNode(x, y));
+                }
+            }
+        }
+
+        assertTrue(TreeValidator.validate(partial).startsWith("Tree is " + tree.getWidth() + " columns wide"),
+                "Violation: " + TreeValidator.validate(partial));
+    }
+
+    /**
+     * Copies the nodes of a generated tree into an empty tree, leaving out one cell.
+     * The nodes stay attached, as they are in the generated tree.
+     */
+    private static TechTree copyWithout(int skipX, int skipY) {
+        TechTree source = TreeFixtures.generated(1L);
+
+        TechTree copy = TechTree.createEmpty(1L);
+        for (int room = 0; room < source.getRoomCount(); room++) {
+            copy.restoreRoom(source.getRoomEnd(room));
+        }
+        for (int x = 0; x < source.getWidth(); x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                TechNode node = source.getNode(x, y);
+                if (node != null && (x != skipX || y != skipY)) {
+                    copy.restoreNode(x, y, node);
+                    node.attach();
+                }
+            }
+        }
+
+        return copy;
+    }
+}
@@ -0,0 +1,153 @@
+package com.warships.tree;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertTrue;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+
+import com.warships.enums.UnlockResult;
+import com.warships.nodes.TechNode;
+import com.warships.test.Test;
+
+public class UnlockPathsTest {
+
+    @Test
+    public void costsMatchExhaustiveSearch() {
+        for (long seed = 0; seed < 20; seed++) {
+            TechTree tree = TreeFixtures.generated(seed);
+            int[] expected = relaxAll(tree);
+
+            for (int x = 0; x < tree.getWidth(); x++) {
+                for (int y = 0; y < TechGrid.ROWS; y++) {
+                    int cost = expected[x * TechGrid.ROWS + y];
+                    assertEquals(cost == Integer.MAX_VALUE ? -1 : cost,
+                            tree.getCheapestUnlockCost(x, y), "Cost of (" + x + ", " + y + ") in seed " + seed);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void pathsAreLinkedAndAddUpToTheirCost() {
+        for (long seed = 0; seed < 20; seed++) {
+            TechTree tree = TreeFixtures.generated(seed);
+
+            for (int room = 0; room < tree.getRoomCount(); room++) {
+                Point engine = tree.getEnginePosition(room);
+                List<Point> path = tree.getCheapestUnlockPath(engine.x, engine.y);
+
+                assertEquals(engine, path.get(path.size() - 1), "Last step of the path to engine " + room);
+                assertTrue(hasUnlockedNeighbor(tree, path.get(0)), "First step is next to an unlocked node");
+
+                int total = 0;
+                for (int i = 0; i < path.size(); i++) {
+                    Point step = path.get(i);
+                    total += tree.getNode(step.x, step.y).getUnlockCost();
+                    if (i > 0) {
+                        assertTrue(isLinked(tree, path.get(i - 1), step), "Steps " + (i - 1) + " and " + i + " are linked");
+                    }
+                }
+                assertEquals(tree.getCheapestUnlockCost(engine.x, engine.y), total, "Cost of the path to engine " + room);
+            }
+        }
+    }
+
+    @Test
+    public void unlockingAPathReachesItsTarget() {
+        TechTree tree = TreeFixtures.generated(5L);
+        Point engine = tree.getEnginePosition(1);
+
+        for (Point step : tree.getCheapestUnlockPath(engine.x, engine.y)) {
+            assertEquals(UnlockResult.UNLOCKED, tree.unlockNode(step.x, step.y, 0), "Unlock of " + step);
+        }
+
+        assertEquals(0, tree.getCheapestUnlockCost(engine.x, engine.y), "Cost of an unlocked engine");
+        assertTrue(tree.getCheapestUnlockPath(engine.x, engine.y).isEmpty(), "Path to an unlocked engine");
+    }
+
+    @Test
+    public void costsFollowUnlocks() {
+        TechTree tree = TreeFixtures.generated(9L);
+        Point engine = tree.getEnginePosition(0);
+        Point first = tree.getCheapestUnlockPath(engine.x, engine.y).get(0);
+        int before = tree.getCheapestUnlockCost(engine.x, engine.y);
+        int firstCost = tree.getNode(first.x, first.y).getUnlockCost();
+
+        tree.unlockNode(first.x, first.y, 0);
+
+        assertEquals(before - firstCost, tree.getCheapestUnlockCost(engine.x, engine.y), "Cost after unlocking a step");
+    }
+
+    /**
+     * Finds every cheapest cost by relaxing all links until nothing changes.
+     */
+    private static int[] relaxAll(TechTree tree) {
+        int[] cost = new int[tree.getWidth() * TechGrid.ROWS];
+        Arrays.fill(cost, Integer.MAX_VALUE);
+
+        for (int x = 0; x < tree.getWidth(); x++) {
+            for (int y = 0; y < TechGrid.ROWS; y++) {
+                TechNode node = tree.getNode(x, y);
+                if (node != null && node.isUnlocked()) {
+                    cost[x * TechGrid.ROWS + y] = 0;
+                }
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int x = 0; x < tree.getWidth(); x++) {
+                for (int y = 0; y < TechGrid.ROWS; y++) {
+                    TechNode node = tree.getNode(x, y);
+                    if (node == null || node.isUnlocked()) {
+                        continue;
+                    }
+
+                    for (Point neighbor : linkedNeighbors(node, x, y)) {
+                        int from = cost[neighbor.x * TechGrid.ROWS + neighbor.y];
+                        if (from != Integer.MAX_VALUE && from + node.getUnlockCost() < cost[x * TechGrid.ROWS + y]) {
+                            cost[x * TechGrid.ROWS + y] = from + node.getUnlockCost();
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        return cost;
+    }
+
+    private static Point[] linkedNeighbors(TechNode node, int x, int y) {
+        Point[] neighbors = new Point[4];
+        int count = 0;
+        if (node.hasLeft()) {
+            neighbors[count++] = new Point(x - 1, y);
+        }
+        if (node.hasRight()) {
+            neighbors[count++] = new Point(x + 1, y);
+        }
+        if (node.hasUpper()) {
+            neighbors[count++] = new Point(x, y + 1);
+        }
+        if (node.hasLower()) {
+            neighbors[count++] = new Point(x, y - 1);
+        }
+        return Arrays.copyOf(neighbors, count);
+    }
+
+    private static boolean isLinked(TechTree tree, Point from, Point to) {
+        return Arrays.asList(linkedNeighbors(tree.getNode(to.x, to.y), to.x, to.y)).contains(from);
+    }
+
+    private static boolean hasUnlockedNeighbor(TechTree tree, Point cell) {
+        for (Point neighbor : linkedNeighbors(tree.getNode(cell.x, cell.y), cell.x, cell.y)) {
+            if (tree.getNode(neighbor.x, neighbor.y).isUnlocked()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,38 @@
+package com.warships.utils;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertThrows;
+import static com.warships.test.Assert.assertTrue;
+
+import com.warships.test.Test;
+
+public class AliasTableTest {
+
+    private static final int DRAWS = 200_000;
+
+    @Test
+    public void drawsFollowTheWeights() {
+        double[] weights = {1, 2, 0, 5};
+        AliasTable table = new AliasTable(weights);
+        RandomEngine random = new RandomEngine(3L);
+        int[] counts = new int[weights.length];
+
+        for (int i = 0; i < DRAWS; i++) {
+            counts[table.sample(random)]++;
+        }
+
+        assertEquals(0, counts[2], "Draws of a zero weight");
+        for (int i = 0; i < weights.length; i++) {
+            double expected = weights[i] / 8.0;
+            double actual = counts[i] / (double) DRAWS;
+            assertTrue(Math.abs(expected - actual) < 0.01, "Share of index " + i + " is " + actual);
+        }
+    }
+
+    @Test
+    public void rejectsInvalidWeights() {
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[] {1, -1}));
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[] {Double.NaN}));
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[] {0, 0}));
+    }
+}
@@ -0,0 +1,48 @@
+package com.warships.utils;
+
+import static com.warships.test.Assert.assertEquals;
+import static com.warships.test.Assert.assertTrue;
+
+import com.warships.test.Test;
+
+public class RandomEngineTest {
+
+    @Test
+    public void sameSeedGivesSameSequence() {
+        RandomEngine first = new RandomEngine(1234L);
+        RandomEngine second = new RandomEngine(1234L);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(first.random(0, 1_000_000), second.random(0, 1_000_000), "Draw " + i);
+        }
+    }
+
+    @Test
+    public void splitIsReproducible() {
+        RandomEngine first = new RandomEngine(99L).split();
+        RandomEngine second = new RandomEngine(99L).split();
+
+        assertEquals(first.getSeed(), second.getSeed(), "Derived seed");
+        assertEquals(first.nextDouble(), second.nextDouble(), "First draw of the derived engine");
+    }
+
+    @Test
+    public void randomStaysInRange() {
+        RandomEngine random = new RandomEngine(7L);
+
+        for (int i = 0; i < 1000; i++) {
+            int value = random.random(3, 5);
+            assertTrue(value >= 3 && value <= 5, "Value out of range: " + value);
+        }
+    }
+
+    @Test
+    public void chanceHonorsBounds() {
+        RandomEngine random = new RandomEngine(7L);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(random.chance(1.0), "A certain chance must proc");
+            assertTrue(!random.chance(0.0), "An impossible chance must not proc");
+        }
+    }
+}